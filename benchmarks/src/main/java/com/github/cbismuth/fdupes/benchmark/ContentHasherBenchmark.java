@@ -0,0 +1,86 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Christophe Bismuth
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.github.cbismuth.fdupes.benchmark;
+
+import com.github.cbismuth.fdupes.io.ContentHasher;
+import com.github.cbismuth.fdupes.io.HashAlgorithm;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// one operation hashes one mebibyte, so ops/s reads as MiB/s per core
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+public class ContentHasherBenchmark {
+
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    @Param({ "md5", "sha256", "crc32c", "xxhash64" })
+    private String algorithm;
+
+    private ContentHasher hasher;
+    private byte[] digest;
+    private ByteBuffer buffer;
+
+    @Setup
+    public void setUp() {
+        hasher = HashAlgorithm.fromName(algorithm).orElseThrow(IllegalArgumentException::new).newHasher();
+        digest = new byte[hasher.getDigestLength()];
+
+        final byte[] content = new byte[BUFFER_SIZE];
+        new Random(42L).nextBytes(content);
+
+        buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        buffer.put(content);
+    }
+
+    @Benchmark
+    public byte[] hash() {
+        buffer.rewind();
+
+        hasher.reset();
+        hasher.update(buffer);
+        hasher.digest(digest);
+
+        return digest;
+    }
+
+}
@@ -0,0 +1,81 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Christophe Bismuth
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.github.cbismuth.fdupes.benchmark;
+
+import com.github.cbismuth.fdupes.container.immutable.PathElement;
+import com.github.cbismuth.fdupes.stream.DuplicateFinderByKey;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.collect.Sets.newConcurrentHashSet;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+public class DuplicateFinderByKeyBenchmark {
+
+    @Param({ "10000", "1000000" })
+    private int fileCount;
+    @Param({ "4096" })
+    private long fileSize;
+    @Param({ "0.1", "0.5", "0.9" })
+    private double duplicateRatio;
+
+    private final DuplicateFinderByKey duplicateFinderByKey = new DuplicateFinderByKey(Fixtures.systemPropertyGetter());
+
+    private List<PathElement> elements;
+
+    @Setup
+    public void setUp() {
+        elements = Fixtures.syntheticElements(fileCount, fileSize, duplicateRatio);
+    }
+
+    @Benchmark
+    public Collection<PathElement> getDuplicatesByBoxedSize() {
+        return duplicateFinderByKey.getDuplicates(elements, PathElement::size, newConcurrentHashSet());
+    }
+
+    @Benchmark
+    public Collection<PathElement> getDuplicatesBySize() {
+        return duplicateFinderByKey.getDuplicatesBySize(elements, newConcurrentHashSet());
+    }
+
+}
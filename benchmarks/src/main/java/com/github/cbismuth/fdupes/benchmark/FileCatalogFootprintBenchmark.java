@@ -0,0 +1,146 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Christophe Bismuth
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.github.cbismuth.fdupes.benchmark;
+
+import com.github.cbismuth.fdupes.container.mutable.FileCatalog;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// retained heap of a walk result, reported by the bytesPerFile secondary metric of the single measurement iteration
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx2g", "-XX:+UseSerialGC" })
+@Warmup(iterations = 1, time = 1)
+@Measurement(iterations = 1, time = 1)
+@State(Scope.Benchmark)
+public class FileCatalogFootprintBenchmark {
+
+    private static final int SAMPLE_COUNT = 16;
+
+    @Param({ "1000000" })
+    private int fileCount;
+    @Param({ "objects", "catalog" })
+    private String layout;
+
+    private Path directory;
+    private final List<Path> samples = new ArrayList<>();
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Footprint {
+
+        public long bytesPerFile;
+
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory(getClass().getSimpleName());
+
+        for (int i = 0; i < SAMPLE_COUNT; i++) {
+            samples.add(Files.write(Paths.get(directory.toString(), "sample-" + i), new byte[i]));
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Fixtures.delete(directory);
+    }
+
+    @Benchmark
+    public Object load(final Footprint footprint) throws IOException {
+        final long before = usedHeap();
+
+        final Object walkResult = "catalog".equals(layout) ? loadCatalog() : loadObjects();
+
+        footprint.bytesPerFile = (usedHeap() - before) / fileCount;
+
+        return walkResult;
+    }
+
+    private FileCatalog loadCatalog() throws IOException {
+        final FileCatalog catalog = new FileCatalog();
+
+        for (int i = 0; i < fileCount; i++) {
+            catalog.add(newPath(i), readAttributes(i));
+        }
+
+        return catalog;
+    }
+
+    // the layout of a walk result before the file catalog, one path and one attributes object per file
+    private List<Object[]> loadObjects() throws IOException {
+        final List<Object[]> elements = new ArrayList<>();
+
+        for (int i = 0; i < fileCount; i++) {
+            final BasicFileAttributes attributes = readAttributes(i);
+
+            attributes.fileKey();
+
+            elements.add(new Object[] { newPath(i), attributes });
+        }
+
+        return elements;
+    }
+
+    private Path newPath(final int i) {
+        return Paths.get(directory.toString(), "directory-" + i % 1024).resolve("file-" + i + ".jpg");
+    }
+
+    private BasicFileAttributes readAttributes(final int i) throws IOException {
+        return Files.readAttributes(samples.get(i % SAMPLE_COUNT), BasicFileAttributes.class);
+    }
+
+    private static long usedHeap() {
+        final Runtime runtime = Runtime.getRuntime();
+
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+}
@@ -0,0 +1,106 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Christophe Bismuth
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.github.cbismuth.fdupes.benchmark;
+
+import com.github.cbismuth.fdupes.cli.SystemPropertyGetter;
+import com.github.cbismuth.fdupes.container.immutable.PathElement;
+import com.github.cbismuth.fdupes.container.mutable.FileCatalog;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+final class Fixtures {
+
+    private static final long SEED = 42L;
+
+    static SystemPropertyGetter systemPropertyGetter() {
+        return new SystemPropertyGetter(new StandardEnvironment());
+    }
+
+    static int distinctCount(final int fileCount, final double duplicateRatio) {
+        return Math.max(1, (int) Math.round(fileCount * (1.0 - duplicateRatio)));
+    }
+
+    static List<PathElement> syntheticElements(final int fileCount, final long fileSize, final double duplicateRatio) {
+        final Random random = new Random(SEED);
+        final int distinctCount = distinctCount(fileCount, duplicateRatio);
+
+        final FileCatalog catalog = new FileCatalog();
+        final List<PathElement> elements = new ArrayList<>(fileCount);
+        for (int i = 0; i < fileCount; i++) {
+            final Path path = Paths.get("/synthetic", "directory-" + i % 128, "file-" + i + ".jpg");
+            final long size = fileSize + i % distinctCount;
+
+            elements.add(catalog.add(path, new SyntheticAttributes(size, random.nextInt(), (long) i)));
+        }
+
+        return elements;
+    }
+
+    static List<PathElement> realFiles(final Path directory,
+                                       final int fileCount,
+                                       final int fileSize,
+                                       final double duplicateRatio) throws IOException {
+        final Random random = new Random(SEED);
+        final int distinctCount = distinctCount(fileCount, duplicateRatio);
+
+        final byte[][] contents = new byte[distinctCount][fileSize];
+        for (final byte[] content : contents) {
+            random.nextBytes(content);
+        }
+
+        final FileCatalog catalog = new FileCatalog();
+        final List<PathElement> elements = new ArrayList<>(fileCount);
+        for (int i = 0; i < fileCount; i++) {
+            final Path subDirectory = Files.createDirectories(Paths.get(directory.toString(), "directory-" + i % 16));
+            final Path path = Files.write(Paths.get(subDirectory.toString(), "file-" + i + ".jpg"), contents[i % distinctCount]);
+
+            elements.add(catalog.add(path, Files.readAttributes(path, BasicFileAttributes.class)));
+        }
+
+        return elements;
+    }
+
+    static void delete(final Path directory) throws IOException {
+        try (final Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder())
+                 .forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private Fixtures() {
+        // PRIVATE
+    }
+
+}
@@ -0,0 +1,102 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Christophe Bismuth
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.github.cbismuth.fdupes.benchmark;
+
+import com.github.cbismuth.fdupes.collect.PathAnalyser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+public class PathAnalyserBenchmark {
+
+    @Param({ "100000" })
+    private int fileCount;
+    // photos taken within the same second, 1 is a folder without bursts
+    @Param({ "1", "1000" })
+    private int burstSize;
+
+    private final PathAnalyser pathAnalyser = new PathAnalyser();
+
+    private Path destination;
+    private List<Path> paths;
+
+    @Setup
+    public void setUp() throws IOException {
+        destination = Files.createTempDirectory(getClass().getSimpleName());
+        paths = new ArrayList<>(fileCount);
+
+        for (int i = 0; i < fileCount; i++) {
+            final long second = 20160102000000L + i / burstSize;
+
+            paths.add(Paths.get("DCIM", String.format("IMG_%d_BURST%03d.jpg", second, i % burstSize)));
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Fixtures.delete(destination);
+    }
+
+    @Benchmark
+    public void plan(final Blackhole blackhole) {
+        final PathAnalyser.Planner planner = pathAnalyser.newPlanner(destination);
+
+        for (final Path path : paths) {
+            blackhole.consume(planner.getTimestampPath(path));
+        }
+    }
+
+    @Benchmark
+    public void getTimestampPath(final Blackhole blackhole) {
+        for (final Path path : paths) {
+            blackhole.consume(pathAnalyser.getTimestampPath(destination, path));
+        }
+    }
+
+}
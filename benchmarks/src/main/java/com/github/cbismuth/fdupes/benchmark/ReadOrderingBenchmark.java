@@ -0,0 +1,134 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Christophe Bismuth
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.github.cbismuth.fdupes.benchmark;
+
+import com.github.cbismuth.fdupes.cli.SystemPropertyGetter;
+import com.github.cbismuth.fdupes.container.immutable.PathElement;
+import com.github.cbismuth.fdupes.container.mutable.FileCatalog;
+import com.github.cbismuth.fdupes.io.HashCache;
+import com.github.cbismuth.fdupes.io.IoExecutorFactory;
+import com.github.cbismuth.fdupes.io.IoScheduler;
+import com.github.cbismuth.fdupes.io.Md5Computer;
+import com.github.cbismuth.fdupes.io.PathHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// one operation hashes one file, so ops/s reads as files/s
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+public class ReadOrderingBenchmark {
+
+    private static final long DISTINCT_FILES_COUNT = 8L;
+    private static final long DIRECTORY_DUPLICATION_FACTOR = 16L;
+    private static final long FILE_DUPLICATION_FACTOR = 4L;
+
+    private static final int FILE_COUNT = (int) (DISTINCT_FILES_COUNT * DIRECTORY_DUPLICATION_FACTOR * FILE_DUPLICATION_FACTOR);
+
+    @Param({ "none", "directory", "inode" })
+    private String ordering;
+    @Param({ "1", "4" })
+    private int concurrency;
+
+    private final PathHelper pathHelper = new PathHelper();
+
+    private Path directory;
+    private List<PathElement> elements;
+
+    private IoScheduler ioScheduler;
+    private Md5Computer md5Computer;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory(getClass().getSimpleName());
+        pathHelper.createNewSetWithDuplicatesByMd5(directory, DISTINCT_FILES_COUNT, DIRECTORY_DUPLICATION_FACTOR, FILE_DUPLICATION_FACTOR);
+
+        final FileCatalog catalog = new FileCatalog();
+        elements = new ArrayList<>();
+        try (final Stream<Path> paths = Files.walk(directory)) {
+            for (final Path path : (Iterable<Path>) paths.filter(Files::isRegularFile)::iterator) {
+                elements.add(catalog.add(path, Files.readAttributes(path, BasicFileAttributes.class)));
+            }
+        }
+
+        // candidates reach the hashing pass in hash map order, not in walk order
+        Collections.shuffle(elements, new Random(42L));
+
+        final Map<String, Object> properties = new HashMap<>();
+        properties.put("fdupes.io.concurrency", concurrency);
+        properties.put("fdupes.io.ordering", ordering);
+
+        final StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addFirst(new MapPropertySource(getClass().getSimpleName(), properties));
+
+        final SystemPropertyGetter systemPropertyGetter = new SystemPropertyGetter(environment);
+
+        ioScheduler = new IoScheduler(new IoExecutorFactory(systemPropertyGetter), systemPropertyGetter);
+        md5Computer = new Md5Computer(new HashCache(systemPropertyGetter), systemPropertyGetter);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        ioScheduler.close();
+
+        Fixtures.delete(directory);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FILE_COUNT)
+    public Map<PathElement, String> computeAll() {
+        return ioScheduler.computeAll(elements, md5Computer::compute);
+    }
+
+}
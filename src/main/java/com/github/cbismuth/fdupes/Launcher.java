@@ -25,14 +25,16 @@
 package com.github.cbismuth.fdupes;
 
 import com.github.cbismuth.fdupes.cli.SystemPropertyGetter;
+import com.github.cbismuth.fdupes.container.immutable.DuplicateGroup;
 import com.github.cbismuth.fdupes.container.immutable.PathElement;
+import com.github.cbismuth.fdupes.daemon.DuplicateIndex;
 import com.github.cbismuth.fdupes.io.DirectoryWalker;
 import com.github.cbismuth.fdupes.io.PathEscapeFunction;
 import com.github.cbismuth.fdupes.io.PathOrganizer;
+import com.github.cbismuth.fdupes.report.DuplicatesBinaryReporter;
 import com.github.cbismuth.fdupes.report.DuplicatesCsvReporter;
 import com.github.cbismuth.fdupes.report.DuplicatesLogReporter;
-import com.google.common.collect.ArrayListMultimap;
-import com.google.common.collect.Multimap;
+import com.github.cbismuth.fdupes.report.ReportWriter;
 import org.slf4j.Logger;
 import org.springframework.stereotype.Component;
 
@@ -40,8 +42,8 @@ import java.io.IOException;
 import java.nio.file.Path;
 import java.util.Collection;
 import java.util.Set;
+import java.util.function.Consumer;
 
-import static com.google.common.collect.Multimaps.synchronizedListMultimap;
 import static com.google.common.collect.Sets.newConcurrentHashSet;
 import static org.slf4j.LoggerFactory.getLogger;
 
@@ -53,41 +55,63 @@ public class Launcher {
     private final PathOrganizer pathOrganizer;
     private final DirectoryWalker directoryWalker;
     private final PathEscapeFunction pathEscapeFunction;
+    private final DuplicateIndex duplicateIndex;
     private final SystemPropertyGetter systemPropertyGetter;
 
     public Launcher(final PathOrganizer pathOrganizer,
                     final DirectoryWalker directoryWalker,
                     final PathEscapeFunction pathEscapeFunction,
+                    final DuplicateIndex duplicateIndex,
                     final SystemPropertyGetter systemPropertyGetter) {
         this.pathOrganizer = pathOrganizer;
         this.pathEscapeFunction = pathEscapeFunction;
         this.directoryWalker = directoryWalker;
+        this.duplicateIndex = duplicateIndex;
         this.systemPropertyGetter = systemPropertyGetter;
     }
 
     public Path launch(final Collection<String> args) throws IOException {
         try {
             final Set<PathElement> uniqueElements = newConcurrentHashSet();
-            final Multimap<PathElement, PathElement> duplicates = synchronizedListMultimap(ArrayListMultimap.create());
 
-            directoryWalker.extractDuplicates(args, uniqueElements, duplicates);
+            final Path logReport;
+            try (final ReportWriter<DuplicateGroup> csvReport = new DuplicatesCsvReporter(systemPropertyGetter).open();
+                 final ReportWriter<DuplicateGroup> duplicatesLog = new DuplicatesLogReporter(pathEscapeFunction, systemPropertyGetter).open();
+                 final ReportWriter<DuplicateGroup> binaryReport = systemPropertyGetter.doBinaryReport() ? new DuplicatesBinaryReporter(systemPropertyGetter).open() : null) {
+                Consumer<DuplicateGroup> groupListener = csvReport.andThen(duplicatesLog);
+                if (binaryReport != null) {
+                    groupListener = groupListener.andThen(binaryReport);
+                }
+                if (systemPropertyGetter.doDaemon()) {
+                    groupListener = groupListener.andThen(duplicateIndex::add);
+                }
+
+                directoryWalker.extractDuplicates(args, uniqueElements, groupListener);
+
+                LOGGER.info("CSV report created at [{}]", csvReport.getPath());
+                LOGGER.info("Log report created at [{}]", duplicatesLog.getPath());
+                if (binaryReport != null) {
+                    LOGGER.info("Binary report created at [{}]", binaryReport.getPath());
+                }
+
+                logReport = duplicatesLog.getPath();
+            }
+
+            if (systemPropertyGetter.doDaemon()) {
+                duplicateIndex.addAll(uniqueElements);
+            }
 
             if (systemPropertyGetter.doOrganize()) {
                 pathOrganizer.organize(uniqueElements);
             }
 
-            final Path csvReport = new DuplicatesCsvReporter().report(duplicates);
-            LOGGER.info("CSV report created at [{}]", csvReport);
-
-            final Path logReport = new DuplicatesLogReporter(pathEscapeFunction).report(duplicates);
-            LOGGER.info("Log report created at [{}]", csvReport);
-
             return logReport;
         } catch (final OutOfMemoryError ignored) {
             LOGGER.error("Not enough memory, solutions are:");
             LOGGER.error("\t- increase Java heap size (e.g. -Xmx512m),");
             LOGGER.error("\t- decrease byte buffer size (e.g. -Dfdupes.buffer.size=8k - default is 64k),");
-            LOGGER.error("\t- reduce the level of parallelism (e.g. -Dfdupes.parallelism=1).");
+            LOGGER.error("\t- reduce the level of parallelism (e.g. -Dfdupes.parallelism=1),");
+            LOGGER.error("\t- group files through sorted runs on disk (e.g. -Dfdupes.grouping.memory=256m).");
 
             return null;
         }
@@ -24,6 +24,8 @@
 
 package com.github.cbismuth.fdupes;
 
+import com.github.cbismuth.fdupes.cli.SystemPropertyGetter;
+import com.github.cbismuth.fdupes.daemon.IndexWatcher;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
 import org.springframework.context.ConfigurableApplicationContext;
@@ -46,7 +48,17 @@ public class Main {
         final SpringApplication app = new SpringApplication(Main.class);
 
         try (final ConfigurableApplicationContext applicationContext = app.run(args)) {
+            final boolean daemon = applicationContext.getBean(SystemPropertyGetter.class).doDaemon();
+
+            if (daemon) {
+                applicationContext.getBean(IndexWatcher.class).register(newArrayList(args));
+            }
+
             applicationContext.getBean(Launcher.class).launch(newArrayList(args));
+
+            if (daemon) {
+                applicationContext.getBean(IndexWatcher.class).watch();
+            }
         }
     }
 
@@ -24,11 +24,19 @@
 
 package com.github.cbismuth.fdupes.cli;
 
+import com.github.cbismuth.fdupes.io.ExecutionMode;
+import com.github.cbismuth.fdupes.io.HashAlgorithm;
+import com.github.cbismuth.fdupes.io.ReadOrdering;
 import org.apache.spark.network.util.JavaUtils;
 import org.slf4j.Logger;
 import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Component;
 
+import java.nio.file.FileSystems;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.slf4j.LoggerFactory.getLogger;
 
 @Component
@@ -37,6 +45,7 @@ public class SystemPropertyGetter {
     private static final Logger LOGGER = getLogger(SystemPropertyGetter.class);
 
     public static final int DEFAULT_BUFFER_SIZE = 4 * 1024;
+    public static final int DEFAULT_FINGERPRINT_WINDOW_SIZE = 4 * 1024;
 
     private final Environment environment;
 
@@ -47,23 +56,225 @@ public class SystemPropertyGetter {
     }
 
     public int getBufferSize() {
-        final String property = environment.getProperty("fdupes.buffer.size", String.class, "4k");
+        return getByteSize("fdupes.buffer.size", "4k", DEFAULT_BUFFER_SIZE);
+    }
 
-        try {
-            return Math.toIntExact(JavaUtils.byteStringAsBytes(property));
-        } catch (final NumberFormatException | ArithmeticException ignored) {
-            LOGGER.error("Unrecognized buffer size format [{}] fallback to [{}] bytes", property, DEFAULT_BUFFER_SIZE);
+    public HashAlgorithm getHashAlgorithm() {
+        final String property = environment.getProperty("fdupes.hash.algorithm", String.class, HashAlgorithm.MD5.getName());
 
-            return DEFAULT_BUFFER_SIZE;
-        }
+        return HashAlgorithm.fromName(property).orElseGet(() -> {
+            LOGGER.error("Unrecognized [fdupes.hash.algorithm] value [{}] fallback to [{}]", property, HashAlgorithm.MD5.getName());
+
+            return HashAlgorithm.MD5;
+        });
     }
 
     public int getParallelism() {
         return environment.getProperty("fdupes.parallelism", Integer.class, 1);
     }
 
+    public ExecutionMode getExecutionMode() {
+        final String property = environment.getProperty("fdupes.execution.mode", String.class, ExecutionMode.PLATFORM.getName());
+
+        return ExecutionMode.fromName(property).orElseGet(() -> {
+            LOGGER.error("Unrecognized [fdupes.execution.mode] value [{}] fallback to [{}]", property, ExecutionMode.PLATFORM.getName());
+
+            return ExecutionMode.PLATFORM;
+        });
+    }
+
+    public int getMaxInFlight() {
+        return Math.max(1, environment.getProperty("fdupes.execution.max.inflight", Integer.class, 256));
+    }
+
+    public int getDefaultIoConcurrency() {
+        return getExecutionMode() == ExecutionMode.VIRTUAL ? getMaxInFlight() : getParallelism();
+    }
+
+    public int getIoConcurrency(final String fileStoreName) {
+        final int defaultValue = environment.getProperty("fdupes.io.concurrency", Integer.class, getDefaultIoConcurrency());
+
+        return Math.max(1, environment.getProperty("fdupes.io.concurrency." + fileStoreName, Integer.class, defaultValue));
+    }
+
+    public ReadOrdering getIoOrdering() {
+        final String property = environment.getProperty("fdupes.io.ordering", String.class, ReadOrdering.NONE.getName());
+
+        return ReadOrdering.fromName(property).orElseGet(() -> {
+            LOGGER.error("Unrecognized [fdupes.io.ordering] value [{}] fallback to [{}]", property, ReadOrdering.NONE.getName());
+
+            return ReadOrdering.NONE;
+        });
+    }
+
     public boolean doOrganize() {
         return environment.getProperty("fdupes.organize", Boolean.class, false);
     }
 
+    public boolean doFingerprint() {
+        return environment.getProperty("fdupes.fingerprint", Boolean.class, false);
+    }
+
+    public int getFingerprintWindowSize() {
+        return getByteSize("fdupes.fingerprint.window.size", "4k", DEFAULT_FINGERPRINT_WINDOW_SIZE);
+    }
+
+    public int getFingerprintSamples() {
+        return Math.max(0, environment.getProperty("fdupes.fingerprint.samples", Integer.class, 1));
+    }
+
+    public boolean doPipeline() {
+        return environment.getProperty("fdupes.pipeline", Boolean.class, false);
+    }
+
+    public int getPipelineQueueSize() {
+        return Math.max(1, environment.getProperty("fdupes.pipeline.queue.size", Integer.class, 1024));
+    }
+
+    public String getCacheFile() {
+        return environment.getProperty("fdupes.cache.file", String.class, "");
+    }
+
+    public String getSnapshotFile() {
+        return environment.getProperty("fdupes.snapshot.file", String.class, "");
+    }
+
+    public boolean doEvictCache() {
+        return environment.getProperty("fdupes.cache.evict", Boolean.class, true);
+    }
+
+    public boolean doBinaryReport() {
+        return environment.getProperty("fdupes.report.binary", Boolean.class, false);
+    }
+
+    public long getReportFlushInterval() {
+        final String property = environment.getProperty("fdupes.report.flush.interval", String.class, "1s");
+
+        try {
+            return Math.max(0L, JavaUtils.timeStringAsMs(property));
+        } catch (final NumberFormatException ignored) {
+            LOGGER.error("Unrecognized [fdupes.report.flush.interval] time format [{}] fallback to [1s]", property);
+
+            return 1000L;
+        }
+    }
+
+    public long getGroupingMemory() {
+        final String property = environment.getProperty("fdupes.grouping.memory", String.class, "0");
+
+        try {
+            return Math.max(0L, JavaUtils.byteStringAsBytes(property));
+        } catch (final NumberFormatException ignored) {
+            LOGGER.error("Unrecognized [fdupes.grouping.memory] size format [{}] fallback to [0] (unlimited)", property);
+
+            return 0L;
+        }
+    }
+
+    public String getGroupingDirectory() {
+        return environment.getProperty("fdupes.grouping.directory", String.class, System.getProperty("java.io.tmpdir"));
+    }
+
+    public int getWorkers() {
+        return Math.max(0, environment.getProperty("fdupes.workers", Integer.class, 0));
+    }
+
+    public List<PathMatcher> getIncludes() {
+        return getPathMatchers("fdupes.include");
+    }
+
+    public List<PathMatcher> getExcludes() {
+        return getPathMatchers("fdupes.exclude");
+    }
+
+    public List<String> getIncludePatterns() {
+        return splitPatterns(environment.getProperty("fdupes.include", String.class, ""));
+    }
+
+    public List<String> getExcludePatterns() {
+        return splitPatterns(environment.getProperty("fdupes.exclude", String.class, ""));
+    }
+
+    public long getProgressInterval() {
+        final String property = environment.getProperty("fdupes.progress.interval", String.class, "10s");
+
+        try {
+            return Math.max(0L, JavaUtils.timeStringAsMs(property));
+        } catch (final NumberFormatException ignored) {
+            LOGGER.error("Unrecognized [fdupes.progress.interval] time format [{}] fallback to [10s]", property);
+
+            return 10000L;
+        }
+    }
+
+    public boolean doDaemon() {
+        return environment.getProperty("fdupes.daemon", Boolean.class, false);
+    }
+
+    public long getDaemonDebounce() {
+        final String property = environment.getProperty("fdupes.daemon.debounce", String.class, "500ms");
+
+        try {
+            return Math.max(0L, JavaUtils.timeStringAsMs(property));
+        } catch (final NumberFormatException ignored) {
+            LOGGER.error("Unrecognized [fdupes.daemon.debounce] time format [{}] fallback to [500ms]", property);
+
+            return 500L;
+        }
+    }
+
+    private List<PathMatcher> getPathMatchers(final String key) {
+        final List<PathMatcher> matchers = new ArrayList<>();
+
+        for (final String pattern : splitPatterns(environment.getProperty(key, String.class, ""))) {
+            final String syntaxAndPattern = pattern.startsWith("glob:") || pattern.startsWith("regex:") ? pattern : "glob:" + pattern;
+
+            try {
+                matchers.add(FileSystems.getDefault().getPathMatcher(syntaxAndPattern));
+            } catch (final IllegalArgumentException e) {
+                LOGGER.error("Unrecognized [{}] pattern [{}] ignored ([{}])", key, pattern, e.getMessage());
+            }
+        }
+
+        return matchers;
+    }
+
+    // commas inside braces belong to glob alternatives or regex quantifiers
+    private static List<String> splitPatterns(final String property) {
+        final List<String> patterns = new ArrayList<>();
+
+        int depth = 0;
+        int start = 0;
+        for (int i = 0; i <= property.length(); i++) {
+            final char c = i < property.length() ? property.charAt(i) : ',';
+
+            if (c == '{') {
+                depth++;
+            } else if (c == '}') {
+                depth = Math.max(0, depth - 1);
+            } else if (c == ',' && (depth == 0 || i == property.length())) {
+                final String pattern = property.substring(start, i).trim();
+                if (!pattern.isEmpty()) {
+                    patterns.add(pattern);
+                }
+
+                start = i + 1;
+            }
+        }
+
+        return patterns;
+    }
+
+    private int getByteSize(final String key, final String defaultValue, final int fallback) {
+        final String property = environment.getProperty(key, String.class, defaultValue);
+
+        try {
+            return Math.toIntExact(JavaUtils.byteStringAsBytes(property));
+        } catch (final NumberFormatException | ArithmeticException ignored) {
+            LOGGER.error("Unrecognized [{}] size format [{}] fallback to [{}] bytes", key, property, fallback);
+
+            return fallback;
+        }
+    }
+
 }
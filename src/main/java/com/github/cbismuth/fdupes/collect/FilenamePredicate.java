@@ -24,16 +24,25 @@
 
 package com.github.cbismuth.fdupes.collect;
 
+import com.github.cbismuth.fdupes.cli.SystemPropertyGetter;
 import com.google.common.base.Preconditions;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.Collection;
-import java.util.Locale;
+import java.util.List;
+import java.util.Optional;
 
 import static com.google.common.collect.Lists.newArrayList;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Collections.unmodifiableCollection;
 
 @Component
@@ -59,37 +68,89 @@ public final class FilenamePredicate implements DirectoryStream.Filter<Path> {
         "#recycle"
     ));
 
+    private static final StopWordMatcher STOP_WORD_MATCHER = new StopWordMatcher(FILENAME_STOP_WORDS);
+
+    private final List<PathMatcher> includes;
+    private final List<PathMatcher> excludes;
+    private final long configurationHash;
+
+    public FilenamePredicate(final SystemPropertyGetter systemPropertyGetter) {
+        includes = systemPropertyGetter.getIncludes();
+        excludes = systemPropertyGetter.getExcludes();
+
+        final Hasher hasher = Hashing.murmur3_128().newHasher();
+        putAll(hasher, systemPropertyGetter.getIncludePatterns());
+        putAll(hasher, systemPropertyGetter.getExcludePatterns());
+        putAll(hasher, FILENAME_STOP_WORDS);
+        configurationHash = hasher.hash().asLong();
+    }
+
+    // tells walks run with other rules apart, e.g. to discard their snapshot
+    public long getConfigurationHash() {
+        return configurationHash;
+    }
+
     @Override
     public boolean accept(final Path path) {
+        try {
+            return readIfAccepted(path).isPresent();
+        } catch (final IOException ignored) {
+            return false;
+        }
+    }
+
+    // attributes are read once without following links, accepted paths are never links anyway
+    public Optional<BasicFileAttributes> readIfAccepted(final Path path) throws IOException {
         Preconditions.checkNotNull(path, "null path");
 
-        final boolean isAllowedDirectory = Files.isDirectory(path)
-                                           && Files.isReadable(path)
-                                           && !Files.isSymbolicLink(path)
-                                           && !isHiddenFile(path.toString())
-                                           && !containsForbiddenSubstring(path, FILENAME_STOP_WORDS);
+        if (!acceptName(path)) {
+            return Optional.empty();
+        }
 
-        final boolean isAllowedFile = !Files.isDirectory(path)
-                                      && Files.isReadable(path)
-                                      && !Files.isSymbolicLink(path)
-                                      && !isHiddenFile(path.toString())
-                                      && !containsForbiddenSubstring(path, FILENAME_STOP_WORDS);
+        final BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
 
-        return isAllowedDirectory || isAllowedFile;
+        return acceptAttributes(path, attributes) ? Optional.of(attributes) : Optional.empty();
     }
 
-    private boolean isHiddenFile(final String name) {
-        return name.startsWith(".");
+    public boolean accept(final Path path, final BasicFileAttributes attributes) {
+        Preconditions.checkNotNull(path, "null path");
+
+        return acceptName(path) && acceptAttributes(path, attributes);
+    }
+
+    private boolean acceptName(final Path path) {
+        final Path fileName = path.getFileName() != null ? path.getFileName() : path;
+        final String name = fileName.toString();
+
+        return !isHiddenFile(name)
+               && !STOP_WORD_MATCHER.matches(name)
+               && !matchesAny(excludes, fileName);
+    }
+
+    private boolean acceptAttributes(final Path path, final BasicFileAttributes attributes) {
+        final Path fileName = path.getFileName() != null ? path.getFileName() : path;
+
+        // include rules select files, directories are still walked through
+        return !attributes.isSymbolicLink()
+               && (includes.isEmpty() || attributes.isDirectory() || matchesAny(includes, fileName))
+               && Files.isReadable(path);
     }
 
-    private boolean containsForbiddenSubstring(final Path path, final Collection<String> exclusionList) {
-        for (final String s : exclusionList) {
-            final Locale locale = Locale.getDefault();
+    private static void putAll(final Hasher hasher, final Collection<String> values) {
+        hasher.putInt(values.size());
+
+        for (final String value : values) {
+            hasher.putInt(value.length()).putString(value, UTF_8);
+        }
+    }
 
-            final String actual = path.toString().toLowerCase(locale);
-            final String forbidden = s.toLowerCase(locale);
+    private static boolean isHiddenFile(final String name) {
+        return name.startsWith(".");
+    }
 
-            if (actual.contains(forbidden)) {
+    private static boolean matchesAny(final List<PathMatcher> matchers, final Path fileName) {
+        for (final PathMatcher matcher : matchers) {
+            if (matcher.matches(fileName)) {
                 return true;
             }
         }
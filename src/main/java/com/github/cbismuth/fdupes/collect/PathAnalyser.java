@@ -32,8 +32,9 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Optional;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static java.util.Locale.getDefault;
 import static org.slf4j.LoggerFactory.getLogger;
@@ -43,72 +44,127 @@ public class PathAnalyser {
 
     private static final Logger LOGGER = getLogger(PathAnalyser.class);
 
-    private static final Pattern PATTERN_1 = Pattern.compile("^([0-9]{4})([0-9]{2})([0-9]{2})([0-9]{2})([0-9]{2})([0-9]{2}).*\\.([^\\.]+)$");
-    private static final Pattern PATTERN_2 = Pattern.compile("^.*\\D([0-9]{4})([0-9]{2})([0-9]{2})([0-9]{2})([0-9]{2})([0-9]{2}).*\\.([^\\.]+)$");
+    private static final int TIMESTAMP_LENGTH = 14;
 
     public Optional<Path> getTimestampPath(final Path destination, final Path path) {
-        final Optional<Path> result;
+        final Timestamp timestamp = parse(path);
 
-        final String name = FilenameUtils.getName(path.toString());
+        if (timestamp == null) {
+            return Optional.empty();
+        }
+
+        Path newPath = timestamp.resolve(destination, 0);
+
+        int i = 1;
+        while (Files.exists(newPath)) {
+            newPath = timestamp.resolve(destination, i++);
+        }
+
+        return Optional.of(newPath);
+    }
+
+    public Planner newPlanner(final Path destination) {
+        return new Planner(destination);
+    }
+
+    private static Timestamp parse(final Path path) {
+        final Timestamp timestamp = parse(FilenameUtils.getName(path.toString()));
+
+        if (timestamp == null) {
+            LOGGER.warn("File [{}] doesn't match pattern", path);
+        }
+
+        return timestamp;
+    }
+
+    // 14 leading digits, or else the rightmost 14 digits after a non-digit, both before a non-empty extension
+    static Timestamp parse(final String name) {
+        final int lastDot = name.lastIndexOf('.');
+
+        if (lastDot < TIMESTAMP_LENGTH || lastDot == name.length() - 1) {
+            return null;
+        }
 
-        final Matcher matcher_1 = PATTERN_1.matcher(name);
-        if (matcher_1.matches()) {
-            result = Optional.of(onMatch(destination, matcher_1));
-        } else {
-            final Matcher matcher_2 = PATTERN_2.matcher(name);
-            if (matcher_2.matches()) {
-                result = Optional.of(onMatch(destination, matcher_2));
+        if (getDigitCount(name, 0) >= TIMESTAMP_LENGTH) {
+            return new Timestamp(name, 0, lastDot);
+        }
+
+        int digitCount = 0;
+        for (int i = lastDot - 1; i >= 0; i--) {
+            if (isDigit(name.charAt(i))) {
+                digitCount++;
+            } else if (digitCount >= TIMESTAMP_LENGTH) {
+                return new Timestamp(name, i + 1, lastDot);
             } else {
-                LOGGER.warn("File [{}] doesn't match pattern", path);
+                digitCount = 0;
+            }
+        }
+
+        return null;
+    }
 
-                result = Optional.empty();
+    private static int getDigitCount(final String name, final int start) {
+        int i = start;
+        while (i < start + TIMESTAMP_LENGTH && i < name.length() && isDigit(name.charAt(i))) {
+            i++;
+        }
+
+        return i - start;
+    }
+
+    private static boolean isDigit(final char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    static final class Timestamp {
+
+        private final String digits;
+        private final String extension;
+
+        private Timestamp(final String name, final int start, final int lastDot) {
+            digits = name.substring(start, start + TIMESTAMP_LENGTH);
+            extension = name.substring(lastDot + 1).toUpperCase(getDefault());
+        }
+
+        String getName(final int index) {
+            final StringBuilder builder = new StringBuilder(TIMESTAMP_LENGTH + extension.length() + 12).append(digits);
+
+            if (index > 0) {
+                builder.append('-').append(index);
             }
+
+            return builder.append('.').append(extension).toString();
+        }
+
+        private Path resolve(final Path destination, final int index) {
+            return Paths.get(destination.toString(), digits.substring(0, 4), digits.substring(4, 6), getName(index));
         }
 
-        return result;
     }
 
-    private Path onMatch(final Path destination, final Matcher matcher) {
-        final String year = matcher.group(1);
-        final String month = matcher.group(2);
-        final String day = matcher.group(3);
-        final String hour = matcher.group(4);
-        final String minute = matcher.group(5);
-        final String second = matcher.group(6);
-        final String extension = matcher.group(7);
-
-        Path newPath = Paths.get(destination.toString(),
-                                 year, month,
-                                 new StringBuilder().append(year)
-                                                    .append(month)
-                                                    .append(day)
-                                                    .append(hour)
-                                                    .append(minute)
-                                                    .append(second)
-                                                    .append('.')
-                                                    .append(extension)
-                                                    .toString()
-                                                    .toUpperCase(getDefault()));
+    // names are handed out in memory, for a destination only written through this planner
+    public static final class Planner {
 
-        int i = 1;
-        while (Files.exists(newPath)) {
-            newPath = Paths.get(destination.toString(),
-                                year, month,
-                                new StringBuilder().append(year)
-                                                   .append(month)
-                                                   .append(day)
-                                                   .append(hour)
-                                                   .append(minute)
-                                                   .append(second)
-                                                   .append('-')
-                                                   .append(i++)
-                                                   .append('.')
-                                                   .append(extension)
-                                                   .toString()
-                                                   .toUpperCase(getDefault()));
+        private final Path destination;
+        private final ConcurrentMap<String, AtomicInteger> collisions = new ConcurrentHashMap<>();
+
+        private Planner(final Path destination) {
+            this.destination = destination;
+        }
+
+        public Optional<Path> getTimestampPath(final Path path) {
+            final Timestamp timestamp = parse(path);
+
+            if (timestamp == null) {
+                return Optional.empty();
+            }
+
+            final int index = collisions.computeIfAbsent(timestamp.getName(0), name -> new AtomicInteger())
+                                        .getAndIncrement();
+
+            return Optional.of(timestamp.resolve(destination, index));
         }
 
-        return newPath;
     }
 
 }
@@ -0,0 +1,159 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Christophe Bismuth
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.github.cbismuth.fdupes.collect;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.TreeSet;
+
+// Aho-Corasick automaton, every stop word is found in a single case-insensitive pass
+final class StopWordMatcher {
+
+    private static final int ASCII = 128;
+
+    private final int[] asciiSymbols = new int[ASCII];
+    private final char[] otherSymbols;
+    private final int firstOtherSymbol;
+    private final int[][] transitions;
+    private final boolean[] accepting;
+
+    StopWordMatcher(final Collection<String> words) {
+        final TreeSet<Character> alphabet = new TreeSet<>();
+        for (final String word : words) {
+            for (int i = 0; i < word.length(); i++) {
+                alphabet.add(Character.toLowerCase(word.charAt(i)));
+            }
+        }
+
+        // symbol 0 stands for every character absent from the stop words
+        final StringBuilder others = new StringBuilder();
+        int symbol = 1;
+        for (final char c : alphabet) {
+            if (c < ASCII) {
+                asciiSymbols[c] = symbol++;
+            } else {
+                others.append(c);
+            }
+        }
+        otherSymbols = others.toString().toCharArray();
+        firstOtherSymbol = symbol;
+
+        final int symbolCount = symbol + otherSymbols.length;
+
+        // trie of the stop words, missing edges are -1
+        final List<int[]> trie = new ArrayList<>();
+        final List<Boolean> ends = new ArrayList<>();
+        trie.add(newState(symbolCount));
+        ends.add(false);
+
+        for (final String word : words) {
+            int state = 0;
+            for (int i = 0; i < word.length(); i++) {
+                final int s = getSymbol(Character.toLowerCase(word.charAt(i)));
+
+                if (trie.get(state)[s] < 0) {
+                    trie.get(state)[s] = trie.size();
+                    trie.add(newState(symbolCount));
+                    ends.add(false);
+                }
+
+                state = trie.get(state)[s];
+            }
+            ends.set(state, true);
+        }
+
+        transitions = trie.toArray(new int[trie.size()][]);
+        accepting = new boolean[transitions.length];
+        for (int state = 0; state < accepting.length; state++) {
+            accepting[state] = ends.get(state);
+        }
+
+        // breadth-first, failure links turn missing edges into transitions of the longest matching suffix
+        final int[] failures = new int[transitions.length];
+        final Queue<Integer> queue = new ArrayDeque<>();
+
+        for (int s = 0; s < symbolCount; s++) {
+            if (transitions[0][s] < 0) {
+                transitions[0][s] = 0;
+            } else {
+                failures[transitions[0][s]] = 0;
+                queue.add(transitions[0][s]);
+            }
+        }
+
+        while (!queue.isEmpty()) {
+            final int state = queue.poll();
+
+            accepting[state] |= accepting[failures[state]];
+
+            for (int s = 0; s < symbolCount; s++) {
+                final int next = transitions[state][s];
+
+                if (next < 0) {
+                    transitions[state][s] = transitions[failures[state]][s];
+                } else {
+                    failures[next] = transitions[failures[state]][s];
+                    queue.add(next);
+                }
+            }
+        }
+    }
+
+    boolean matches(final CharSequence text) {
+        int state = 0;
+
+        for (int i = 0; i < text.length(); i++) {
+            state = transitions[state][getSymbol(Character.toLowerCase(text.charAt(i)))];
+
+            if (accepting[state]) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private int getSymbol(final char c) {
+        if (c < ASCII) {
+            return asciiSymbols[c];
+        }
+
+        final int index = Arrays.binarySearch(otherSymbols, c);
+
+        return index < 0 ? 0 : firstOtherSymbol + index;
+    }
+
+    private static int[] newState(final int symbolCount) {
+        final int[] state = new int[symbolCount];
+        Arrays.fill(state, -1);
+
+        return state;
+    }
+
+}
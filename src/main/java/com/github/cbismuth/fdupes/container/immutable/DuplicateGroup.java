@@ -0,0 +1,67 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Christophe Bismuth
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.github.cbismuth.fdupes.container.immutable;
+
+import com.google.common.base.Preconditions;
+
+import java.util.List;
+
+import static java.util.Collections.unmodifiableList;
+
+public class DuplicateGroup {
+
+    private final List<PathElement> members;
+    private final String digest;
+
+    public DuplicateGroup(final List<PathElement> members,
+                          final String digest) {
+        Preconditions.checkArgument(members.size() > 1, "a duplicate group needs at least two members");
+        Preconditions.checkNotNull(digest, "null digest");
+
+        this.members = unmodifiableList(members);
+        this.digest = digest;
+    }
+
+    public PathElement getOriginal() {
+        return members.get(0);
+    }
+
+    public List<PathElement> getDuplicates() {
+        return members.subList(1, members.size());
+    }
+
+    public List<PathElement> getMembers() {
+        return members;
+    }
+
+    public long getFileSize() {
+        return getOriginal().size();
+    }
+
+    public String getDigest() {
+        return digest;
+    }
+
+}
@@ -24,38 +24,67 @@
 
 package com.github.cbismuth.fdupes.container.immutable;
 
+import com.github.cbismuth.fdupes.container.mutable.FileCatalog;
+
 import java.nio.file.Path;
-import java.nio.file.attribute.BasicFileAttributes;
+import java.util.OptionalLong;
 
 public class PathElement {
 
-    private final Path path;
-    private final BasicFileAttributes attributes;
+    private final FileCatalog catalog;
+    private final int index;
 
-    public PathElement(final Path path,
-                       final BasicFileAttributes attributes) {
-        this.path = path;
-        this.attributes = attributes;
+    public PathElement(final FileCatalog catalog,
+                       final int index) {
+        this.catalog = catalog;
+        this.index = index;
     }
 
     public Path getPath() {
-        return path;
+        return catalog.getPath(index);
     }
 
     public long size() {
-        return attributes.size();
+        return catalog.getSize(index);
     }
 
     public long creationTime() {
-        return attributes.creationTime().toMillis();
+        return catalog.getCreationTime(index);
     }
 
     public long lastModifiedTime() {
-        return attributes.lastModifiedTime().toMillis();
+        return catalog.getLastModifiedTime(index);
     }
 
     public long lastAccessTime() {
-        return attributes.lastAccessTime().toMillis();
+        return catalog.getLastAccessTime(index);
+    }
+
+    public Object fileKey() {
+        return catalog.getFileKey(index);
+    }
+
+    public OptionalLong device() {
+        return catalog.getDevice(index);
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        final PathElement other = (PathElement) o;
+
+        return catalog == other.catalog && index == other.index;
+    }
+
+    @Override
+    public int hashCode() {
+        return System.identityHashCode(catalog) * 31 + index;
     }
 
 }
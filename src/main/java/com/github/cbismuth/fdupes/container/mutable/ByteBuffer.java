@@ -26,15 +26,12 @@ package com.github.cbismuth.fdupes.container.mutable;
 
 import com.github.cbismuth.fdupes.container.immutable.PathElement;
 import com.google.common.base.Throwables;
-import com.google.common.primitives.UnsignedBytes;
 import org.slf4j.Logger;
 
-import java.io.BufferedInputStream;
-import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.util.Arrays;
+import java.nio.channels.FileChannel;
 
+import static java.nio.file.StandardOpenOption.READ;
 import static org.slf4j.LoggerFactory.getLogger;
 
 public class ByteBuffer {
@@ -42,41 +39,64 @@ public class ByteBuffer {
     private static final Logger LOGGER = getLogger(ByteBuffer.class);
 
     private final PathElement pathElement;
-    private final BufferedInputStream inputStream;
+    private final FileChannel channel;
 
-    private int offset = 0;
-    private int length = 0;
     private final byte[] buffer;
+    private final java.nio.ByteBuffer view;
+
+    private int length = 0;
+    private int hash = 0;
 
     public ByteBuffer(final PathElement pathElement, final int bufferSize) {
         this.pathElement = pathElement;
 
         try {
-            inputStream = new BufferedInputStream(new FileInputStream(new File(this.pathElement.getPath().toString())));
+            channel = FileChannel.open(pathElement.getPath(), READ);
         } catch (final Exception e) {
             throw Throwables.propagate(e);
         }
 
         buffer = new byte[bufferSize];
+        view = java.nio.ByteBuffer.wrap(buffer);
     }
 
     public PathElement getPathElement() {
         return pathElement;
     }
 
-    public String getByteString() {
-        if (length > 0 && length < buffer.length) {
-            return UnsignedBytes.join(":", Arrays.copyOf(buffer, length));
-        } else {
-            return "";
+    public int getLength() {
+        return length;
+    }
+
+    public int getChunkHash() {
+        return hash;
+    }
+
+    public boolean isChunkEqual(final ByteBuffer other) {
+        if (length != other.length || hash != other.hash) {
+            return false;
+        }
+
+        for (int i = 0; i < length; i++) {
+            if (buffer[i] != other.buffer[i]) {
+                return false;
+            }
         }
+
+        return true;
     }
 
     public void read() {
         try {
-            if (offset < buffer.length && (length = inputStream.read(buffer, offset, buffer.length - offset)) >= 0) {
-                offset += length;
+            view.clear();
+
+            int read = 0;
+            while (read >= 0 && view.hasRemaining()) {
+                read = channel.read(view);
             }
+
+            length = view.position();
+            hash = computeHash();
         } catch (final IOException e) {
             throw Throwables.propagate(e);
         }
@@ -84,7 +104,7 @@ public class ByteBuffer {
 
     public ByteBuffer close() {
         try {
-            inputStream.close();
+            channel.close();
         } catch (final IOException e) {
             LOGGER.error(e.getMessage(), e);
         }
@@ -92,4 +112,14 @@ public class ByteBuffer {
         return this;
     }
 
+    private int computeHash() {
+        int result = 1;
+
+        for (int i = 0; i < length; i++) {
+            result = 31 * result + buffer[i];
+        }
+
+        return result;
+    }
+
 }
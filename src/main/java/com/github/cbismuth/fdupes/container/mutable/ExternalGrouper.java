@@ -0,0 +1,280 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Christophe Bismuth
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.github.cbismuth.fdupes.container.mutable;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+public final class ExternalGrouper implements Closeable {
+
+    // rough heap footprint of a buffered record, key characters aside
+    private static final long RECORD_OVERHEAD = 64L;
+    private static final int MAX_FAN_IN = 64;
+    private static final int STREAM_BUFFER_SIZE = 8192;
+
+    private static final Comparator<Record> RECORD_COMPARATOR = Comparator.comparing((Record record) -> record.key)
+                                                                          .thenComparingInt(record -> record.id);
+
+    private final Path directory;
+    private final long memoryBudget;
+
+    private final List<Path> runs = new ArrayList<>();
+    private final List<Path> createdFiles = new ArrayList<>();
+    private List<Record> buffer = new ArrayList<>();
+    private long bufferedBytes = 0L;
+
+    public ExternalGrouper(final Path directory, final long memoryBudget) {
+        Preconditions.checkNotNull(directory, "null spill directory");
+        Preconditions.checkArgument(memoryBudget > 0L, "non-positive memory budget");
+
+        this.directory = directory;
+        this.memoryBudget = memoryBudget;
+    }
+
+    public void add(final String key, final int id) throws IOException {
+        Preconditions.checkNotNull(key, "null key");
+
+        buffer.add(new Record(key, id));
+        bufferedBytes += RECORD_OVERHEAD + 2L * key.length();
+
+        if (bufferedBytes >= memoryBudget) {
+            spill();
+        }
+    }
+
+    public int getRunCount() {
+        return createdFiles.size();
+    }
+
+    // ids sharing a key are handed over together, singletons included
+    public void forEachGroup(final Consumer<int[]> groupConsumer) throws IOException {
+        Preconditions.checkNotNull(groupConsumer, "null group consumer");
+
+        if (runs.isEmpty()) {
+            buffer.sort(RECORD_COMPARATOR);
+
+            group(buffer.iterator(), groupConsumer);
+        } else {
+            if (!buffer.isEmpty()) {
+                spill();
+            }
+
+            while (runs.size() > MAX_FAN_IN) {
+                final List<Path> batch = new ArrayList<>(runs.subList(0, MAX_FAN_IN));
+                runs.subList(0, MAX_FAN_IN).clear();
+
+                runs.add(merge(batch));
+            }
+
+            final List<RunReader> readers = new ArrayList<>(runs.size());
+            try {
+                for (final Path run : runs) {
+                    readers.add(new RunReader(run));
+                }
+
+                group(new MergeIterator(readers), groupConsumer);
+            } finally {
+                for (final RunReader reader : readers) {
+                    reader.close();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (final Path file : createdFiles) {
+            Files.deleteIfExists(file);
+        }
+
+        createdFiles.clear();
+        runs.clear();
+        buffer = new ArrayList<>();
+    }
+
+    private void spill() throws IOException {
+        buffer.sort(RECORD_COMPARATOR);
+
+        runs.add(write(buffer.iterator()));
+
+        buffer = new ArrayList<>();
+        bufferedBytes = 0L;
+    }
+
+    private Path merge(final List<Path> batch) throws IOException {
+        final List<RunReader> readers = new ArrayList<>(batch.size());
+        try {
+            for (final Path run : batch) {
+                readers.add(new RunReader(run));
+            }
+
+            return write(new MergeIterator(readers));
+        } finally {
+            for (final RunReader reader : readers) {
+                reader.close();
+            }
+
+            for (final Path run : batch) {
+                Files.deleteIfExists(run);
+            }
+        }
+    }
+
+    private Path write(final Iterator<Record> records) throws IOException {
+        final Path run = Files.createTempFile(directory, "fdupes-run-", ".bin");
+        createdFiles.add(run);
+
+        try (final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), STREAM_BUFFER_SIZE))) {
+            while (records.hasNext()) {
+                final Record record = records.next();
+
+                output.writeBoolean(true);
+                output.writeUTF(record.key);
+                output.writeInt(record.id);
+            }
+
+            output.writeBoolean(false);
+        }
+
+        return run;
+    }
+
+    private static void group(final Iterator<Record> records, final Consumer<int[]> groupConsumer) {
+        String key = null;
+        int[] ids = new int[16];
+        int count = 0;
+
+        while (records.hasNext()) {
+            final Record record = records.next();
+
+            if (!record.key.equals(key)) {
+                if (count > 0) {
+                    groupConsumer.accept(Arrays.copyOf(ids, count));
+                }
+
+                key = record.key;
+                count = 0;
+            }
+
+            if (count == ids.length) {
+                ids = Arrays.copyOf(ids, count * 2);
+            }
+            ids[count++] = record.id;
+        }
+
+        if (count > 0) {
+            groupConsumer.accept(Arrays.copyOf(ids, count));
+        }
+    }
+
+    private static final class Record {
+
+        private final String key;
+        private final int id;
+
+        private Record(final String key, final int id) {
+            this.key = key;
+            this.id = id;
+        }
+
+    }
+
+    private static final class RunReader implements Closeable {
+
+        private final DataInputStream input;
+        private Record current;
+
+        private RunReader(final Path run) throws IOException {
+            input = new DataInputStream(new BufferedInputStream(Files.newInputStream(run), STREAM_BUFFER_SIZE));
+
+            advance();
+        }
+
+        private void advance() throws IOException {
+            current = input.readBoolean() ? new Record(input.readUTF(), input.readInt()) : null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            input.close();
+        }
+
+    }
+
+    // k-way merge of sorted runs
+    private static final class MergeIterator implements Iterator<Record> {
+
+        private final PriorityQueue<RunReader> queue;
+
+        private MergeIterator(final List<RunReader> readers) {
+            queue = new PriorityQueue<>(Math.max(1, readers.size()), (a, b) -> RECORD_COMPARATOR.compare(a.current, b.current));
+
+            readers.stream()
+                   .filter(reader -> reader.current != null)
+                   .forEach(queue::add);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !queue.isEmpty();
+        }
+
+        @Override
+        public Record next() {
+            final RunReader reader = queue.poll();
+            final Record record = reader.current;
+
+            try {
+                reader.advance();
+            } catch (final IOException e) {
+                throw Throwables.propagate(e);
+            }
+
+            if (reader.current != null) {
+                queue.add(reader);
+            }
+
+            return record;
+        }
+
+    }
+
+}
@@ -0,0 +1,381 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Christophe Bismuth
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.github.cbismuth.fdupes.container.mutable;
+
+import com.github.cbismuth.fdupes.container.immutable.PathElement;
+import com.google.common.base.Preconditions;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+public final class FileCatalog {
+
+    private static final int MIN_GROWTH = 16;
+    private static final int AVERAGE_NAME_LENGTH = 32;
+
+    private static final int NO_DIRECTORY = -1;
+
+    private static final byte NO_FILE_KEY = 0;
+    private static final byte UNIX_FILE_KEY = 1;
+    private static final byte OPAQUE_FILE_KEY = 2;
+
+    private static final char REPLACEMENT_CHARACTER = '\uFFFD';
+
+    private final Map<Path, Integer> directoryIndexes = new HashMap<>();
+
+    private final Map<Integer, Object> opaqueFileKeys = new ConcurrentHashMap<>();
+    private final Map<Integer, Path> undecodablePaths = new ConcurrentHashMap<>();
+
+    private volatile Columns columns = new Columns(1, 1, AVERAGE_NAME_LENGTH);
+    private volatile int count = 0;
+
+    public synchronized PathElement add(final Path path, final BasicFileAttributes attributes) {
+        Preconditions.checkNotNull(path, "null path");
+        Preconditions.checkNotNull(attributes, "null file attributes");
+
+        return add(path,
+                   attributes.size(),
+                   toMillis(attributes.lastModifiedTime()),
+                   toMillis(attributes.creationTime()),
+                   toMillis(attributes.lastAccessTime()),
+                   attributes.fileKey());
+    }
+
+    // copies a row of another catalog, e.g. to leave its dead rows behind
+    public synchronized PathElement add(final PathElement pathElement) {
+        Preconditions.checkNotNull(pathElement, "null file metadata");
+
+        return add(pathElement.getPath(),
+                   pathElement.size(),
+                   pathElement.lastModifiedTime(),
+                   pathElement.creationTime(),
+                   pathElement.lastAccessTime(),
+                   pathElement.fileKey());
+    }
+
+    private PathElement add(final Path path,
+                            final long size,
+                            final long lastModifiedTime,
+                            final long creationTime,
+                            final long lastAccessTime,
+                            final Object fileKey) {
+        final String name = String.valueOf(path.getFileName());
+        final byte[] nameBytes = name.getBytes(UTF_8);
+
+        final int directory = internDirectory(path.getParent());
+        final int index = count;
+
+        final int nameStart = columns.nameOffsets[index];
+        final int nameEnd = Math.addExact(nameStart, nameBytes.length);
+        final Columns c = ensureCapacity(index + 1, directoryIndexes.size(), nameEnd);
+
+        c.parents[index] = directory;
+        System.arraycopy(nameBytes, 0, c.names, nameStart, nameBytes.length);
+        c.nameOffsets[index + 1] = nameEnd;
+
+        c.sizes[index] = size;
+        c.lastModifiedTimes[index] = lastModifiedTime;
+        c.creationTimes[index] = creationTime;
+        c.lastAccessTimes[index] = lastAccessTime;
+
+        setFileKey(c, index, fileKey);
+
+        if (name.indexOf(REPLACEMENT_CHARACTER) >= 0) {
+            undecodablePaths.put(index, path);
+        }
+
+        count = index + 1;
+
+        return new PathElement(this, index);
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public PathElement get(final int index) {
+        Preconditions.checkElementIndex(index, count);
+
+        return new PathElement(this, index);
+    }
+
+    public List<PathElement> elements() {
+        final int size = count;
+
+        return new AbstractList<PathElement>() {
+            @Override
+            public PathElement get(final int index) {
+                Preconditions.checkElementIndex(index, size);
+
+                return new PathElement(FileCatalog.this, index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    public Path getPath(final int index) {
+        if (!undecodablePaths.isEmpty()) {
+            final Path path = undecodablePaths.get(index);
+
+            if (path != null) {
+                return path;
+            }
+        }
+
+        final Columns c = columns;
+        final int start = c.nameOffsets[index];
+        final String name = new String(c.names, start, c.nameOffsets[index + 1] - start, UTF_8);
+        final int directory = c.parents[index];
+
+        return directory == NO_DIRECTORY ? Paths.get(name) : c.directories[directory].resolve(name);
+    }
+
+    public long getSize(final int index) {
+        return columns.sizes[index];
+    }
+
+    public long getLastModifiedTime(final int index) {
+        return columns.lastModifiedTimes[index];
+    }
+
+    public long getCreationTime(final int index) {
+        return columns.creationTimes[index];
+    }
+
+    public long getLastAccessTime(final int index) {
+        return columns.lastAccessTimes[index];
+    }
+
+    public Object getFileKey(final int index) {
+        final Columns c = columns;
+
+        switch (c.fileKeyKinds[index]) {
+            case UNIX_FILE_KEY:
+                return new UnixFileKey(c.devices[index], c.inodes[index]);
+            case OPAQUE_FILE_KEY:
+                return opaqueFileKeys.get(index);
+            default:
+                return null;
+        }
+    }
+
+    public OptionalLong getDevice(final int index) {
+        final Columns c = columns;
+
+        return c.fileKeyKinds[index] == UNIX_FILE_KEY ? OptionalLong.of(c.devices[index]) : OptionalLong.empty();
+    }
+
+    private int internDirectory(final Path directory) {
+        if (directory == null) {
+            return NO_DIRECTORY;
+        }
+
+        final Integer existing = directoryIndexes.get(directory);
+        if (existing != null) {
+            return existing;
+        }
+
+        final int index = directoryIndexes.size();
+        final Columns c = ensureCapacity(count, index + 1, columns.nameOffsets[count]);
+
+        c.directories[index] = directory;
+        directoryIndexes.put(directory, index);
+
+        return index;
+    }
+
+    private void setFileKey(final Columns c, final int index, final Object fileKey) {
+        if (fileKey == null) {
+            c.fileKeyKinds[index] = NO_FILE_KEY;
+        } else if (parseUnixFileKey(fileKey.toString(), c, index)) {
+            c.fileKeyKinds[index] = UNIX_FILE_KEY;
+        } else {
+            c.fileKeyKinds[index] = OPAQUE_FILE_KEY;
+            opaqueFileKeys.put(index, fileKey);
+        }
+    }
+
+    // mirrors sun.nio.fs.UnixFileKey#toString(), e.g. (dev=fe00,ino=3517)
+    private static boolean parseUnixFileKey(final String value, final Columns c, final int index) {
+        final int separator = value.indexOf(UnixFileKey.INODE_PREFIX);
+
+        if (!value.startsWith(UnixFileKey.DEVICE_PREFIX) || separator < 0 || !value.endsWith(")")) {
+            return false;
+        }
+
+        try {
+            c.devices[index] = Long.parseUnsignedLong(value.substring(UnixFileKey.DEVICE_PREFIX.length(), separator), 16);
+            c.inodes[index] = Long.parseLong(value.substring(separator + UnixFileKey.INODE_PREFIX.length(), value.length() - 1));
+
+            return true;
+        } catch (final NumberFormatException ignored) {
+            return false;
+        }
+    }
+
+    private Columns ensureCapacity(final int fileCount, final int directoryCount, final int namesLength) {
+        final Columns c = columns;
+
+        if (fileCount <= c.sizes.length && directoryCount <= c.directories.length && namesLength <= c.names.length) {
+            return c;
+        }
+
+        final Columns grown = new Columns(grow(c.sizes.length, fileCount),
+                                          grow(c.directories.length, directoryCount),
+                                          grow(c.names.length, namesLength));
+        grown.copyFrom(c, count, directoryIndexes.size());
+
+        columns = grown;
+
+        return grown;
+    }
+
+    private static int grow(final int capacity, final int required) {
+        if (required <= capacity) {
+            return capacity;
+        }
+
+        return Math.max(required, capacity + Math.min(Math.max(MIN_GROWTH, capacity >> 1), Integer.MAX_VALUE - 8 - capacity));
+    }
+
+    private static long toMillis(final FileTime fileTime) {
+        return fileTime != null ? fileTime.toMillis() : 0L;
+    }
+
+    private static final class Columns {
+
+        private final Path[] directories;
+
+        private final int[] parents;
+        private final int[] nameOffsets;
+        private final byte[] names;
+
+        private final long[] sizes;
+        private final long[] lastModifiedTimes;
+        private final long[] creationTimes;
+        private final long[] lastAccessTimes;
+
+        private final byte[] fileKeyKinds;
+        private final long[] devices;
+        private final long[] inodes;
+
+        private Columns(final int fileCapacity, final int directoryCapacity, final int namesCapacity) {
+            directories = new Path[directoryCapacity];
+
+            parents = new int[fileCapacity];
+            nameOffsets = new int[fileCapacity + 1];
+            names = new byte[namesCapacity];
+
+            sizes = new long[fileCapacity];
+            lastModifiedTimes = new long[fileCapacity];
+            creationTimes = new long[fileCapacity];
+            lastAccessTimes = new long[fileCapacity];
+
+            fileKeyKinds = new byte[fileCapacity];
+            devices = new long[fileCapacity];
+            inodes = new long[fileCapacity];
+        }
+
+        private void copyFrom(final Columns other, final int fileCount, final int directoryCount) {
+            System.arraycopy(other.directories, 0, directories, 0, directoryCount);
+
+            System.arraycopy(other.parents, 0, parents, 0, fileCount);
+            System.arraycopy(other.nameOffsets, 0, nameOffsets, 0, fileCount + 1);
+            System.arraycopy(other.names, 0, names, 0, other.nameOffsets[fileCount]);
+
+            System.arraycopy(other.sizes, 0, sizes, 0, fileCount);
+            System.arraycopy(other.lastModifiedTimes, 0, lastModifiedTimes, 0, fileCount);
+            System.arraycopy(other.creationTimes, 0, creationTimes, 0, fileCount);
+            System.arraycopy(other.lastAccessTimes, 0, lastAccessTimes, 0, fileCount);
+
+            System.arraycopy(other.fileKeyKinds, 0, fileKeyKinds, 0, fileCount);
+            System.arraycopy(other.devices, 0, devices, 0, fileCount);
+            System.arraycopy(other.inodes, 0, inodes, 0, fileCount);
+        }
+
+    }
+
+    private static final class UnixFileKey implements Comparable<UnixFileKey> {
+
+        private static final String DEVICE_PREFIX = "(dev=";
+        private static final String INODE_PREFIX = ",ino=";
+
+        private final long device;
+        private final long inode;
+
+        private UnixFileKey(final long device, final long inode) {
+            this.device = device;
+            this.inode = inode;
+        }
+
+        @Override
+        public int compareTo(final UnixFileKey other) {
+            final int byDevice = Long.compare(device, other.device);
+
+            return byDevice != 0 ? byDevice : Long.compare(inode, other.inode);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+
+            final UnixFileKey other = (UnixFileKey) o;
+
+            return device == other.device && inode == other.inode;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(device) * 31 + Long.hashCode(inode);
+        }
+
+        @Override
+        public String toString() {
+            return DEVICE_PREFIX + Long.toHexString(device) + INODE_PREFIX + inode + ")";
+        }
+
+    }
+
+}
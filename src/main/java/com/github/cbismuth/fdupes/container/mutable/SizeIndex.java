@@ -0,0 +1,159 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Christophe Bismuth
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.github.cbismuth.fdupes.container.mutable;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Arrays;
+
+public final class SizeIndex {
+
+    private static final int EMPTY = -1;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final int[] groupOfElement;
+
+    private long[] tableKeys;
+    private int[] tableGroups;
+    private int mask;
+
+    private long[] groupKeys;
+    private int[] groupSizes;
+    private int groupCount = 0;
+
+    private final int[] groupStarts;
+    private final int[] members;
+
+    public SizeIndex(final long[] sizes) {
+        Preconditions.checkNotNull(sizes, "null sizes");
+
+        groupOfElement = new int[sizes.length];
+
+        tableKeys = new long[INITIAL_CAPACITY];
+        tableGroups = new int[INITIAL_CAPACITY];
+        Arrays.fill(tableGroups, EMPTY);
+        mask = INITIAL_CAPACITY - 1;
+
+        groupKeys = new long[INITIAL_CAPACITY];
+        groupSizes = new int[INITIAL_CAPACITY];
+
+        for (int i = 0; i < sizes.length; i++) {
+            final int group = findOrInsert(sizes[i]);
+
+            groupOfElement[i] = group;
+            groupSizes[group]++;
+        }
+
+        tableKeys = null;
+        tableGroups = null;
+
+        groupStarts = new int[groupCount + 1];
+        for (int group = 0; group < groupCount; group++) {
+            groupStarts[group + 1] = groupStarts[group] + groupSizes[group];
+        }
+
+        final int[] cursors = Arrays.copyOf(groupStarts, groupCount);
+        members = new int[sizes.length];
+        for (int i = 0; i < sizes.length; i++) {
+            members[cursors[groupOfElement[i]]++] = i;
+        }
+    }
+
+    public int getGroupCount() {
+        return groupCount;
+    }
+
+    public long getGroupKey(final int group) {
+        return groupKeys[group];
+    }
+
+    public int getGroupSize(final int group) {
+        return groupSizes[group];
+    }
+
+    public int getGroupOf(final int element) {
+        return groupOfElement[element];
+    }
+
+    public int getMember(final int group, final int index) {
+        return members[groupStarts[group] + index];
+    }
+
+    private int findOrInsert(final long key) {
+        int position = hash(key) & mask;
+
+        while (tableGroups[position] != EMPTY) {
+            if (tableKeys[position] == key) {
+                return tableGroups[position];
+            }
+
+            position = (position + 1) & mask;
+        }
+
+        if (groupCount == groupKeys.length) {
+            groupKeys = Arrays.copyOf(groupKeys, groupCount * 2);
+            groupSizes = Arrays.copyOf(groupSizes, groupCount * 2);
+        }
+
+        final int group = groupCount++;
+        groupKeys[group] = key;
+
+        tableKeys[position] = key;
+        tableGroups[position] = group;
+
+        if (groupCount > (tableGroups.length >> 1) + (tableGroups.length >> 2)) {
+            rehash();
+        }
+
+        return group;
+    }
+
+    private void rehash() {
+        final int capacity = tableGroups.length * 2;
+
+        tableKeys = new long[capacity];
+        tableGroups = new int[capacity];
+        Arrays.fill(tableGroups, EMPTY);
+        mask = capacity - 1;
+
+        for (int group = 0; group < groupCount; group++) {
+            int position = hash(groupKeys[group]) & mask;
+
+            while (tableGroups[position] != EMPTY) {
+                position = (position + 1) & mask;
+            }
+
+            tableKeys[position] = groupKeys[group];
+            tableGroups[position] = group;
+        }
+    }
+
+    private static int hash(final long key) {
+        final int h = (int) (key ^ (key >>> 32)) * 0x9E3779B9;
+
+        return h ^ (h >>> 16);
+    }
+
+}
@@ -0,0 +1,259 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Christophe Bismuth
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.github.cbismuth.fdupes.daemon;
+
+import com.github.cbismuth.fdupes.container.immutable.DuplicateGroup;
+import com.github.cbismuth.fdupes.container.immutable.PathElement;
+import com.github.cbismuth.fdupes.container.mutable.FileCatalog;
+import com.github.cbismuth.fdupes.stream.DuplicatesFinder;
+import com.google.common.base.Preconditions;
+import org.slf4j.Logger;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static com.github.cbismuth.fdupes.metrics.MetricRegistrySingleton.getMetricRegistry;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
+import static java.util.stream.Collectors.toList;
+import static org.slf4j.LoggerFactory.getLogger;
+
+@Component
+public class DuplicateIndex {
+
+    private static final Logger LOGGER = getLogger(DuplicateIndex.class);
+
+    private static final int MIN_DEAD_ROWS = 4096;
+
+    private final DuplicatesFinder duplicatesFinder;
+
+    // files seen after the first scan share one catalog, rows of replaced or removed files are left behind by refresh()
+    private FileCatalog catalog = new FileCatalog();
+    private Set<PathElement> catalogedFiles = new HashSet<>();
+
+    private final Map<Path, PathElement> files = new HashMap<>();
+    private final Map<Long, Map<Path, PathElement>> filesBySize = new HashMap<>();
+    private final Map<Long, List<DuplicateGroup>> groupsBySize = new HashMap<>();
+    private final Set<Long> dirtySizes = new HashSet<>();
+
+    public DuplicateIndex(final DuplicatesFinder duplicatesFinder) {
+        this.duplicatesFinder = duplicatesFinder;
+    }
+
+    public synchronized void add(final DuplicateGroup group) {
+        Preconditions.checkNotNull(group, "null duplicate group");
+
+        group.getMembers().forEach(this::index);
+        groupsBySize.computeIfAbsent(group.getFileSize(), size -> new ArrayList<>()).add(group);
+    }
+
+    public synchronized void addAll(final Collection<PathElement> uniqueElements) {
+        Preconditions.checkNotNull(uniqueElements, "null unique elements");
+
+        uniqueElements.forEach(this::index);
+    }
+
+    public synchronized void put(final Path path, final BasicFileAttributes attributes) {
+        final PathElement pathElement = catalog.add(path, attributes);
+
+        put(pathElement);
+        catalogedFiles.add(pathElement);
+    }
+
+    public synchronized void put(final PathElement pathElement) {
+        Preconditions.checkNotNull(pathElement, "null file metadata");
+
+        remove(pathElement.getPath());
+        index(pathElement);
+
+        dirtySizes.add(pathElement.size());
+    }
+
+    public synchronized boolean remove(final Path path) {
+        final PathElement removed = files.remove(path);
+
+        if (removed == null) {
+            return false;
+        }
+
+        catalogedFiles.remove(removed);
+
+        final Map<Path, PathElement> bucket = filesBySize.get(removed.size());
+
+        bucket.remove(path);
+        if (bucket.isEmpty()) {
+            filesBySize.remove(removed.size());
+        }
+
+        dirtySizes.add(removed.size());
+
+        return true;
+    }
+
+    public synchronized void removeAll(final Path directory) {
+        files.keySet()
+             .stream()
+             .filter(path -> path.startsWith(directory))
+             .collect(toList())
+             .forEach(this::remove);
+    }
+
+    // only sizes touched since the last refresh are compared again, in a single run queries don't wait for,
+    // files still grouped as they were keep their digest and only new or changed files are hashed
+    public void refresh() {
+        final Set<Long> sizes;
+        final List<PathElement> candidates = new ArrayList<>();
+        final Map<PathElement, String> knownDigests = new HashMap<>();
+
+        synchronized (this) {
+            if (dirtySizes.isEmpty()) {
+                return;
+            }
+
+            sizes = new HashSet<>(dirtySizes);
+            dirtySizes.clear();
+
+            for (final Long size : sizes) {
+                final Map<Path, PathElement> bucket = filesBySize.get(size);
+
+                if (bucket != null && bucket.size() > 1) {
+                    candidates.addAll(bucket.values());
+                }
+
+                groupsBySize.getOrDefault(size, emptyList())
+                            .forEach(group -> group.getMembers()
+                                                   .stream()
+                                                   .filter(member -> member.equals(files.get(member.getPath())))
+                                                   .forEach(member -> knownDigests.put(member, group.getDigest())));
+            }
+        }
+
+        final List<DuplicateGroup> groups = Collections.synchronizedList(new ArrayList<>());
+        if (!candidates.isEmpty()) {
+            try {
+                duplicatesFinder.extractDuplicates(candidates, new HashSet<>(), groups::add, emptyMap(), knownDigests);
+            } catch (final RuntimeException e) {
+                // compared again by the next refresh
+                synchronized (this) {
+                    dirtySizes.addAll(sizes);
+                }
+
+                throw e;
+            }
+        }
+
+        // sizes touched again meanwhile are still dirty, the next refresh corrects them
+        synchronized (this) {
+            sizes.forEach(groupsBySize::remove);
+            groups.forEach(group -> groupsBySize.computeIfAbsent(group.getFileSize(), size -> new ArrayList<>()).add(group));
+
+            compactCatalog();
+
+            getMetricRegistry().counter(name("daemon", "sizes", "refreshed")).inc(sizes.size());
+            LOGGER.info("Duplicate index refreshed for {} file size(s), {} duplicate group(s) in {} file(s)", sizes.size(), getGroupCount(), files.size());
+        }
+    }
+
+    public synchronized List<DuplicateGroup> getGroups() {
+        return groupsBySize.values()
+                           .stream()
+                           .flatMap(Collection::stream)
+                           .collect(toList());
+    }
+
+    public synchronized List<DuplicateGroup> getGroups(final Path directory) {
+        return groupsBySize.values()
+                           .stream()
+                           .flatMap(Collection::stream)
+                           .filter(group -> group.getMembers().stream().anyMatch(member -> member.getPath().startsWith(directory)))
+                           .collect(toList());
+    }
+
+    public synchronized Map<String, Long> getSummary() {
+        final Map<String, Long> summary = new LinkedHashMap<>();
+
+        summary.put("files", (long) files.size());
+        summary.put("groups", (long) getGroupCount());
+        summary.put("duplicates", groupsBySize.values().stream().flatMap(Collection::stream).mapToLong(group -> group.getDuplicates().size()).sum());
+        summary.put("duplicatedBytes", groupsBySize.values().stream().flatMap(Collection::stream).mapToLong(group -> group.getFileSize() * group.getDuplicates().size()).sum());
+
+        return summary;
+    }
+
+    private int getGroupCount() {
+        return groupsBySize.values()
+                           .stream()
+                           .mapToInt(List::size)
+                           .sum();
+    }
+
+    // rewritten files append a row each, live rows move to a new catalog once dead ones outnumber them
+    private void compactCatalog() {
+        final int deadRows = catalog.size() - catalogedFiles.size();
+        if (deadRows < Math.max(MIN_DEAD_ROWS, catalogedFiles.size())) {
+            return;
+        }
+
+        final FileCatalog compacted = new FileCatalog();
+        final Map<PathElement, PathElement> moved = new HashMap<>(catalogedFiles.size() * 4 / 3 + 1);
+        catalogedFiles.forEach(pathElement -> moved.put(pathElement, compacted.add(pathElement)));
+
+        moved.values().forEach(this::index);
+        groupsBySize.values().forEach(groups -> groups.replaceAll(group -> {
+            final List<PathElement> members = group.getMembers()
+                                                   .stream()
+                                                   .map(member -> moved.getOrDefault(member, member))
+                                                   .collect(toList());
+
+            return new DuplicateGroup(members, group.getDigest());
+        }));
+
+        catalog = compacted;
+        catalogedFiles = new HashSet<>(moved.values());
+
+        LOGGER.info("Duplicate index catalog compacted, {} row(s) of replaced or removed files dropped", deadRows);
+    }
+
+    synchronized int getCatalogSize() {
+        return catalog.size();
+    }
+
+    private void index(final PathElement pathElement) {
+        files.put(pathElement.getPath(), pathElement);
+        filesBySize.computeIfAbsent(pathElement.size(), size -> new HashMap<>()).put(pathElement.getPath(), pathElement);
+    }
+
+}
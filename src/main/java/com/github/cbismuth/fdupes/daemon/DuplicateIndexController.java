@@ -0,0 +1,84 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Christophe Bismuth
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.github.cbismuth.fdupes.daemon;
+
+import com.github.cbismuth.fdupes.container.immutable.DuplicateGroup;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.stream.Collectors.toList;
+import static org.springframework.web.bind.annotation.RequestMethod.GET;
+
+@Controller
+public class DuplicateIndexController {
+
+    private final DuplicateIndex duplicateIndex;
+
+    public DuplicateIndexController(final DuplicateIndex duplicateIndex) {
+        this.duplicateIndex = duplicateIndex;
+    }
+
+    @ResponseBody
+    @RequestMapping(value = "/duplicates",
+                    method = GET,
+                    produces = "application/json; charset=utf-8")
+    List<Map<String, Object>> duplicates(@RequestParam(value = "directory", required = false) final String directory) {
+        final List<DuplicateGroup> groups = directory == null ? duplicateIndex.getGroups() : duplicateIndex.getGroups(Paths.get(directory));
+
+        return groups.stream()
+                     .map(this::toMap)
+                     .collect(toList());
+    }
+
+    @ResponseBody
+    @RequestMapping(value = "/duplicates/summary",
+                    method = GET,
+                    produces = "application/json; charset=utf-8")
+    Map<String, Long> summary() {
+        return duplicateIndex.getSummary();
+    }
+
+    private Map<String, Object> toMap(final DuplicateGroup group) {
+        final Map<String, Object> map = new LinkedHashMap<>();
+
+        map.put("size", group.getFileSize());
+        map.put("digest", group.getDigest());
+        map.put("original", group.getOriginal().getPath().toString());
+        map.put("duplicates", group.getDuplicates()
+                                   .stream()
+                                   .map(duplicate -> duplicate.getPath().toString())
+                                   .collect(toList()));
+
+        return map;
+    }
+
+}
@@ -0,0 +1,273 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Christophe Bismuth
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.github.cbismuth.fdupes.daemon;
+
+import com.github.cbismuth.fdupes.cli.SystemPropertyGetter;
+import com.github.cbismuth.fdupes.collect.FilenamePredicate;
+import com.google.common.base.Preconditions;
+import org.slf4j.Logger;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static com.github.cbismuth.fdupes.metrics.MetricNames.withLabel;
+import static com.github.cbismuth.fdupes.metrics.MetricRegistrySingleton.getMetricRegistry;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+import static org.slf4j.LoggerFactory.getLogger;
+
+@Component
+public class IndexWatcher {
+
+    private static final Logger LOGGER = getLogger(IndexWatcher.class);
+
+    private static final long MAX_BATCH_FACTOR = 10L;
+
+    private final DuplicateIndex duplicateIndex;
+    private final FilenamePredicate filenamePredicate;
+    private final SystemPropertyGetter systemPropertyGetter;
+
+    private final Map<WatchKey, Path> directoriesByKey = new ConcurrentHashMap<>();
+    private final Map<Path, WatchKey> keysByDirectory = new ConcurrentHashMap<>();
+
+    private volatile WatchService watchService;
+
+    public IndexWatcher(final DuplicateIndex duplicateIndex,
+                        final FilenamePredicate filenamePredicate,
+                        final SystemPropertyGetter systemPropertyGetter) {
+        this.duplicateIndex = duplicateIndex;
+        this.filenamePredicate = filenamePredicate;
+        this.systemPropertyGetter = systemPropertyGetter;
+    }
+
+    public void watch(final Iterable<String> inputPaths) throws IOException {
+        register(inputPaths);
+        watch();
+    }
+
+    // registered before the first scan, changes made while it runs are queued rather than missed
+    public synchronized void register(final Iterable<String> inputPaths) throws IOException {
+        Preconditions.checkNotNull(inputPaths, "null input path collection");
+
+        if (watchService != null) {
+            return;
+        }
+
+        watchService = FileSystems.getDefault().newWatchService();
+
+        for (final String rootPath : inputPaths) {
+            final Path path = Paths.get(rootPath);
+
+            if (Files.isDirectory(path) && filenamePredicate.accept(path)) {
+                register(path, false);
+            } else {
+                LOGGER.warn("[{}] isn't watched, only directories are", rootPath);
+            }
+        }
+
+        LOGGER.info("Watching {} directories for changes", keysByDirectory.size());
+    }
+
+    public void watch() {
+        final WatchService service = watchService;
+        Preconditions.checkState(service != null, "no directory registered");
+
+        final long debounce = systemPropertyGetter.getDaemonDebounce();
+        try {
+            while (true) {
+                // events are batched until the file system settles down, or for a while under steady writes
+                WatchKey key = service.take();
+                final long deadline = System.currentTimeMillis() + MAX_BATCH_FACTOR * debounce;
+                try {
+                    while (key != null) {
+                        handle(key);
+
+                        key = System.currentTimeMillis() < deadline ? service.poll(debounce, TimeUnit.MILLISECONDS) : null;
+                    }
+
+                    duplicateIndex.refresh();
+                } catch (final ClosedWatchServiceException e) {
+                    throw e;
+                } catch (final RuntimeException e) {
+                    // the daemon outlives a failed batch, its sizes stay dirty until the next one
+                    LOGGER.error("Can't apply file system changes ([{}]: [{}])", e.getClass().getSimpleName(), e.getMessage());
+                }
+            }
+        } catch (final ClosedWatchServiceException ignored) {
+            LOGGER.info("Stopped watching for changes");
+        } catch (final InterruptedException ignored) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+            watchService = null;
+
+            directoriesByKey.clear();
+            keysByDirectory.clear();
+        }
+    }
+
+    private void handle(final WatchKey key) {
+        final Path directory = directoriesByKey.get(key);
+
+        try {
+            handle(directory, key.pollEvents());
+        } finally {
+            if (!key.reset() && directory != null) {
+                directoriesByKey.remove(key);
+                keysByDirectory.remove(directory);
+            }
+        }
+    }
+
+    private void handle(final Path directory, final List<WatchEvent<?>> events) {
+        for (final WatchEvent<?> event : events) {
+            getMetricRegistry().meter(withLabel(name("daemon", "events"), "kind", event.kind().name().replace("ENTRY_", "").toLowerCase(Locale.ROOT))).mark();
+
+            if (directory == null) {
+                continue;
+            }
+
+            if (event.kind() == OVERFLOW) {
+                LOGGER.warn("Missed events in [{}], indexing it again", directory);
+
+                duplicateIndex.removeAll(directory);
+                register(directory, true);
+
+                continue;
+            }
+
+            final Path path = directory.resolve((Path) event.context());
+
+            // deleted paths can't be filtered anymore, they are only dropped if indexed
+            if (event.kind() == ENTRY_DELETE) {
+                onDelete(path);
+            } else {
+                onChange(path);
+            }
+        }
+    }
+
+    private void onChange(final Path path) {
+        try {
+            final Optional<BasicFileAttributes> attributes = filenamePredicate.readIfAccepted(path);
+
+            if (!attributes.isPresent()) {
+                LOGGER.debug("[{}] is filtered out", path);
+            } else if (attributes.get().isDirectory()) {
+                register(path, true);
+            } else if (attributes.get().isRegularFile()) {
+                duplicateIndex.put(path, attributes.get());
+            }
+        } catch (final IOException e) {
+            // deleted or replaced meanwhile, a later event tells
+            LOGGER.debug("Can't read attributes of [{}] ([{}]: [{}])", path, e.getClass().getSimpleName(), e.getMessage());
+        }
+    }
+
+    private void onDelete(final Path path) {
+        if (duplicateIndex.remove(path)) {
+            return;
+        }
+
+        // a deleted directory takes its watched subdirectories along, their keys may already be invalid
+        keysByDirectory.keySet().removeIf(directory -> {
+            if (directory.startsWith(path)) {
+                final WatchKey removedKey = keysByDirectory.get(directory);
+                directoriesByKey.remove(removedKey);
+                removedKey.cancel();
+
+                return true;
+            }
+
+            return false;
+        });
+
+        duplicateIndex.removeAll(path);
+    }
+
+    private void register(final Path start, final boolean indexFiles) {
+        try {
+            Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(final Path directory, final BasicFileAttributes attributes) throws IOException {
+                    if (!directory.equals(start) && !filenamePredicate.accept(directory, attributes)) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+
+                    final WatchKey key = directory.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+                    directoriesByKey.put(key, directory);
+                    keysByDirectory.put(directory, key);
+
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(final Path file, final BasicFileAttributes attributes) {
+                    if (indexFiles && attributes.isRegularFile() && filenamePredicate.accept(file, attributes)) {
+                        duplicateIndex.put(file, attributes);
+                    }
+
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(final Path file, final IOException e) {
+                    LOGGER.error("Can't watch [{}] ([{}]: [{}])", file, e.getClass().getSimpleName(), e.getMessage());
+
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (final IOException e) {
+            LOGGER.error("Can't watch [{}] ([{}]: [{}])", start, e.getClass().getSimpleName(), e.getMessage());
+        }
+    }
+
+}
@@ -24,21 +24,32 @@
 
 package com.github.cbismuth.fdupes.io;
 
+import com.codahale.metrics.Timer;
 import com.github.cbismuth.fdupes.cli.SystemPropertyGetter;
 import com.github.cbismuth.fdupes.collect.PathComparator;
 import com.github.cbismuth.fdupes.container.immutable.PathElement;
 import com.github.cbismuth.fdupes.container.mutable.ByteBuffer;
+import com.github.cbismuth.fdupes.container.mutable.SizeIndex;
+import com.github.cbismuth.fdupes.metrics.Progress;
+import com.github.cbismuth.fdupes.metrics.Stage;
 import com.google.common.collect.Multimap;
 import org.slf4j.Logger;
 import org.springframework.stereotype.Component;
 
 import java.text.NumberFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
 
-import static com.github.cbismuth.fdupes.container.mutable.MultimapCollector.toMultimap;
+import static java.util.Collections.singletonList;
 import static java.util.stream.Collectors.toList;
 import static org.slf4j.LoggerFactory.getLogger;
 
@@ -48,79 +59,153 @@ public class BufferedAnalyzer {
     private static final Logger LOGGER = getLogger(BufferedAnalyzer.class);
 
     private final PathComparator pathComparator;
+    private final IoScheduler ioScheduler;
     private final SystemPropertyGetter systemPropertyGetter;
 
     public BufferedAnalyzer(final PathComparator pathComparator,
+                            final IoScheduler ioScheduler,
                             final SystemPropertyGetter systemPropertyGetter) {
         this.pathComparator = pathComparator;
+        this.ioScheduler = ioScheduler;
         this.systemPropertyGetter = systemPropertyGetter;
     }
 
     public void analyze(final Collection<PathElement> input,
                         final Set<PathElement> uniqueElements,
                         final Multimap<PathElement, PathElement> duplicates) {
-        input.parallelStream()
-             .collect(toMultimap(PathElement::size))
-             .asMap()
-             .entrySet()
-             .parallelStream()
-             .map(Map.Entry::getValue)
-             .forEach(values -> removeUniqueFiles(
-                 values.parallelStream()
-                       .map(pathElement -> new ByteBuffer(pathElement, systemPropertyGetter.getBufferSize()))
-                       .collect(toList()),
-                 uniqueElements,
-                 duplicates
-             ));
-
-        reportDuplicationSize(duplicates);
+        analyze(input, uniqueElements, group -> {
+            uniqueElements.add(group.get(0));
+            duplicates.putAll(group.get(0), group.subList(1, group.size()));
+        });
     }
 
-    private void removeUniqueFiles(final Collection<ByteBuffer> buffers,
+    public void analyze(final Collection<PathElement> input,
+                        final Set<PathElement> uniqueElements,
+                        final Consumer<List<PathElement>> groupListener) {
+        final Timer.Context comparePass = Stage.COMPARE.timePass();
+        final LongAdder duplicatedBytes = new LongAdder();
+        final Consumer<List<PathElement>> listener = group -> {
+            duplicatedBytes.add(group.get(0).size() * (group.size() - 1));
+            groupListener.accept(group);
+        };
+
+        final List<PathElement> elements = new ArrayList<>(input);
+        final SizeIndex index = new SizeIndex(elements.stream().mapToLong(PathElement::size).toArray());
+
+        final List<List<PathElement>> groups = IntStream.range(0, index.getGroupCount())
+                                                        .mapToObj(group -> IntStream.range(0, index.getGroupSize(group))
+                                                                                    .mapToObj(i -> elements.get(index.getMember(group, i)))
+                                                                                    .collect(toList()))
+                                                        .collect(toList());
+
+        final long totalBytes = elements.stream().mapToLong(PathElement::size).sum();
+
+        // a group is read on the file store of its first member
+        try (final Progress progress = Progress.start(Stage.COMPARE, elements.size(), totalBytes, systemPropertyGetter.getProgressInterval())) {
+            ioScheduler.forEach(groups, group -> group.get(0), group -> {
+                final long readBytes;
+                try (final Stage.Context ignored = Stage.COMPARE.start()) {
+                    readBytes = removeUniqueFiles(
+                        group.stream()
+                             .map(pathElement -> new ByteBuffer(pathElement, systemPropertyGetter.getBufferSize()))
+                             .collect(toList()),
+                        uniqueElements,
+                        listener,
+                        progress
+                    );
+                }
+
+                // bytes left unread after a mismatch leave the pass, only compared bytes are done
+                Stage.COMPARE.markFiles(group.size());
+                progress.add(group.size(), 0L);
+                progress.skip(Math.max(0L, group.get(0).size() * group.size() - readBytes));
+            });
+        }
+
+        comparePass.stop();
+
+        LOGGER.info("Total size of duplicated files is {} mb", NumberFormat.getNumberInstance().format(duplicatedBytes.sum() / 1024.0 / 1024.0));
+    }
+
+    private long removeUniqueFiles(final Collection<ByteBuffer> buffers,
                                    final Set<PathElement> uniqueElements,
-                                   final Multimap<PathElement, PathElement> duplicates) {
-        if (!buffers.isEmpty() && buffers.size() != 1) {
-            buffers.forEach(ByteBuffer::read);
-
-            if (buffers.iterator().next().getByteString().isEmpty()) {
-                final List<PathElement> collect = buffers.parallelStream()
-                                                         .peek(ByteBuffer::close)
-                                                         .map(ByteBuffer::getPathElement)
-                                                         .sorted(pathComparator)
-                                                         .collect(toList());
-
-                final PathElement original = collect.remove(0);
-
-                uniqueElements.add(original);
-                duplicates.putAll(original, collect);
-            } else {
-                final Collection<Collection<ByteBuffer>> values = buffers.parallelStream()
-                                                                         .collect(toMultimap(ByteBuffer::getByteString))
-                                                                         .asMap()
-                                                                         .values();
-
-                values.parallelStream()
-                      .filter(collection -> collection.size() == 1)
-                      .flatMap(Collection::stream)
-                      .map(ByteBuffer::getPathElement)
-                      .forEach(uniqueElements::add);
-
-                values.parallelStream()
-                      .filter(collection -> collection.size() > 1)
-                      .forEach(collection -> removeUniqueFiles(collection, uniqueElements, duplicates));
+                                   final Consumer<List<PathElement>> groupListener,
+                                   final Progress progress) {
+        long readBytes = 0L;
+
+        final Deque<List<ByteBuffer>> groups = new ArrayDeque<>();
+        groups.push(new ArrayList<>(buffers));
+
+        while (!groups.isEmpty()) {
+            final List<ByteBuffer> group = groups.pop();
+
+            if (group.size() == 1) {
+                uniqueElements.add(group.get(0).close().getPathElement());
+            } else if (!group.isEmpty()) {
+                group.forEach(ByteBuffer::read);
+
+                final long chunkBytes = group.stream().mapToLong(ByteBuffer::getLength).sum();
+                Stage.COMPARE.markBytes(chunkBytes);
+                progress.add(0L, chunkBytes);
+                readBytes += chunkBytes;
+
+                if (group.get(0).getLength() == 0) {
+                    onDuplicates(group, groupListener);
+                } else {
+                    partition(group).forEach(groups::push);
+                }
             }
         }
+
+        return readBytes;
     }
 
-    private void reportDuplicationSize(final Multimap<PathElement, PathElement> duplicates) {
-        final double sizeInMb = duplicates.asMap()
-                                          .values()
-                                          .parallelStream()
-                                          .flatMap(Collection::parallelStream)
-                                          .mapToLong(PathElement::size)
-                                          .sum() / 1024.0 / 1024.0;
+    private Collection<List<ByteBuffer>> partition(final List<ByteBuffer> group) {
+        final ByteBuffer first = group.get(0);
+
+        boolean allEqual = true;
+        for (int i = 1; allEqual && i < group.size(); i++) {
+            allEqual = first.isChunkEqual(group.get(i));
+        }
+
+        if (allEqual) {
+            return singletonList(group);
+        }
+
+        final Map<Integer, List<List<ByteBuffer>>> partitionsByHash = new HashMap<>();
+        final Collection<List<ByteBuffer>> partitions = new ArrayList<>();
+
+        for (final ByteBuffer buffer : group) {
+            final List<List<ByteBuffer>> candidates = partitionsByHash.computeIfAbsent(buffer.getChunkHash(), hash -> new ArrayList<>(1));
+
+            List<ByteBuffer> target = null;
+            for (final List<ByteBuffer> candidate : candidates) {
+                if (candidate.get(0).isChunkEqual(buffer)) {
+                    target = candidate;
+                    break;
+                }
+            }
+
+            if (target == null) {
+                target = new ArrayList<>();
+                candidates.add(target);
+                partitions.add(target);
+            }
+
+            target.add(buffer);
+        }
+
+        return partitions;
+    }
 
-        LOGGER.info("Total size of duplicated files is {} mb", NumberFormat.getNumberInstance().format(sizeInMb));
+    private void onDuplicates(final Collection<ByteBuffer> group,
+                              final Consumer<List<PathElement>> groupListener) {
+        // the original comes first
+        groupListener.accept(group.stream()
+                                  .map(ByteBuffer::close)
+                                  .map(ByteBuffer::getPathElement)
+                                  .sorted(pathComparator)
+                                  .collect(toList()));
     }
 
 }
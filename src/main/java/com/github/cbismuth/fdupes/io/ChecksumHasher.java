@@ -0,0 +1,116 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Christophe Bismuth
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.github.cbismuth.fdupes.io;
+
+import com.google.common.base.Throwables;
+import org.slf4j.Logger;
+
+import java.lang.invoke.MethodHandle;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+import java.util.zip.Checksum;
+
+import static java.lang.invoke.MethodHandles.publicLookup;
+import static java.lang.invoke.MethodType.methodType;
+import static org.slf4j.LoggerFactory.getLogger;
+
+final class ChecksumHasher implements ContentHasher {
+
+    private static final Logger LOGGER = getLogger(ChecksumHasher.class);
+
+    private static final int DIGEST_LENGTH = 4;
+
+    private static volatile boolean crc32cWarned = false;
+
+    private final String algorithm;
+    private final Checksum checksum;
+    private final MethodHandle byteBufferUpdate;
+
+    private ChecksumHasher(final String algorithm,
+                           final Checksum checksum,
+                           final MethodHandle byteBufferUpdate) {
+        this.algorithm = algorithm;
+        this.checksum = checksum;
+        this.byteBufferUpdate = byteBufferUpdate;
+    }
+
+    static ChecksumHasher newCrc32c() {
+        try {
+            // java.util.zip.CRC32C and Checksum#update(ByteBuffer) ship with Java 9+
+            final Checksum checksum = (Checksum) Class.forName("java.util.zip.CRC32C").newInstance();
+            final MethodHandle update = publicLookup().findVirtual(Checksum.class, "update", methodType(void.class, ByteBuffer.class));
+
+            return new ChecksumHasher("CRC32C", checksum, update.bindTo(checksum));
+        } catch (final ReflectiveOperationException | ClassCastException ignored) {
+            if (!crc32cWarned) {
+                crc32cWarned = true;
+
+                LOGGER.warn("CRC32C isn't available on Java {}, fallback to CRC32", System.getProperty("java.specification.version"));
+            }
+
+            return new ChecksumHasher("CRC32", new CRC32(), null);
+        }
+    }
+
+    @Override
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    @Override
+    public int getDigestLength() {
+        return DIGEST_LENGTH;
+    }
+
+    @Override
+    public void reset() {
+        checksum.reset();
+    }
+
+    @Override
+    public void update(final ByteBuffer buffer) {
+        if (byteBufferUpdate != null) {
+            try {
+                byteBufferUpdate.invokeExact(buffer);
+            } catch (final Throwable e) {
+                throw Throwables.propagate(e);
+            }
+        } else {
+            ((CRC32) checksum).update(buffer);
+        }
+    }
+
+    @Override
+    public int digest(final byte[] output) {
+        final long value = checksum.getValue();
+
+        for (int i = 0; i < DIGEST_LENGTH; i++) {
+            output[i] = (byte) (value >>> (8 * (DIGEST_LENGTH - 1 - i)));
+        }
+
+        return DIGEST_LENGTH;
+    }
+
+}
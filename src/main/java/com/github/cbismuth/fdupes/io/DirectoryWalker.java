@@ -25,27 +25,44 @@
 package com.github.cbismuth.fdupes.io;
 
 import com.codahale.metrics.Timer;
+import com.github.cbismuth.fdupes.cli.SystemPropertyGetter;
 import com.github.cbismuth.fdupes.collect.FilenamePredicate;
+import com.github.cbismuth.fdupes.container.immutable.DuplicateGroup;
 import com.github.cbismuth.fdupes.container.immutable.PathElement;
+import com.github.cbismuth.fdupes.container.mutable.FileCatalog;
+import com.github.cbismuth.fdupes.metrics.Stage;
 import com.github.cbismuth.fdupes.report.ErrorReporter;
+import com.github.cbismuth.fdupes.report.ReportWriter;
+import com.github.cbismuth.fdupes.shard.ShardCoordinator;
 import com.github.cbismuth.fdupes.stream.DuplicatesFinder;
+import com.github.cbismuth.fdupes.stream.HashPipeline;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
 import com.google.common.collect.Multimap;
 import org.slf4j.Logger;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 import static com.codahale.metrics.MetricRegistry.name;
-import static com.github.cbismuth.fdupes.metrics.MetricRegistrySingleton.getMetricRegistry;
-import static com.google.common.collect.Sets.newConcurrentHashSet;
+import static com.github.cbismuth.fdupes.metrics.MetricNames.withLabel;
+import static java.util.Collections.emptyMap;
 import static org.slf4j.LoggerFactory.getLogger;
 
 @Component
@@ -54,78 +71,267 @@ public class DirectoryWalker {
     private static final Logger LOGGER = getLogger(DirectoryWalker.class);
 
     private final DuplicatesFinder duplicatesFinder;
+    private final ShardCoordinator shardCoordinator;
     private final FilenamePredicate filenamePredicate;
     private final PathEscapeFunction pathEscapeFunction;
+    private final IoExecutorFactory ioExecutorFactory;
+    private final SystemPropertyGetter systemPropertyGetter;
 
     public DirectoryWalker(final DuplicatesFinder duplicatesFinder,
+                           final ShardCoordinator shardCoordinator,
                            final FilenamePredicate filenamePredicate,
-                           final PathEscapeFunction pathEscapeFunction) {
+                           final PathEscapeFunction pathEscapeFunction,
+                           final IoExecutorFactory ioExecutorFactory,
+                           final SystemPropertyGetter systemPropertyGetter) {
         this.duplicatesFinder = duplicatesFinder;
+        this.shardCoordinator = shardCoordinator;
         this.filenamePredicate = filenamePredicate;
         this.pathEscapeFunction = pathEscapeFunction;
+        this.ioExecutorFactory = ioExecutorFactory;
+        this.systemPropertyGetter = systemPropertyGetter;
     }
 
     public void extractDuplicates(final Iterable<String> inputPaths,
                                   final Set<PathElement> uniqueElements,
                                   final Multimap<PathElement, PathElement> duplicates) throws IOException {
+        extractDuplicates(inputPaths, uniqueElements, group -> duplicates.putAll(group.getOriginal(), group.getDuplicates()));
+    }
+
+    public void extractDuplicates(final Iterable<String> inputPaths,
+                                  final Set<PathElement> uniqueElements,
+                                  final Consumer<DuplicateGroup> groupListener) throws IOException {
         Preconditions.checkNotNull(inputPaths, "null input path collection");
 
-        final Collection<PathElement> readablePaths = newConcurrentHashSet();
-        final Collection<Path> unreadablePaths = newConcurrentHashSet();
+        final FileCatalog readablePaths = new FileCatalog();
+
+        final HashPipeline pipeline = systemPropertyGetter.doPipeline() ? duplicatesFinder.newHashPipeline() : null;
+        final Consumer<PathElement> listener = pipeline != null ? pipeline : pathElement -> {};
 
-        readablePaths.clear();
+        final String snapshotFile = systemPropertyGetter.getSnapshotFile();
+        final IncrementalWalk incrementalWalk = snapshotFile.isEmpty() ? null : IncrementalWalk.open(Paths.get(snapshotFile), filenamePredicate.getConfigurationHash());
 
-        inputPaths.forEach(rootPath -> {
-            final Path path = Paths.get(rootPath);
+        try (final ReportWriter<Path> unreadablePaths = new ErrorReporter(pathEscapeFunction, systemPropertyGetter).open();
+             final Timer.Context ignored = Stage.WALK.timePass()) {
+            final Traversal traversal = new Traversal(readablePaths, unreadablePaths, listener, incrementalWalk);
 
-            if (filenamePredicate.accept(path)) {
-                if (Files.isDirectory(path)) {
-                    handleDirectory(path, readablePaths, unreadablePaths);
-                } else if (Files.isRegularFile(path)) {
-                    handleRegularFile(path, readablePaths, unreadablePaths);
-                } else {
-                    LOGGER.warn("[{}] is not a directory or a regular file", rootPath);
+            inputPaths.forEach(rootPath -> {
+                final Path path = Paths.get(rootPath);
+                final Optional<BasicFileAttributes> attributes = readIfAccepted(path, traversal);
+
+                if (attributes.isPresent()) {
+                    if (attributes.get().isDirectory()) {
+                        traversal.submit(path);
+                    } else if (attributes.get().isRegularFile()) {
+                        final PathElement pathElement = handleRegularFile(path, attributes.get(), traversal);
+
+                        // files given as roots are never part of a walk snapshot
+                        if (pathElement != null && incrementalWalk != null) {
+                            incrementalWalk.touch(pathElement);
+                        }
+                    } else {
+                        LOGGER.warn("[{}] is not a directory or a regular file", rootPath);
+                    }
                 }
-            }
-        });
+            });
 
-        new ErrorReporter(pathEscapeFunction).report(unreadablePaths);
+            traversal.await();
+        }
+
+        final Map<PathElement, String> precomputedKeys = pipeline != null ? pipeline.finish() : emptyMap();
+
+        if (incrementalWalk == null) {
+            findDuplicates(readablePaths.elements(), uniqueElements, groupListener, precomputedKeys);
+        } else {
+            final Consumer<DuplicateGroup> recordingListener = incrementalWalk.record(groupListener);
+            final Collection<PathElement> candidates = incrementalWalk.select(readablePaths.elements(), uniqueElements, recordingListener);
 
-        duplicatesFinder.extractDuplicates(readablePaths, uniqueElements, duplicates);
+            findDuplicates(candidates, uniqueElements, recordingListener, precomputedKeys);
+
+            incrementalWalk.save();
+        }
+    }
+
+    private void findDuplicates(final Collection<PathElement> input,
+                                final Set<PathElement> uniqueElements,
+                                final Consumer<DuplicateGroup> groupListener,
+                                final Map<PathElement, String> precomputedKeys) throws IOException {
+        // keys hashed while walking live in this JVM only, workers would compute them again
+        if (systemPropertyGetter.getWorkers() > 1 && precomputedKeys.isEmpty()) {
+            shardCoordinator.extractDuplicates(input, uniqueElements, groupListener);
+        } else {
+            duplicatesFinder.extractDuplicates(input, uniqueElements, groupListener, precomputedKeys);
+        }
     }
 
     private void handleDirectory(final Path path,
-                                 final Collection<PathElement> paths,
-                                 final Collection<Path> pathsInError) {
-        try (final DirectoryStream<Path> stream = Files.newDirectoryStream(path, filenamePredicate)) {
-            stream.forEach(p -> {
-                if (Files.isDirectory(p)) {
-                    getMetricRegistry().counter(name("fs", "counter", "directories")).inc();
-
-                    handleDirectory(p, paths, pathsInError);
-                } else {
-                    handleRegularFile(p, paths, pathsInError);
-                }
-            });
-        } catch (final IOException e) {
-            LOGGER.error(e.getMessage(), e);
+                                 final Traversal traversal) {
+        try (final Stage.Context ignored = Stage.WALK.start()) {
+            listDirectory(path, traversal);
         }
     }
 
-    private void handleRegularFile(final Path path,
-                                   final Collection<PathElement> paths,
-                                   final Collection<Path> pathsInError) {
+    private void listDirectory(final Path path,
+                               final Traversal traversal) {
+        final IncrementalWalk incrementalWalk = traversal.incrementalWalk;
+        final List<String> subdirectories = new ArrayList<>();
+        final List<PathElement> files = new ArrayList<>();
+
         try {
-            try (final Timer.Context ignored = getMetricRegistry().timer(name("fs", "timer", "files", "attributes", "read")).time()) {
-                paths.add(new PathElement(path, Files.readAttributes(path, BasicFileAttributes.class)));
+            // read before listing, a change while listing is caught by the next walk
+            final long lastModifiedTime = incrementalWalk != null ? Files.getLastModifiedTime(path).toMillis() : 0L;
+
+            final WalkSnapshot.Directory unchanged = incrementalWalk != null ? incrementalWalk.getUnchanged(path, lastModifiedTime) : null;
+            if (unchanged != null) {
+                reuseDirectory(path, unchanged, traversal);
+                return;
+            }
+
+            // filtered entries are never stat'ed, accepted ones only once
+            try (final DirectoryStream<Path> stream = Files.newDirectoryStream(path)) {
+                stream.forEach(p -> {
+                    final Optional<BasicFileAttributes> attributes = readIfAccepted(p, traversal);
+
+                    if (!attributes.isPresent()) {
+                        return;
+                    }
+
+                    if (attributes.get().isDirectory()) {
+                        Stage.WALK.meter("directories").mark();
+
+                        subdirectories.add(String.valueOf(p.getFileName()));
+                        traversal.submit(p);
+                    } else if (attributes.get().isRegularFile()) {
+                        final PathElement pathElement = handleRegularFile(p, attributes.get(), traversal);
+
+                        if (pathElement != null) {
+                            files.add(pathElement);
+                        }
+                    }
+                });
             }
 
-            getMetricRegistry().counter(name("fs", "counter", "files", "ok")).inc();
+            if (incrementalWalk != null) {
+                incrementalWalk.onListed(path, new WalkSnapshot.Listing(lastModifiedTime, subdirectories, files));
+            }
+        } catch (final IOException | DirectoryIteratorException e) {
+            LOGGER.error(e.getMessage(), e);
+        }
+
+        markWalkerThread(files.size());
+    }
+
+    private void reuseDirectory(final Path path,
+                                final WalkSnapshot.Directory unchanged,
+                                final Traversal traversal) {
+        final List<PathElement> files = new ArrayList<>(unchanged.getFiles().size());
+
+        for (final WalkSnapshot.FileRecord file : unchanged.getFiles()) {
+            final PathElement pathElement = traversal.paths.add(path.resolve(file.getName()), file);
+
+            traversal.listener.accept(pathElement);
+            files.add(pathElement);
+        }
+
+        unchanged.getSubdirectories().forEach(subdirectory -> {
+            Stage.WALK.meter("directories").mark();
+
+            traversal.submit(path.resolve(subdirectory));
+        });
+
+        Stage.WALK.markFiles(files.size());
+        markWalkerThread(files.size());
+
+        traversal.incrementalWalk.onReused(path, new WalkSnapshot.Listing(unchanged.getLastModifiedTime(), unchanged.getSubdirectories(), files));
+    }
+
+    // walker threads unevenly loaded show up as stage_thread_*_total{stage="walk",thread="..."}
+    private static void markWalkerThread(final long files) {
+        final String thread = Thread.currentThread().getName();
+
+        Stage.WALK.meter(withLabel(name("thread", "directories"), "thread", thread)).mark();
+        Stage.WALK.meter(withLabel(name("thread", "files"), "thread", thread)).mark(files);
+    }
+
+    private Optional<BasicFileAttributes> readIfAccepted(final Path path,
+                                                         final Traversal traversal) {
+        try (final Timer.Context ignored = Stage.WALK.timer("attributes", "latency").time()) {
+            return filenamePredicate.readIfAccepted(path);
         } catch (final IOException ignored) {
-            pathsInError.add(path);
+            traversal.pathsInError.accept(path);
 
-            getMetricRegistry().counter(name("fs", "counter", "files", "ko")).inc();
+            Stage.WALK.markErrors(1L);
+
+            return Optional.empty();
         }
     }
 
+    private PathElement handleRegularFile(final Path path,
+                                          final BasicFileAttributes attributes,
+                                          final Traversal traversal) {
+        final PathElement pathElement = traversal.paths.add(path, attributes);
+
+        traversal.listener.accept(pathElement);
+
+        Stage.WALK.markFiles(1L);
+
+        return pathElement;
+    }
+
+    private final class Traversal {
+
+        private final FileCatalog paths;
+        private final Consumer<Path> pathsInError;
+        private final Consumer<PathElement> listener;
+        private final IncrementalWalk incrementalWalk;
+
+        private final ExecutorService executor;
+        private final AtomicLong pendingCount = new AtomicLong(1L);
+        private final CountDownLatch completion = new CountDownLatch(1);
+
+        private Traversal(final FileCatalog paths,
+                          final Consumer<Path> pathsInError,
+                          final Consumer<PathElement> listener,
+                          final IncrementalWalk incrementalWalk) {
+            this.paths = paths;
+            this.pathsInError = pathsInError;
+            this.listener = listener;
+            this.incrementalWalk = incrementalWalk;
+
+            executor = ioExecutorFactory.newExecutor("fdupes-walker", systemPropertyGetter.getDefaultIoConcurrency());
+        }
+
+        private void submit(final Path directory) {
+            pendingCount.incrementAndGet();
+
+            executor.execute(() -> {
+                try {
+                    handleDirectory(directory, this);
+                } finally {
+                    release();
+                }
+            });
+        }
+
+        private void await() {
+            release();
+
+            try {
+                completion.await();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+
+                throw Throwables.propagate(e);
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        private void release() {
+            if (pendingCount.decrementAndGet() == 0L) {
+                completion.countDown();
+            }
+        }
+
+    }
+
 }
@@ -0,0 +1,118 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Christophe Bismuth
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.github.cbismuth.fdupes.io;
+
+import com.github.cbismuth.fdupes.cli.SystemPropertyGetter;
+import com.github.cbismuth.fdupes.container.immutable.PathElement;
+import com.github.cbismuth.fdupes.metrics.Stage;
+import com.google.common.base.Preconditions;
+import org.slf4j.Logger;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.function.LongConsumer;
+
+import static java.nio.file.StandardOpenOption.READ;
+import static java.util.UUID.randomUUID;
+import static org.slf4j.LoggerFactory.getLogger;
+
+@Component
+public class FingerprintComputer {
+
+    private static final Logger LOGGER = getLogger(FingerprintComputer.class);
+
+    private final SystemPropertyGetter systemPropertyGetter;
+
+    public FingerprintComputer(final SystemPropertyGetter systemPropertyGetter) {
+        this.systemPropertyGetter = systemPropertyGetter;
+    }
+
+    public String compute(final PathElement pathElement) {
+        return compute(pathElement, readBytes -> {});
+    }
+
+    public String compute(final PathElement pathElement, final LongConsumer readBytes) {
+        Preconditions.checkNotNull(pathElement, "null file metadata");
+        Preconditions.checkNotNull(readBytes, "null read bytes consumer");
+
+        try (final Stage.Context ignored = Stage.FINGERPRINT.start()) {
+            return doIt(pathElement, readBytes);
+        } catch (final Exception e) {
+            LOGGER.error("Can't compute fingerprint from file [{}] ([{}]: [{}])",
+                         pathElement.getPath(), e.getClass().getSimpleName(), e.getMessage());
+
+            return randomUUID().toString();
+        }
+    }
+
+    public long getFingerprintLength(final long size) {
+        final long windowSize = systemPropertyGetter.getFingerprintWindowSize();
+        final long windowsCount = systemPropertyGetter.getFingerprintSamples() + 2L;
+
+        return Math.min(size, windowSize * windowsCount);
+    }
+
+    private String doIt(final PathElement element, final LongConsumer readBytes) throws IOException {
+        final HashContext context = HashContext.acquire(systemPropertyGetter);
+        try {
+            return doIt(element, context, readBytes);
+        } finally {
+            context.release();
+        }
+    }
+
+    private String doIt(final PathElement element, final HashContext context, final LongConsumer readBytes) throws IOException {
+        final long size = element.size();
+        final long windowSize = systemPropertyGetter.getFingerprintWindowSize();
+        final int samples = systemPropertyGetter.getFingerprintSamples();
+
+        context.reset();
+
+        long total = 0L;
+        try (final FileChannel channel = FileChannel.open(element.getPath(), READ)) {
+            if (size <= windowSize * (samples + 2L)) {
+                total += context.update(channel, 0L, size);
+            } else {
+                total += context.update(channel, 0L, windowSize);
+
+                for (int i = 1; i <= samples; i++) {
+                    final long position = size / (samples + 1) * i - windowSize / 2;
+
+                    total += context.update(channel, position, windowSize);
+                }
+
+                total += context.update(channel, size - windowSize, windowSize);
+            }
+        }
+
+        Stage.FINGERPRINT.markFiles(1L);
+        Stage.FINGERPRINT.markBytes(total);
+        readBytes.accept(total);
+
+        return size + ":" + context.digestAsHexString();
+    }
+
+}
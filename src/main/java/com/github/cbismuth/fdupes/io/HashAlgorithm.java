@@ -0,0 +1,75 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Christophe Bismuth
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.github.cbismuth.fdupes.io;
+
+import java.util.Optional;
+import java.util.stream.Stream;
+
+public enum HashAlgorithm {
+
+    MD5("md5") {
+        @Override
+        public ContentHasher newHasher() {
+            return new MessageDigestHasher("MD5");
+        }
+    },
+    SHA256("sha256") {
+        @Override
+        public ContentHasher newHasher() {
+            return new MessageDigestHasher("SHA-256");
+        }
+    },
+    CRC32C("crc32c") {
+        @Override
+        public ContentHasher newHasher() {
+            return ChecksumHasher.newCrc32c();
+        }
+    },
+    XXHASH64("xxhash64") {
+        @Override
+        public ContentHasher newHasher() {
+            return new XxHash64Hasher();
+        }
+    };
+
+    private final String name;
+
+    HashAlgorithm(final String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public abstract ContentHasher newHasher();
+
+    public static Optional<HashAlgorithm> fromName(final String name) {
+        return Stream.of(values())
+                     .filter(algorithm -> algorithm.name.equalsIgnoreCase(name))
+                     .findFirst();
+    }
+
+}
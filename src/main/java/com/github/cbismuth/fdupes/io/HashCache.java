@@ -0,0 +1,285 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Christophe Bismuth
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.github.cbismuth.fdupes.io;
+
+import com.github.cbismuth.fdupes.cli.SystemPropertyGetter;
+import com.github.cbismuth.fdupes.container.immutable.PathElement;
+import com.github.cbismuth.fdupes.metrics.Stage;
+import com.google.common.base.Preconditions;
+import org.slf4j.Logger;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.google.common.collect.Sets.newConcurrentHashSet;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static org.slf4j.LoggerFactory.getLogger;
+
+@Component
+public class HashCache {
+
+    private static final Logger LOGGER = getLogger(HashCache.class);
+
+    private static final int MAGIC = 0x46445043;
+    private static final int VERSION = 1;
+
+    private final SystemPropertyGetter systemPropertyGetter;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Set<String> touchedKeys = newConcurrentHashSet();
+
+    private Path cacheFile;
+    private String algorithm;
+    private DataOutputStream appender;
+    private long recordsCount = 0L;
+
+    public HashCache(final SystemPropertyGetter systemPropertyGetter) {
+        this.systemPropertyGetter = systemPropertyGetter;
+    }
+
+    @PostConstruct
+    public synchronized void open() throws IOException {
+        final String property = systemPropertyGetter.getCacheFile();
+        if (property.isEmpty() || appender != null) {
+            return;
+        }
+
+        cacheFile = Paths.get(property).toAbsolutePath();
+        algorithm = systemPropertyGetter.getHashAlgorithm().newHasher().getAlgorithm();
+
+        final boolean clean = load();
+        if (!clean) {
+            compact();
+        }
+
+        appender = newAppender();
+
+        LOGGER.info("Hash cache loaded from [{}] with {} {} entries", cacheFile, entries.size(), algorithm);
+    }
+
+    public boolean isEnabled() {
+        return cacheFile != null;
+    }
+
+    public Optional<String> get(final PathElement pathElement) {
+        Preconditions.checkNotNull(pathElement, "null file metadata");
+
+        if (!isEnabled()) {
+            return Optional.empty();
+        }
+
+        final String key = getKey(pathElement);
+        final Entry entry = entries.get(key);
+
+        touchedKeys.add(key);
+
+        if (entry != null && entry.matches(pathElement)) {
+            Stage.HASH.meter("cache", "hits").mark();
+            Stage.HASH.meter("cache", "bytes", "saved").mark(pathElement.size());
+
+            return Optional.of(entry.digest);
+        } else {
+            Stage.HASH.meter("cache", "misses").mark();
+
+            return Optional.empty();
+        }
+    }
+
+    public void put(final PathElement pathElement, final String digest) {
+        Preconditions.checkNotNull(pathElement, "null file metadata");
+        Preconditions.checkNotNull(digest, "null digest");
+
+        if (!isEnabled()) {
+            return;
+        }
+
+        final String key = getKey(pathElement);
+        final Entry entry = new Entry(pathElement.size(), pathElement.lastModifiedTime(), getFileKey(pathElement), digest);
+
+        entries.put(key, entry);
+        touchedKeys.add(key);
+
+        synchronized (this) {
+            try {
+                if (appender != null) {
+                    write(appender, key, entry);
+                }
+            } catch (final IOException e) {
+                LOGGER.error("Can't append to hash cache [{}] ([{}]: [{}])",
+                             cacheFile, e.getClass().getSimpleName(), e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        if (appender == null) {
+            return;
+        }
+
+        appender.close();
+        appender = null;
+
+        final int evictedCount = systemPropertyGetter.doEvictCache() ? evict() : 0;
+        if (evictedCount > 0 || recordsCount > 2L * entries.size()) {
+            compact();
+        }
+
+        Stage.HASH.meter("cache", "evictions").mark(evictedCount);
+
+        LOGGER.info("Hash cache saved to [{}] with {} entries ({} evicted)", cacheFile, entries.size(), evictedCount);
+    }
+
+    private boolean load() throws IOException {
+        if (!Files.exists(cacheFile)) {
+            return false;
+        }
+
+        try (final DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile)))) {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION || !algorithm.equals(input.readUTF())) {
+                LOGGER.warn("Discarding incompatible hash cache [{}]", cacheFile);
+
+                return false;
+            }
+
+            while (true) {
+                final String key;
+                try {
+                    key = input.readUTF();
+                } catch (final EOFException ignored) {
+                    return true;
+                }
+
+                entries.put(key, new Entry(input.readLong(), input.readLong(), input.readUTF(), input.readUTF()));
+                recordsCount++;
+            }
+        } catch (final IOException e) {
+            LOGGER.warn("Discarding unreadable records at the end of hash cache [{}] ([{}]: [{}])",
+                        cacheFile, e.getClass().getSimpleName(), e.getMessage());
+
+            return false;
+        }
+    }
+
+    private int evict() {
+        final int sizeBefore = entries.size();
+
+        entries.keySet()
+               .parallelStream()
+               .filter(key -> !touchedKeys.contains(key))
+               .filter(key -> !Files.exists(Paths.get(key)))
+               .forEach(entries::remove);
+
+        return sizeBefore - entries.size();
+    }
+
+    private void compact() throws IOException {
+        final Path parent = cacheFile.getParent();
+        Files.createDirectories(parent);
+
+        final Path tmpFile = Files.createTempFile(parent, cacheFile.getFileName().toString(), ".tmp");
+
+        try (final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpFile)))) {
+            writeHeader(output);
+
+            for (final Map.Entry<String, Entry> e : entries.entrySet()) {
+                write(output, e.getKey(), e.getValue());
+            }
+        }
+
+        Files.move(tmpFile, cacheFile, ATOMIC_MOVE, REPLACE_EXISTING);
+
+        recordsCount = entries.size();
+    }
+
+    private DataOutputStream newAppender() throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(cacheFile, CREATE, APPEND)));
+    }
+
+    private void writeHeader(final DataOutputStream output) throws IOException {
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        output.writeUTF(algorithm);
+    }
+
+    private void write(final DataOutputStream output, final String key, final Entry entry) throws IOException {
+        output.writeUTF(key);
+        output.writeLong(entry.size);
+        output.writeLong(entry.lastModifiedTime);
+        output.writeUTF(entry.fileKey);
+        output.writeUTF(entry.digest);
+
+        recordsCount++;
+    }
+
+    private static String getKey(final PathElement pathElement) {
+        return pathElement.getPath().toAbsolutePath().normalize().toString();
+    }
+
+    private static String getFileKey(final PathElement pathElement) {
+        return Objects.toString(pathElement.fileKey(), "");
+    }
+
+    private static final class Entry {
+
+        private final long size;
+        private final long lastModifiedTime;
+        private final String fileKey;
+        private final String digest;
+
+        private Entry(final long size, final long lastModifiedTime, final String fileKey, final String digest) {
+            this.size = size;
+            this.lastModifiedTime = lastModifiedTime;
+            this.fileKey = fileKey;
+            this.digest = digest;
+        }
+
+        private boolean matches(final PathElement pathElement) {
+            return size == pathElement.size()
+                   && lastModifiedTime == pathElement.lastModifiedTime()
+                   && fileKey.equals(getFileKey(pathElement));
+        }
+
+    }
+
+}
@@ -0,0 +1,133 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Christophe Bismuth
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.github.cbismuth.fdupes.io;
+
+import com.github.cbismuth.fdupes.cli.SystemPropertyGetter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+final class HashContext {
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private static final ThreadLocal<Map<HashAlgorithm, HashContext>> CONTEXTS = ThreadLocal.withInitial(() -> new EnumMap<>(HashAlgorithm.class));
+
+    private static final Map<HashAlgorithm, BlockingQueue<HashContext>> POOLS = new ConcurrentHashMap<>();
+
+    // a virtual thread runs a single task, contexts are lent by a pool as large as the reads in flight
+    static HashContext acquire(final SystemPropertyGetter systemPropertyGetter) {
+        final HashAlgorithm algorithm = systemPropertyGetter.getHashAlgorithm();
+
+        if (systemPropertyGetter.getExecutionMode() != ExecutionMode.VIRTUAL) {
+            return CONTEXTS.get().computeIfAbsent(algorithm, a -> new HashContext(a, null));
+        }
+
+        final BlockingQueue<HashContext> pool = POOLS.computeIfAbsent(algorithm, a -> new ArrayBlockingQueue<>(systemPropertyGetter.getDefaultIoConcurrency()));
+        final HashContext context = pool.poll();
+
+        return context != null ? context : new HashContext(algorithm, pool);
+    }
+
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+    private final ContentHasher digest;
+    private final byte[] digestBytes;
+    private final char[] hexChars;
+    private final BlockingQueue<HashContext> pool;
+
+    private HashContext(final HashAlgorithm algorithm, final BlockingQueue<HashContext> pool) {
+        this.pool = pool;
+
+        digest = algorithm.newHasher();
+        digestBytes = new byte[digest.getDigestLength()];
+        hexChars = new char[digestBytes.length * 2];
+    }
+
+    // beyond the pool capacity, contexts are left to the garbage collector
+    void release() {
+        if (pool != null) {
+            pool.offer(this);
+        }
+    }
+
+    void reset() {
+        digest.reset();
+    }
+
+    long update(final FileChannel channel) throws IOException {
+        long total = 0L;
+
+        buffer.clear();
+        while (channel.read(buffer) >= 0) {
+            buffer.flip();
+            total += buffer.remaining();
+            digest.update(buffer);
+            buffer.clear();
+        }
+
+        return total;
+    }
+
+    long update(final FileChannel channel, final long position, final long length) throws IOException {
+        long total = 0L;
+
+        while (total < length) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), length - total));
+
+            final int read = channel.read(buffer, position + total);
+            if (read < 0) {
+                break;
+            }
+
+            buffer.flip();
+            total += buffer.remaining();
+            digest.update(buffer);
+        }
+
+        return total;
+    }
+
+    String digestAsHexString() {
+        final int length = digest.digest(digestBytes);
+
+        for (int i = 0; i < length; i++) {
+            final int b = digestBytes[i] & 0xFF;
+
+            hexChars[i * 2] = HEX_DIGITS[b >>> 4];
+            hexChars[i * 2 + 1] = HEX_DIGITS[b & 0x0F];
+        }
+
+        return new String(hexChars, 0, length * 2);
+    }
+
+}
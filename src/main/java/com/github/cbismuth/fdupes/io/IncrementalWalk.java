@@ -0,0 +1,233 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Christophe Bismuth
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.github.cbismuth.fdupes.io;
+
+import com.github.cbismuth.fdupes.container.immutable.DuplicateGroup;
+import com.github.cbismuth.fdupes.container.immutable.PathElement;
+import com.github.cbismuth.fdupes.metrics.Stage;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+import static com.google.common.collect.Sets.newConcurrentHashSet;
+import static org.slf4j.LoggerFactory.getLogger;
+
+// directory mtimes only change when entries are added, removed or renamed, in-place rewrites of
+// files in an unchanged directory go unnoticed until the directory itself changes
+final class IncrementalWalk {
+
+    private static final Logger LOGGER = getLogger(IncrementalWalk.class);
+
+    // coarsest directory mtime resolution among common file systems (FAT), ext3 and HFS+ tick every second
+    private static final long TIMESTAMP_GRANULARITY_MILLIS = 2000L;
+
+    private final Path snapshotFile;
+    private final long filterHash;
+    private final long startTime = System.currentTimeMillis();
+    private final WalkSnapshot previous;
+
+    private final Map<String, WalkSnapshot.Listing> listings = new ConcurrentHashMap<>();
+    private final Set<Long> touchedSizes = newConcurrentHashSet();
+    private final Collection<DuplicateGroup> groups = new ConcurrentLinkedQueue<>();
+
+    private IncrementalWalk(final Path snapshotFile,
+                            final long filterHash,
+                            final WalkSnapshot previous) {
+        this.snapshotFile = snapshotFile;
+        this.filterHash = filterHash;
+        this.previous = previous;
+    }
+
+    static IncrementalWalk open(final Path snapshotFile, final long filterHash) {
+        final WalkSnapshot previous = WalkSnapshot.load(snapshotFile, filterHash);
+
+        LOGGER.info("Walk snapshot loaded from [{}] with {} directories and {} duplicate groups",
+                    snapshotFile, previous.getDirectories().size(), previous.getGroups().size());
+
+        return new IncrementalWalk(snapshotFile, filterHash, previous);
+    }
+
+    // racily clean directories, modified within a timestamp tick of the previous walk, may have changed
+    // again in the same tick without their mtime telling so, they're listed until their mtime gets old enough
+    WalkSnapshot.Directory getUnchanged(final Path directory, final long lastModifiedTime) {
+        final WalkSnapshot.Directory record = previous.getDirectory(WalkSnapshot.getKey(directory));
+
+        if (record == null || record.getLastModifiedTime() != lastModifiedTime) {
+            return null;
+        }
+
+        return lastModifiedTime < previous.getStartTime() - TIMESTAMP_GRANULARITY_MILLIS ? record : null;
+    }
+
+    void onReused(final Path directory, final WalkSnapshot.Listing listing) {
+        Stage.WALK.meter("directories", "unchanged").mark();
+
+        listings.put(WalkSnapshot.getKey(directory), listing);
+    }
+
+    void onListed(final Path directory, final WalkSnapshot.Listing listing) {
+        final String key = WalkSnapshot.getKey(directory);
+        final WalkSnapshot.Directory record = previous.getDirectory(key);
+
+        listings.put(key, listing);
+
+        if (record == null) {
+            listing.getFiles().forEach(this::touch);
+            return;
+        }
+
+        final Map<String, WalkSnapshot.FileRecord> previousFiles = new HashMap<>();
+        record.getFiles().forEach(file -> previousFiles.put(file.getName(), file));
+
+        for (final PathElement file : listing.getFiles()) {
+            final WalkSnapshot.FileRecord previousFile = previousFiles.remove(String.valueOf(file.getPath().getFileName()));
+
+            if (previousFile == null || !previousFile.matches(file)) {
+                touch(file);
+            }
+            if (previousFile != null && previousFile.size() != file.size()) {
+                touchedSizes.add(previousFile.size());
+            }
+        }
+
+        // deleted files
+        previousFiles.values().forEach(file -> touchedSizes.add(file.size()));
+    }
+
+    void touch(final PathElement pathElement) {
+        touchedSizes.add(pathElement.size());
+    }
+
+    Consumer<DuplicateGroup> record(final Consumer<DuplicateGroup> groupListener) {
+        return group -> {
+            groups.add(group);
+            groupListener.accept(group);
+        };
+    }
+
+    Collection<PathElement> select(final Collection<PathElement> elements,
+                                   final Set<PathElement> uniqueElements,
+                                   final Consumer<DuplicateGroup> groupListener) {
+        // directories gone since the previous walk
+        previous.getDirectories().forEach((key, directory) -> {
+            if (!listings.containsKey(key)) {
+                directory.getFiles().forEach(file -> touchedSizes.add(file.size()));
+            }
+        });
+
+        final Set<String> wantedMembers = new HashSet<>();
+        final Set<Long> reusableSizes = new HashSet<>();
+        previous.getGroups()
+                .stream()
+                .filter(group -> !touchedSizes.contains(group.getFileSize()))
+                .forEach(group -> {
+                    reusableSizes.add(group.getFileSize());
+                    wantedMembers.addAll(group.getMembers());
+                });
+
+        final Map<String, PathElement> resolvedMembers = new HashMap<>(wantedMembers.size() * 4 / 3 + 1);
+        for (final PathElement element : elements) {
+            if (reusableSizes.contains(element.size())) {
+                final String key = WalkSnapshot.getKey(element.getPath());
+
+                if (wantedMembers.contains(key)) {
+                    resolvedMembers.put(key, element);
+                }
+            }
+        }
+
+        final Map<WalkSnapshot.Group, List<PathElement>> reusableGroups = new LinkedHashMap<>();
+        for (final WalkSnapshot.Group group : previous.getGroups()) {
+            if (touchedSizes.contains(group.getFileSize())) {
+                continue;
+            }
+
+            final List<PathElement> members = new ArrayList<>(group.getMembers().size());
+            group.getMembers().forEach(member -> {
+                final PathElement element = resolvedMembers.get(member);
+
+                if (element != null) {
+                    members.add(element);
+                }
+            });
+
+            if (members.size() == group.getMembers().size()) {
+                reusableGroups.put(group, members);
+            } else {
+                // a member left the walked roots, the whole size group is compared again
+                touchedSizes.add(group.getFileSize());
+            }
+        }
+
+        final Set<PathElement> reusedMembers = new HashSet<>();
+        int reusedCount = 0;
+        for (final Map.Entry<WalkSnapshot.Group, List<PathElement>> e : reusableGroups.entrySet()) {
+            if (touchedSizes.contains(e.getKey().getFileSize())) {
+                continue;
+            }
+
+            final List<PathElement> members = e.getValue();
+
+            reusedMembers.addAll(members);
+            uniqueElements.add(members.get(0));
+            groupListener.accept(new DuplicateGroup(members, e.getKey().getDigest()));
+
+            reusedCount++;
+        }
+
+        final List<PathElement> candidates = new ArrayList<>();
+        for (final PathElement element : elements) {
+            if (touchedSizes.contains(element.size())) {
+                candidates.add(element);
+            } else if (!reusedMembers.contains(element)) {
+                uniqueElements.add(element);
+            }
+        }
+
+        LOGGER.info("Incremental walk reused {} duplicate group(s), {} file(s) in {} touched size group(s) to compare",
+                    reusedCount, candidates.size(), touchedSizes.size());
+
+        return candidates;
+    }
+
+    void save() throws IOException {
+        WalkSnapshot.save(snapshotFile, filterHash, startTime, listings, groups);
+
+        LOGGER.info("Walk snapshot saved to [{}] with {} directories and {} duplicate groups", snapshotFile, listings.size(), groups.size());
+    }
+
+}
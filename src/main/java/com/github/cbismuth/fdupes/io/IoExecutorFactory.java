@@ -0,0 +1,149 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Christophe Bismuth
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.github.cbismuth.fdupes.io;
+
+import com.github.cbismuth.fdupes.cli.SystemPropertyGetter;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+@Component
+public class IoExecutorFactory {
+
+    private static final Logger LOGGER = getLogger(IoExecutorFactory.class);
+
+    private final SystemPropertyGetter systemPropertyGetter;
+
+    private volatile boolean virtualThreadsWarned = false;
+
+    public IoExecutorFactory(final SystemPropertyGetter systemPropertyGetter) {
+        this.systemPropertyGetter = systemPropertyGetter;
+    }
+
+    public ExecutorService newExecutor(final String name, final int concurrency) {
+        Preconditions.checkNotNull(name, "null executor name");
+        Preconditions.checkArgument(concurrency > 0, "executor concurrency must be positive");
+
+        if (systemPropertyGetter.getExecutionMode() == ExecutionMode.VIRTUAL) {
+            try {
+                return new BoundedExecutorService(newVirtualThreadPerTaskExecutor(name + "-virtual"), concurrency);
+            } catch (final ReflectiveOperationException ignored) {
+                if (!virtualThreadsWarned) {
+                    virtualThreadsWarned = true;
+
+                    LOGGER.warn("Virtual threads aren't available on Java {}, fallback to platform threads", System.getProperty("java.specification.version"));
+                }
+            }
+        }
+
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(concurrency, concurrency,
+                                                                   1L, TimeUnit.MINUTES,
+                                                                   new LinkedBlockingQueue<>(),
+                                                                   new ThreadFactoryBuilder().setNameFormat(name.replace("%", "%%") + "-%d")
+                                                                                             .setDaemon(true)
+                                                                                             .build());
+        executor.allowCoreThreadTimeOut(true);
+
+        return executor;
+    }
+
+    // Thread.ofVirtual() and Executors.newThreadPerTaskExecutor() ship with Java 21+
+    private static ExecutorService newVirtualThreadPerTaskExecutor(final String threadName) throws ReflectiveOperationException {
+        final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+
+        final Object builder = builderClass.getMethod("name", String.class)
+                                           .invoke(Thread.class.getMethod("ofVirtual").invoke(null), threadName);
+        final ThreadFactory threadFactory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+
+        return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                                                .invoke(null, threadFactory);
+    }
+
+    private static final class BoundedExecutorService extends AbstractExecutorService {
+
+        private final ExecutorService delegate;
+        private final Semaphore inFlight;
+
+        private BoundedExecutorService(final ExecutorService delegate, final int maxInFlight) {
+            this.delegate = delegate;
+            this.inFlight = new Semaphore(maxInFlight, true);
+        }
+
+        @Override
+        public void execute(final Runnable command) {
+            // parked virtual threads are cheap, waiting in them never blocks submitters feeding other stores
+            // nor tasks submitting more tasks (e.g. subdirectories) while holding a permit
+            delegate.execute(() -> {
+                inFlight.acquireUninterruptibly();
+
+                try {
+                    command.run();
+                } finally {
+                    inFlight.release();
+                }
+            });
+        }
+
+        @Override
+        public void shutdown() {
+            delegate.shutdown();
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return delegate.shutdownNow();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return delegate.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return delegate.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(final long timeout, final TimeUnit unit) throws InterruptedException {
+            return delegate.awaitTermination(timeout, unit);
+        }
+
+    }
+
+}
@@ -0,0 +1,219 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Christophe Bismuth
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.github.cbismuth.fdupes.io;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.github.cbismuth.fdupes.cli.SystemPropertyGetter;
+import com.github.cbismuth.fdupes.container.immutable.PathElement;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import org.slf4j.Logger;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static com.github.cbismuth.fdupes.metrics.MetricNames.withLabel;
+import static com.github.cbismuth.fdupes.metrics.MetricRegistrySingleton.getMetricRegistry;
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toList;
+import static org.slf4j.LoggerFactory.getLogger;
+
+@Component
+public class IoScheduler {
+
+    private static final Logger LOGGER = getLogger(IoScheduler.class);
+
+    private static final String UNKNOWN_STORE = "unknown";
+
+    private final IoExecutorFactory ioExecutorFactory;
+    private final SystemPropertyGetter systemPropertyGetter;
+
+    // keyed by device id, or by root directory where file keys don't tell the device,
+    // store names aren't unique (e.g. every tmpfs) and only label metrics and look settings up
+    private final Map<Object, Store> storesByVolume = new ConcurrentHashMap<>();
+
+    public IoScheduler(final IoExecutorFactory ioExecutorFactory,
+                       final SystemPropertyGetter systemPropertyGetter) {
+        this.ioExecutorFactory = ioExecutorFactory;
+        this.systemPropertyGetter = systemPropertyGetter;
+    }
+
+    public <T> void forEach(final Collection<T> tasks,
+                            final Function<T, PathElement> locator,
+                            final Consumer<T> action) {
+        forEach(tasks, locator, action, true);
+    }
+
+    // tasks that don't read file contents (e.g. moves) are scheduled alike but left out of read meters
+    public <T> void forEach(final Collection<T> tasks,
+                            final Function<T, PathElement> locator,
+                            final Consumer<T> action,
+                            final boolean reads) {
+        Preconditions.checkNotNull(tasks, "null I/O task collection");
+        Preconditions.checkNotNull(locator, "null I/O task locator");
+        Preconditions.checkNotNull(action, "null I/O task action");
+
+        final List<Future<?>> futures = new ArrayList<>(tasks.size());
+
+        order(tasks, locator).forEach(task -> {
+            final PathElement pathElement = locator.apply(task);
+            final Store store = getStore(pathElement);
+
+            store.queued.incrementAndGet();
+            futures.add(store.executor.submit(() -> {
+                store.queued.decrementAndGet();
+
+                action.accept(task);
+
+                if (reads) {
+                    store.files.mark();
+                    store.bytes.mark(pathElement.size());
+                }
+            }));
+        });
+
+        for (final Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+
+                throw Throwables.propagate(e);
+            } catch (final ExecutionException e) {
+                throw Throwables.propagate(e.getCause());
+            }
+        }
+    }
+
+    public <K> Map<PathElement, K> computeAll(final Collection<PathElement> input,
+                                              final Function<PathElement, K> mapper) {
+        Preconditions.checkNotNull(mapper, "null I/O task mapper");
+
+        final Map<PathElement, K> result = new ConcurrentHashMap<>(input.size());
+
+        forEach(input, identity(), pathElement -> result.put(pathElement, mapper.apply(pathElement)));
+
+        return result;
+    }
+
+    private <T> Collection<T> order(final Collection<T> tasks,
+                                    final Function<T, PathElement> locator) {
+        final ReadOrdering ordering = systemPropertyGetter.getIoOrdering();
+
+        if (ordering == ReadOrdering.NONE) {
+            return tasks;
+        }
+
+        return tasks.stream()
+                    .map(task -> new SimpleImmutableEntry<>(ordering.getSortKey(locator.apply(task)), task))
+                    .sorted((e1, e2) -> ReadOrdering.compareSortKeys(e1.getKey(), e2.getKey()))
+                    .map(Map.Entry::getValue)
+                    .collect(toList());
+    }
+
+    @PreDestroy
+    public void close() {
+        storesByVolume.values().forEach(store -> store.executor.shutdownNow());
+    }
+
+    private Store getStore(final PathElement pathElement) {
+        final OptionalLong device = pathElement.device();
+        final Path path = pathElement.getPath().toAbsolutePath();
+
+        final Object volume = device.isPresent() ? device.getAsLong() : path.getRoot();
+        final Store store = storesByVolume.get(volume);
+        if (store != null) {
+            return store;
+        }
+
+        final String volumeId = device.isPresent() ? Long.toHexString(device.getAsLong()) : String.valueOf(path.getRoot());
+
+        return storesByVolume.computeIfAbsent(volume, ignored -> newStore(volumeId, path.getParent()));
+    }
+
+    private Store newStore(final String volumeId, final Path directory) {
+        String name;
+        try {
+            final FileStore fileStore = Files.getFileStore(directory);
+
+            name = fileStore.name();
+        } catch (final IOException | SecurityException e) {
+            LOGGER.warn("Can't resolve file store of [{}] ([{}]: [{}])", directory, e.getClass().getSimpleName(), e.getMessage());
+
+            name = UNKNOWN_STORE;
+        }
+
+        return new Store(name, volumeId);
+    }
+
+    private static String getMetricName(final String storeName, final String volumeId, final String... names) {
+        return withLabel(withLabel(name("io.store", names), "store", storeName), "volume", volumeId);
+    }
+
+    private final class Store {
+
+        private final ExecutorService executor;
+        private final AtomicInteger queued = new AtomicInteger();
+        private final Meter files;
+        private final Meter bytes;
+
+        private Store(final String name, final String volumeId) {
+            final int concurrency = systemPropertyGetter.getIoConcurrency(name);
+
+            executor = ioExecutorFactory.newExecutor("fdupes-io-" + name + "-" + volumeId, concurrency);
+
+            files = getMetricRegistry().meter(getMetricName(name, volumeId, "files"));
+            bytes = getMetricRegistry().meter(getMetricName(name, volumeId, "bytes"));
+
+            final String queueDepth = getMetricName(name, volumeId, "queue", "depth");
+            getMetricRegistry().remove(queueDepth);
+            getMetricRegistry().register(queueDepth, (Gauge<Integer>) queued::get);
+
+            LOGGER.info("I/O scheduler serves file store [{}] on volume [{}] with {} concurrent reader(s)", name, volumeId, concurrency);
+        }
+
+
+    }
+
+}
@@ -24,17 +24,19 @@
 
 package com.github.cbismuth.fdupes.io;
 
-import com.codahale.metrics.Timer;
+import com.github.cbismuth.fdupes.cli.SystemPropertyGetter;
 import com.github.cbismuth.fdupes.container.immutable.PathElement;
+import com.github.cbismuth.fdupes.metrics.Stage;
 import com.google.common.base.Preconditions;
-import com.google.common.base.Throwables;
 import org.slf4j.Logger;
 import org.springframework.stereotype.Component;
-import org.zeroturnaround.exec.ProcessExecutor;
 
-import static com.codahale.metrics.MetricRegistry.name;
-import static com.github.cbismuth.fdupes.metrics.MetricRegistrySingleton.getMetricRegistry;
-import static com.google.common.collect.Lists.newArrayList;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.Optional;
+import java.util.function.LongConsumer;
+
+import static java.nio.file.StandardOpenOption.READ;
 import static java.util.UUID.randomUUID;
 import static org.slf4j.LoggerFactory.getLogger;
 
@@ -43,33 +45,65 @@ public class Md5Computer {
 
     private static final Logger LOGGER = getLogger(Md5Computer.class);
 
+    private final HashCache hashCache;
+    private final SystemPropertyGetter systemPropertyGetter;
+
+    public Md5Computer(final HashCache hashCache,
+                       final SystemPropertyGetter systemPropertyGetter) {
+        this.hashCache = hashCache;
+        this.systemPropertyGetter = systemPropertyGetter;
+    }
+
     public String compute(final PathElement pathElement) {
+        return compute(pathElement, readBytes -> {});
+    }
+
+    // read bytes are only reported for files actually hashed, not for cache hits
+    public String compute(final PathElement pathElement, final LongConsumer readBytes) {
         Preconditions.checkNotNull(pathElement, "null file metadata");
+        Preconditions.checkNotNull(readBytes, "null read bytes consumer");
+
+        final Optional<String> cached = hashCache.get(pathElement);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+
+        try (final Stage.Context ignored = Stage.HASH.start()) {
+            final String digest = doIt(pathElement, readBytes);
 
-        try (final Timer.Context ignored = getMetricRegistry().timer(name("md5", "timer")).time()) {
-            return doIt(pathElement);
+            hashCache.put(pathElement, digest);
+
+            return digest;
         } catch (final Exception e) {
-            LOGGER.error("Can't compute MD5 from file [{}] ([{}]: [{}])",
-                         pathElement.getPath(), e.getClass().getSimpleName(), e.getMessage());
+            LOGGER.error("Can't compute {} from file [{}] ([{}]: [{}])",
+                         systemPropertyGetter.getHashAlgorithm().getName(), pathElement.getPath(), e.getClass().getSimpleName(), e.getMessage());
 
             return randomUUID().toString();
         }
     }
 
-    private String doIt(final PathElement element) {
+    private String doIt(final PathElement element, final LongConsumer readBytes) throws IOException {
+        final HashContext context = HashContext.acquire(systemPropertyGetter);
         try {
-            return new ProcessExecutor().command(getNativeMd5Command(element))
-                                        .readOutput(true)
-                                        .execute()
-                                        .outputString()
-                                        .split("\\s")[1];
-        } catch (final Throwable e) {
-            throw Throwables.propagate(e);
+            return doIt(element, context, readBytes);
+        } finally {
+            context.release();
         }
     }
 
-    private Iterable<String> getNativeMd5Command(final PathElement element) {
-        return newArrayList("openssl", "md5", element.getPath().toString());
+    private String doIt(final PathElement element, final HashContext context, final LongConsumer readBytes) throws IOException {
+        context.reset();
+
+        final long total;
+        try (final FileChannel channel = FileChannel.open(element.getPath(), READ)) {
+            total = context.update(channel);
+        }
+
+        Stage.HASH.markFiles(1L);
+        Stage.HASH.markBytes(total);
+        readBytes.accept(total);
+
+        return context.digestAsHexString();
     }
 
 }
@@ -24,21 +24,33 @@
 
 package com.github.cbismuth.fdupes.io;
 
+import com.codahale.metrics.Timer;
 import com.github.cbismuth.fdupes.collect.PathAnalyser;
 import com.github.cbismuth.fdupes.container.immutable.PathElement;
-import org.apache.commons.io.FileUtils;
+import com.github.cbismuth.fdupes.metrics.Stage;
 import org.apache.commons.io.FilenameUtils;
 import org.slf4j.Logger;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.Set;
+import java.util.TreeSet;
 
 import static java.lang.System.currentTimeMillis;
+import static java.nio.file.LinkOption.NOFOLLOW_LINKS;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
 import static org.slf4j.LoggerFactory.getLogger;
 
 @Component
@@ -47,9 +59,12 @@ public class PathOrganizer {
     private static final Logger LOGGER = getLogger(PathOrganizer.class);
 
     private final PathAnalyser pathAnalyser;
+    private final IoScheduler ioScheduler;
 
-    public PathOrganizer(final PathAnalyser pathAnalyser) {
+    public PathOrganizer(final PathAnalyser pathAnalyser,
+                         final IoScheduler ioScheduler) {
         this.pathAnalyser = pathAnalyser;
+        this.ioScheduler = ioScheduler;
     }
 
     public void organize(final Iterable<PathElement> uniqueElements) throws IOException {
@@ -62,62 +77,135 @@ public class PathOrganizer {
         final Path directoryToCreate = Paths.get(workingDirectory, subDirectoryName);
         final Path destination = Files.createDirectory(directoryToCreate);
 
-        moveUniqueFiles(destination, uniqueElements);
+        try (final Timer.Context ignored = Stage.ORGANIZE.timePass()) {
+            moveUniqueFiles(destination, uniqueElements);
+        }
     }
 
     private void moveUniqueFiles(final Path destination,
-                                 final Iterable<PathElement> uniqueElements) {
-        final AtomicInteger counter = new AtomicInteger(1);
+                                 final Iterable<PathElement> uniqueElements) throws IOException {
+        final List<Move> moves = plan(destination, uniqueElements);
+
+        // a handful of year/month directories serve every move, created once up front
+        final Set<Path> directories = new TreeSet<>();
+        moves.forEach(move -> directories.add(move.target.getParent()));
+        for (final Path directory : directories) {
+            Files.createDirectories(directory);
+        }
+
+        // moves are bounded per source file store like reads, and counted by the organize stage only
+        ioScheduler.forEach(moves, move -> move.pathElement, this::move, false);
+    }
+
+    private List<Move> plan(final Path destination,
+                            final Iterable<PathElement> uniqueElements) {
+        final List<Move> moves = new ArrayList<>();
 
-        uniqueElements.forEach(pathElement -> {
-            final Optional<Path> timestampPath = pathAnalyser.getTimestampPath(destination, pathElement.getPath());
+        // the destination is brand new, names planned in memory are the only ones taken
+        final PathAnalyser.Planner planner = pathAnalyser.newPlanner(destination);
+        final Path misc = Paths.get(destination.toString(), "misc");
+        int counter = 1;
+
+        for (final PathElement pathElement : uniqueElements) {
+            final Optional<Path> timestampPath = planner.getTimestampPath(pathElement.getPath());
 
             if (timestampPath.isPresent()) {
-                onTimestampPath(pathElement, timestampPath.get());
+                moves.add(new Move(pathElement, timestampPath.get()));
             } else {
-                onNoTimestampPath(destination, pathElement, counter);
+                moves.add(new Move(pathElement, misc.resolve(getMiscName(pathElement.getPath(), counter++))));
             }
-        });
+        }
+
+        return moves;
     }
 
-    private void onTimestampPath(final PathElement pathElement, final Path timestampPath) {
-        try {
-            FileUtils.moveFile(
-                pathElement.getPath().toFile(),
-                timestampPath.toFile()
-            );
+    private static String getMiscName(final Path path, final int count) {
+        final String baseName = FilenameUtils.getBaseName(path.toString());
+        final String extension = FilenameUtils.getExtension(path.toString());
+
+        return String.format("%s-%d.%s", baseName, count, extension);
+    }
+
+    private void move(final Move move) {
+        try (final Stage.Context ignored = Stage.ORGANIZE.start()) {
+            rename(move.pathElement.getPath(), move.target);
+
+            Stage.ORGANIZE.markFiles(1L);
+            Stage.ORGANIZE.markBytes(move.pathElement.size());
         } catch (final IOException e) {
-            LOGGER.error(e.getMessage());
+            LOGGER.error("Can't move [{}] to [{}] ([{}]: [{}])", move.pathElement.getPath(), move.target, e.getClass().getSimpleName(), e.getMessage());
+
+            Stage.ORGANIZE.markErrors(1L);
         }
     }
 
-    private void onNoTimestampPath(final Path destination,
-                                   final PathElement pathElement,
-                                   final AtomicInteger counter) {
-        final Path path = pathElement.getPath();
-
-        final String baseName = FilenameUtils.getBaseName(path.toString());
-        final int count = counter.getAndIncrement();
-        final String extension = FilenameUtils.getExtension(path.toString());
+    // rename(2) silently replaces an existing target, a hard link never does
+    static void rename(final Path source, final Path target) throws IOException {
+        try {
+            Files.createLink(target, source);
+        } catch (final FileAlreadyExistsException e) {
+            throw e;
+        } catch (final IOException | UnsupportedOperationException ignored) {
+            // across file stores, or on file systems without hard links
+            moveIfAbsent(source, target);
+
+            return;
+        }
 
-        final String newName = String.format("%s-%d.%s", baseName, count, extension);
+        Files.delete(source);
+    }
 
-        final Path sibling = path.resolveSibling(newName);
+    private static void moveIfAbsent(final Path source, final Path target) throws IOException {
+        if (Files.exists(target, NOFOLLOW_LINKS)) {
+            throw new FileAlreadyExistsException(target.toString());
+        }
 
         try {
-            FileUtils.moveFile(
-                path.toFile(),
-                sibling.toFile()
-            );
-
-            FileUtils.moveFileToDirectory(
-                sibling.toFile(),
-                Paths.get(destination.toString(), "misc").toFile(),
-                true
-            );
-        } catch (final IOException e) {
-            LOGGER.error(e.getMessage());
+            Files.move(source, target, ATOMIC_MOVE);
+        } catch (final AtomicMoveNotSupportedException ignored) {
+            transfer(source, target);
         }
     }
 
+    // across file stores, the kernel copies without going through user space where it can
+    static void transfer(final Path source, final Path target) throws IOException {
+        try (final FileChannel input = FileChannel.open(source, READ);
+             final FileChannel output = FileChannel.open(target, CREATE_NEW, WRITE)) {
+            try {
+                final long size = input.size();
+
+                long position = 0L;
+                while (position < size) {
+                    final long transferred = input.transferTo(position, size - position, output);
+
+                    // nothing left to transfer before the expected size, the source shrank meanwhile
+                    if (transferred <= 0L) {
+                        throw new IOException("File [" + source + "] truncated while copied");
+                    }
+
+                    position += transferred;
+                }
+            } catch (final IOException e) {
+                Files.deleteIfExists(target);
+
+                throw e;
+            }
+        }
+
+        Files.setLastModifiedTime(target, Files.getLastModifiedTime(source));
+        Files.delete(source);
+    }
+
+    private static final class Move {
+
+        private final PathElement pathElement;
+        private final Path target;
+
+        private Move(final PathElement pathElement, final Path target) {
+            this.pathElement = pathElement;
+            this.target = target;
+        }
+
+    }
+
 }
@@ -0,0 +1,89 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Christophe Bismuth
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.github.cbismuth.fdupes.io;
+
+import com.github.cbismuth.fdupes.container.immutable.PathElement;
+
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+public enum ReadOrdering {
+
+    NONE("none") {
+        @Override
+        public Object getSortKey(final PathElement pathElement) {
+            return null;
+        }
+    },
+    DIRECTORY("directory") {
+        @Override
+        public Object getSortKey(final PathElement pathElement) {
+            final Path path = pathElement.getPath();
+
+            return String.valueOf(path.getParent()) + '\u0000' + path.getFileName();
+        }
+    },
+    INODE("inode") {
+        @Override
+        public Object getSortKey(final PathElement pathElement) {
+            final Object fileKey = pathElement.fileKey();
+
+            return fileKey instanceof Comparable ? fileKey : DIRECTORY.getSortKey(pathElement);
+        }
+    };
+
+    private final String name;
+
+    ReadOrdering(final String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public abstract Object getSortKey(PathElement pathElement);
+
+    @SuppressWarnings("unchecked")
+    public static int compareSortKeys(final Object o1, final Object o2) {
+        if (o1 == null || o2 == null) {
+            return o1 == null ? (o2 == null ? 0 : 1) : -1;
+        }
+
+        if (o1.getClass() != o2.getClass()) {
+            return o1.getClass().getName().compareTo(o2.getClass().getName());
+        }
+
+        return ((Comparable<Object>) o1).compareTo(o2);
+    }
+
+    public static Optional<ReadOrdering> fromName(final String name) {
+        return Stream.of(values())
+                     .filter(ordering -> ordering.name.equalsIgnoreCase(name))
+                     .findFirst();
+    }
+
+}
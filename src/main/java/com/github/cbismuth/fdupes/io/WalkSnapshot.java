@@ -0,0 +1,371 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Christophe Bismuth
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.github.cbismuth.fdupes.io;
+
+import com.github.cbismuth.fdupes.container.immutable.DuplicateGroup;
+import com.github.cbismuth.fdupes.container.immutable.PathElement;
+import org.slf4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
+import static org.slf4j.LoggerFactory.getLogger;
+
+public final class WalkSnapshot {
+
+    private static final Logger LOGGER = getLogger(WalkSnapshot.class);
+
+    private static final int MAGIC = 0x46445053;
+    private static final int VERSION = 2;
+
+    private final long startTime;
+    private final Map<String, Directory> directories;
+    private final List<Group> groups;
+
+    private WalkSnapshot(final long startTime,
+                         final Map<String, Directory> directories,
+                         final List<Group> groups) {
+        this.startTime = startTime;
+        this.directories = directories;
+        this.groups = groups;
+    }
+
+    // a snapshot walked with other filter rules lists files the current rules may exclude, or misses included ones
+    public static WalkSnapshot load(final Path file, final long filterHash) {
+        if (!Files.exists(file)) {
+            return empty();
+        }
+
+        try (final DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                LOGGER.warn("Discarding incompatible walk snapshot [{}]", file);
+
+                return empty();
+            }
+            if (input.readLong() != filterHash) {
+                LOGGER.info("Discarding walk snapshot [{}] taken with other include, exclude or stop word rules", file);
+
+                return empty();
+            }
+
+            final long startTime = input.readLong();
+
+            final int directoryCount = input.readInt();
+            final Map<String, Directory> directories = new HashMap<>(directoryCount * 4 / 3 + 1);
+            for (int i = 0; i < directoryCount; i++) {
+                final String key = input.readUTF();
+                final long lastModifiedTime = input.readLong();
+
+                final int subdirectoryCount = input.readInt();
+                final List<String> subdirectories = new ArrayList<>(subdirectoryCount);
+                for (int j = 0; j < subdirectoryCount; j++) {
+                    subdirectories.add(input.readUTF());
+                }
+
+                final int fileCount = input.readInt();
+                final List<FileRecord> files = new ArrayList<>(fileCount);
+                for (int j = 0; j < fileCount; j++) {
+                    files.add(new FileRecord(input.readUTF(), input.readLong(), input.readLong(), input.readLong(), input.readLong(), input.readUTF()));
+                }
+
+                directories.put(key, new Directory(lastModifiedTime, subdirectories, files));
+            }
+
+            final int groupCount = input.readInt();
+            final List<Group> groups = new ArrayList<>(groupCount);
+            for (int i = 0; i < groupCount; i++) {
+                final long size = input.readLong();
+                final String digest = input.readUTF();
+
+                final int memberCount = input.readInt();
+                final List<String> members = new ArrayList<>(memberCount);
+                for (int j = 0; j < memberCount; j++) {
+                    members.add(input.readUTF());
+                }
+
+                groups.add(new Group(size, digest, members));
+            }
+
+            return new WalkSnapshot(startTime, directories, groups);
+        } catch (final IOException e) {
+            LOGGER.warn("Discarding unreadable walk snapshot [{}] ([{}]: [{}])",
+                        file, e.getClass().getSimpleName(), e.getMessage());
+
+            return empty();
+        }
+    }
+
+    private static WalkSnapshot empty() {
+        return new WalkSnapshot(0L, emptyMap(), emptyList());
+    }
+
+    public static void save(final Path file,
+                            final long filterHash,
+                            final long startTime,
+                            final Map<String, Listing> listings,
+                            final Collection<DuplicateGroup> groups) throws IOException {
+        final Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+
+        final Path tmpFile = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+
+        try (final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpFile)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeLong(filterHash);
+            output.writeLong(startTime);
+
+            output.writeInt(listings.size());
+            for (final Map.Entry<String, Listing> e : listings.entrySet()) {
+                final Listing listing = e.getValue();
+
+                output.writeUTF(e.getKey());
+                output.writeLong(listing.lastModifiedTime);
+
+                output.writeInt(listing.subdirectories.size());
+                for (final String subdirectory : listing.subdirectories) {
+                    output.writeUTF(subdirectory);
+                }
+
+                output.writeInt(listing.files.size());
+                for (final PathElement element : listing.files) {
+                    output.writeUTF(String.valueOf(element.getPath().getFileName()));
+                    output.writeLong(element.size());
+                    output.writeLong(element.lastModifiedTime());
+                    output.writeLong(element.creationTime());
+                    output.writeLong(element.lastAccessTime());
+                    output.writeUTF(Objects.toString(element.fileKey(), ""));
+                }
+            }
+
+            output.writeInt(groups.size());
+            for (final DuplicateGroup group : groups) {
+                output.writeLong(group.getFileSize());
+                output.writeUTF(group.getDigest());
+
+                output.writeInt(group.getMembers().size());
+                for (final PathElement member : group.getMembers()) {
+                    output.writeUTF(getKey(member.getPath()));
+                }
+            }
+        }
+
+        Files.move(tmpFile, file, ATOMIC_MOVE, REPLACE_EXISTING);
+    }
+
+    public static String getKey(final Path path) {
+        return path.toAbsolutePath().normalize().toString();
+    }
+
+    // wall clock time the snapshot's walk started at, before any directory was listed
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public Directory getDirectory(final String key) {
+        return directories.get(key);
+    }
+
+    public Map<String, Directory> getDirectories() {
+        return directories;
+    }
+
+    public List<Group> getGroups() {
+        return groups;
+    }
+
+    public static final class Directory {
+
+        private final long lastModifiedTime;
+        private final List<String> subdirectories;
+        private final List<FileRecord> files;
+
+        private Directory(final long lastModifiedTime,
+                          final List<String> subdirectories,
+                          final List<FileRecord> files) {
+            this.lastModifiedTime = lastModifiedTime;
+            this.subdirectories = subdirectories;
+            this.files = files;
+        }
+
+        public long getLastModifiedTime() {
+            return lastModifiedTime;
+        }
+
+        public List<String> getSubdirectories() {
+            return subdirectories;
+        }
+
+        public List<FileRecord> getFiles() {
+            return files;
+        }
+
+    }
+
+    // attributes as stat'ed by the previous run, file keys keep their string form which the catalog parses back
+    public static final class FileRecord implements BasicFileAttributes {
+
+        private final String name;
+        private final long size;
+        private final long lastModifiedTime;
+        private final long creationTime;
+        private final long lastAccessTime;
+        private final String fileKey;
+
+        public FileRecord(final String name,
+                          final long size,
+                          final long lastModifiedTime,
+                          final long creationTime,
+                          final long lastAccessTime,
+                          final String fileKey) {
+            this.name = name;
+            this.size = size;
+            this.lastModifiedTime = lastModifiedTime;
+            this.creationTime = creationTime;
+            this.lastAccessTime = lastAccessTime;
+            this.fileKey = fileKey.isEmpty() ? null : fileKey;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public boolean matches(final PathElement pathElement) {
+            return size == pathElement.size() && lastModifiedTime == pathElement.lastModifiedTime();
+        }
+
+        @Override
+        public FileTime lastModifiedTime() {
+            return FileTime.fromMillis(lastModifiedTime);
+        }
+
+        @Override
+        public FileTime lastAccessTime() {
+            return FileTime.fromMillis(lastAccessTime);
+        }
+
+        @Override
+        public FileTime creationTime() {
+            return FileTime.fromMillis(creationTime);
+        }
+
+        @Override
+        public boolean isRegularFile() {
+            return true;
+        }
+
+        @Override
+        public boolean isDirectory() {
+            return false;
+        }
+
+        @Override
+        public boolean isSymbolicLink() {
+            return false;
+        }
+
+        @Override
+        public boolean isOther() {
+            return false;
+        }
+
+        @Override
+        public long size() {
+            return size;
+        }
+
+        @Override
+        public Object fileKey() {
+            return fileKey;
+        }
+
+    }
+
+    public static final class Group {
+
+        private final long size;
+        private final String digest;
+        private final List<String> members;
+
+        private Group(final long size,
+                      final String digest,
+                      final List<String> members) {
+            this.size = size;
+            this.digest = digest;
+            this.members = members;
+        }
+
+        public long getFileSize() {
+            return size;
+        }
+
+        public String getDigest() {
+            return digest;
+        }
+
+        public List<String> getMembers() {
+            return members;
+        }
+
+    }
+
+    public static final class Listing {
+
+        private final long lastModifiedTime;
+        private final List<String> subdirectories;
+        private final List<PathElement> files;
+
+        public Listing(final long lastModifiedTime,
+                       final List<String> subdirectories,
+                       final List<PathElement> files) {
+            this.lastModifiedTime = lastModifiedTime;
+            this.subdirectories = subdirectories;
+            this.files = files;
+        }
+
+        public List<PathElement> getFiles() {
+            return files;
+        }
+
+    }
+
+}
@@ -0,0 +1,165 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Christophe Bismuth
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.github.cbismuth.fdupes.io;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
+
+final class XxHash64Hasher implements ContentHasher {
+
+    private static final long PRIME64_1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME64_2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME64_3 = 0x165667B19E3779F9L;
+    private static final long PRIME64_4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME64_5 = 0x27D4EB2F165667C5L;
+
+    private static final int STRIPE_LENGTH = 32;
+    private static final int DIGEST_LENGTH = 8;
+
+    private final ByteBuffer memory = ByteBuffer.allocate(STRIPE_LENGTH).order(LITTLE_ENDIAN);
+
+    private long v1;
+    private long v2;
+    private long v3;
+    private long v4;
+    private long totalLength;
+
+    XxHash64Hasher() {
+        reset();
+    }
+
+    @Override
+    public String getAlgorithm() {
+        return "XXH64";
+    }
+
+    @Override
+    public int getDigestLength() {
+        return DIGEST_LENGTH;
+    }
+
+    @Override
+    public void reset() {
+        v1 = PRIME64_1 + PRIME64_2;
+        v2 = PRIME64_2;
+        v3 = 0L;
+        v4 = -PRIME64_1;
+        totalLength = 0L;
+
+        memory.clear();
+    }
+
+    @Override
+    public void update(final ByteBuffer buffer) {
+        final ByteOrder order = buffer.order();
+        buffer.order(LITTLE_ENDIAN);
+
+        totalLength += buffer.remaining();
+
+        if (memory.position() > 0) {
+            while (memory.hasRemaining() && buffer.hasRemaining()) {
+                memory.put(buffer.get());
+            }
+
+            if (!memory.hasRemaining()) {
+                memory.flip();
+                processStripe(memory);
+                memory.clear();
+            }
+        }
+
+        while (buffer.remaining() >= STRIPE_LENGTH) {
+            processStripe(buffer);
+        }
+
+        memory.put(buffer);
+
+        buffer.order(order);
+    }
+
+    @Override
+    public int digest(final byte[] output) {
+        long hash;
+
+        if (totalLength >= STRIPE_LENGTH) {
+            hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            hash = mergeRound(hash, v1);
+            hash = mergeRound(hash, v2);
+            hash = mergeRound(hash, v3);
+            hash = mergeRound(hash, v4);
+        } else {
+            hash = PRIME64_5;
+        }
+
+        hash += totalLength;
+
+        memory.flip();
+
+        while (memory.remaining() >= 8) {
+            hash ^= round(0L, memory.getLong());
+            hash = Long.rotateLeft(hash, 27) * PRIME64_1 + PRIME64_4;
+        }
+
+        if (memory.remaining() >= 4) {
+            hash ^= (memory.getInt() & 0xFFFFFFFFL) * PRIME64_1;
+            hash = Long.rotateLeft(hash, 23) * PRIME64_2 + PRIME64_3;
+        }
+
+        while (memory.hasRemaining()) {
+            hash ^= (memory.get() & 0xFFL) * PRIME64_5;
+            hash = Long.rotateLeft(hash, 11) * PRIME64_1;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= PRIME64_2;
+        hash ^= hash >>> 29;
+        hash *= PRIME64_3;
+        hash ^= hash >>> 32;
+
+        for (int i = 0; i < DIGEST_LENGTH; i++) {
+            output[i] = (byte) (hash >>> (8 * (DIGEST_LENGTH - 1 - i)));
+        }
+
+        return DIGEST_LENGTH;
+    }
+
+    private void processStripe(final ByteBuffer buffer) {
+        v1 = round(v1, buffer.getLong());
+        v2 = round(v2, buffer.getLong());
+        v3 = round(v3, buffer.getLong());
+        v4 = round(v4, buffer.getLong());
+    }
+
+    private static long round(final long accumulator, final long input) {
+        return Long.rotateLeft(accumulator + input * PRIME64_2, 31) * PRIME64_1;
+    }
+
+    private static long mergeRound(final long accumulator, final long value) {
+        return (accumulator ^ round(0L, value)) * PRIME64_1 + PRIME64_4;
+    }
+
+}
@@ -44,6 +44,8 @@ public class MetricController {
 
     private static final Logger LOGGER = getLogger(MetricController.class);
 
+    private final PrometheusFormatter prometheusFormatter = new PrometheusFormatter();
+
     @ResponseBody
     @RequestMapping(value = "/metrics",
                     method = GET,
@@ -63,4 +65,12 @@ public class MetricController {
         }
     }
 
+    @ResponseBody
+    @RequestMapping(value = "/metrics/prometheus",
+                    method = GET,
+                    produces = "text/plain; version=0.0.4; charset=utf-8")
+    String metricsPrometheus() {
+        return prometheusFormatter.format(getMetricRegistry());
+    }
+
 }
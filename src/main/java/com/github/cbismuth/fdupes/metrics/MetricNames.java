@@ -0,0 +1,51 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Christophe Bismuth
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.github.cbismuth.fdupes.metrics;
+
+import com.google.common.base.Preconditions;
+
+// labels ride along in metric names, e.g. io.store.files{store=sda1}, and are exported as Prometheus labels
+public final class MetricNames {
+
+    private static final String RESERVED_CHARACTERS = "[{}=,]";
+
+    private MetricNames() {
+        // static helpers only
+    }
+
+    public static String withLabel(final String name, final String label, final String value) {
+        Preconditions.checkNotNull(name, "null metric name");
+        Preconditions.checkArgument(label != null && label.matches("[a-zA-Z_][a-zA-Z0-9_]*"), "invalid metric label [%s]", label);
+
+        final String pair = label + '=' + String.valueOf(value).replaceAll(RESERVED_CHARACTERS, "_");
+
+        if (name.endsWith("}")) {
+            return name.substring(0, name.length() - 1) + ',' + pair + '}';
+        }
+
+        return name + '{' + pair + '}';
+    }
+
+}
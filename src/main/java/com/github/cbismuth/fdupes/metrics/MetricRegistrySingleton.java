@@ -25,6 +25,8 @@
 package com.github.cbismuth.fdupes.metrics;
 
 import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.jvm.GarbageCollectorMetricSet;
+import com.codahale.metrics.jvm.MemoryUsageGaugeSet;
 
 public final class MetricRegistrySingleton {
 
@@ -37,7 +39,8 @@ public final class MetricRegistrySingleton {
     private final MetricRegistry metricRegistry = new MetricRegistry();
 
     private MetricRegistrySingleton() {
-        // PRIVATE
+        metricRegistry.register("jvm.memory", new MemoryUsageGaugeSet());
+        metricRegistry.register("jvm.gc", new GarbageCollectorMetricSet());
     }
 
 }
@@ -0,0 +1,176 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Christophe Bismuth
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.github.cbismuth.fdupes.metrics;
+
+import com.codahale.metrics.Gauge;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+
+import java.text.NumberFormat;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+public final class Progress implements AutoCloseable {
+
+    private static final Logger LOGGER = getLogger(Progress.class);
+
+    private static final double SMOOTHING_FACTOR = 0.3;
+
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder().setNameFormat("fdupes-progress")
+                                  .setDaemon(true)
+                                  .build()
+    );
+
+    public static Progress start(final Stage stage,
+                                 final long totalFiles,
+                                 final long totalBytes,
+                                 final long intervalMillis) {
+        final Progress progress = new Progress(stage, totalFiles, totalBytes, System.nanoTime());
+
+        stage.register((Gauge<Long>) progress.files::sum, "progress", "files", "done");
+        stage.register((Gauge<Long>) () -> totalFiles, "progress", "files", "total");
+        stage.register((Gauge<Long>) progress.bytes::sum, "progress", "bytes", "done");
+        stage.register((Gauge<Long>) progress::getTotalBytes, "progress", "bytes", "total");
+        stage.register((Gauge<Double>) progress::getThroughput, "progress", "throughput");
+        stage.register((Gauge<Double>) progress::getEta, "progress", "eta");
+
+        if (intervalMillis > 0L) {
+            progress.future = SCHEDULER.scheduleAtFixedRate(progress::tick, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+
+        return progress;
+    }
+
+    private final Stage stage;
+    private final long totalFiles;
+    private final long totalBytes;
+
+    // striped counters, worker threads never contend on a single cache line
+    private final LongAdder files = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder skippedBytes = new LongAdder();
+
+    private long lastNanos;
+    private long lastBytes;
+    private volatile double throughput = Double.NaN;
+
+    private ScheduledFuture<?> future;
+
+    Progress(final Stage stage,
+             final long totalFiles,
+             final long totalBytes,
+             final long startNanos) {
+        this.stage = stage;
+        this.totalFiles = totalFiles;
+        this.totalBytes = totalBytes;
+        this.lastNanos = startNanos;
+    }
+
+    public void add(final long fileCount, final long byteCount) {
+        files.add(fileCount);
+        bytes.add(byteCount);
+    }
+
+    // bytes known without reading them (e.g. hash cache hits) leave the pass rather than count as read
+    public void skip(final long byteCount) {
+        skippedBytes.add(byteCount);
+    }
+
+    public long getTotalBytes() {
+        return totalBytes - skippedBytes.sum();
+    }
+
+    // bytes per second, smoothed over successive intervals
+    public double getThroughput() {
+        return throughput;
+    }
+
+    // remaining seconds, unknown until a first interval elapsed
+    public double getEta() {
+        final double current = throughput;
+
+        if (Double.isNaN(current) || current <= 0.0) {
+            return Double.NaN;
+        }
+
+        return Math.max(0L, getTotalBytes() - bytes.sum()) / current;
+    }
+
+    @Override
+    public void close() {
+        if (future != null) {
+            future.cancel(false);
+        }
+    }
+
+    synchronized void update(final long nowNanos) {
+        final long doneBytes = bytes.sum();
+        final long elapsedNanos = nowNanos - lastNanos;
+
+        if (elapsedNanos <= 0L) {
+            return;
+        }
+
+        final double rate = (doneBytes - lastBytes) * (double) TimeUnit.SECONDS.toNanos(1L) / elapsedNanos;
+        throughput = Double.isNaN(throughput) ? rate : SMOOTHING_FACTOR * rate + (1.0 - SMOOTHING_FACTOR) * throughput;
+
+        lastNanos = nowNanos;
+        lastBytes = doneBytes;
+    }
+
+    private void tick() {
+        update(System.nanoTime());
+
+        final long doneFiles = files.sum();
+        final NumberFormat numberFormat = NumberFormat.getNumberInstance();
+
+        LOGGER.info("Stage {} - {}/{} file(s) ({}%), {}/{} mb, {} mb/s, ETA {}",
+                    stage.getName(),
+                    numberFormat.format(doneFiles),
+                    numberFormat.format(totalFiles),
+                    numberFormat.format(totalFiles > 0L ? doneFiles * 100.0 / totalFiles : 100.0),
+                    numberFormat.format(bytes.sum() / 1024.0 / 1024.0),
+                    numberFormat.format(getTotalBytes() / 1024.0 / 1024.0),
+                    numberFormat.format(throughput / 1024.0 / 1024.0),
+                    formatDuration(getEta()));
+    }
+
+    private static String formatDuration(final double seconds) {
+        if (Double.isNaN(seconds)) {
+            return "unknown";
+        }
+
+        final long rounded = (long) Math.ceil(seconds);
+
+        return String.format("%d:%02d:%02d", rounded / 3600L, rounded / 60L % 60L, rounded % 60L);
+    }
+
+}
@@ -0,0 +1,205 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Christophe Bismuth
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.github.cbismuth.fdupes.metrics;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.google.common.collect.Lists.newArrayList;
+
+final class PrometheusFormatter {
+
+    private static final String PREFIX = "fdupes_";
+    private static final double[] QUANTILES = {0.5, 0.75, 0.95, 0.98, 0.99, 0.999};
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1L);
+
+    // per-entity names share one family, e.g. stage.hash.latency is exported as stage_latency{stage="hash"}
+    private static final List<LabelledFamily> LABELLED_FAMILIES = newArrayList(
+        new LabelledFamily("stage_", "stage", Pattern.compile("^stage\\.([^.]+)\\.(.+)$")),
+        new LabelledFamily("jvm_gc_", "collector", Pattern.compile("^jvm\\.gc\\.(.+)\\.(count|time)$")),
+        new LabelledFamily("jvm_memory_pool_", "pool", Pattern.compile("^jvm\\.memory\\.pools\\.(.+)\\.(init|used|committed|max|usage|used-after-gc)$"))
+    );
+
+    String format(final MetricRegistry registry) {
+        final Map<String, Family> families = new TreeMap<>();
+
+        registry.getMetrics().forEach((name, metric) -> add(families, name, metric));
+
+        final StringBuilder builder = new StringBuilder();
+        families.forEach((name, family) -> {
+            builder.append("# TYPE ").append(name).append(' ').append(family.type).append('\n');
+            family.samples.forEach(sample -> builder.append(sample).append('\n'));
+        });
+
+        return builder.toString();
+    }
+
+    private void add(final Map<String, Family> families,
+                     final String labelledName,
+                     final Metric metric) {
+        // e.g. io.store.files{store=sda1}, see MetricNames#withLabel()
+        final int labelsStart = labelledName.endsWith("}") ? labelledName.indexOf('{') : -1;
+        final String metricName = labelsStart < 0 ? labelledName : labelledName.substring(0, labelsStart);
+
+        String name = sanitize(metricName);
+        String labels = "";
+
+        for (final LabelledFamily labelledFamily : LABELLED_FAMILIES) {
+            final Matcher matcher = labelledFamily.pattern.matcher(metricName);
+
+            if (matcher.matches()) {
+                name = labelledFamily.prefix + sanitize(matcher.group(2));
+                labels = labelledFamily.label + "=\"" + escape(matcher.group(1)) + "\"";
+                break;
+            }
+        }
+
+        if (labelsStart >= 0) {
+            for (final String pair : labelledName.substring(labelsStart + 1, labelledName.length() - 1).split(",")) {
+                final int separator = pair.indexOf('=');
+                if (separator <= 0) {
+                    continue;
+                }
+
+                final String label = sanitize(pair.substring(0, separator)) + "=\"" + escape(pair.substring(separator + 1)) + "\"";
+
+                labels = labels.isEmpty() ? label : labels + ',' + label;
+            }
+        }
+
+        name = PREFIX + name;
+
+        if (metric instanceof Gauge) {
+            final Object value = ((Gauge<?>) metric).getValue();
+
+            if (value instanceof Number) {
+                family(families, name, "gauge").add(sample(name, labels, ((Number) value).doubleValue()));
+            } else if (value instanceof Boolean) {
+                family(families, name, "gauge").add(sample(name, labels, (Boolean) value ? 1.0 : 0.0));
+            }
+        } else if (metric instanceof Counter) {
+            // dropwizard counters can decrease, e.g. files in flight
+            family(families, name, "gauge").add(sample(name, labels, ((Counter) metric).getCount()));
+        } else if (metric instanceof Meter) {
+            family(families, name + "_total", "counter").add(sample(name + "_total", labels, ((Meter) metric).getCount()));
+        } else if (metric instanceof Timer) {
+            final Timer timer = (Timer) metric;
+
+            addSummary(family(families, name + "_seconds", "summary"), name + "_seconds", labels, timer.getSnapshot(), NANOS_PER_SECOND, timer.getCount());
+        } else if (metric instanceof Histogram) {
+            final Histogram histogram = (Histogram) metric;
+
+            addSummary(family(families, name, "summary"), name, labels, histogram.getSnapshot(), 1.0, histogram.getCount());
+        }
+    }
+
+    private void addSummary(final List<String> samples,
+                            final String name,
+                            final String labels,
+                            final Snapshot snapshot,
+                            final double scale,
+                            final long count) {
+        final String separator = labels.isEmpty() ? "" : ",";
+
+        for (final double quantile : QUANTILES) {
+            samples.add(sample(name, labels + separator + "quantile=\"" + quantile + "\"", snapshot.getValue(quantile) / scale));
+        }
+
+        // dropwizard keeps no running total, the mean of the sampled values stands in for it
+        samples.add(sample(name + "_sum", labels, snapshot.getMean() * count / scale));
+        samples.add(sample(name + "_count", labels, count));
+    }
+
+    private List<String> family(final Map<String, Family> families,
+                                final String name,
+                                final String type) {
+        return families.computeIfAbsent(name, key -> new Family(type)).samples;
+    }
+
+    private String sample(final String name, final String labels, final double value) {
+        final String formatted;
+        if (Double.isNaN(value)) {
+            formatted = "NaN";
+        } else if (Double.isInfinite(value)) {
+            formatted = value > 0 ? "+Inf" : "-Inf";
+        } else if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            formatted = String.valueOf((long) value);
+        } else {
+            formatted = String.valueOf(value);
+        }
+
+        return labels.isEmpty() ? name + ' ' + formatted : name + '{' + labels + "} " + formatted;
+    }
+
+    private static String sanitize(final String name) {
+        return name.replaceAll("[^a-zA-Z0-9_]", "_");
+    }
+
+    private static String escape(final String value) {
+        return value.replace("\\", "\\\\")
+                    .replace("\"", "\\\"")
+                    .replace("\n", "\\n");
+    }
+
+    private static final class Family {
+
+        private final String type;
+        private final List<String> samples = new ArrayList<>();
+
+        private Family(final String type) {
+            this.type = type;
+        }
+
+    }
+
+    private static final class LabelledFamily {
+
+        private final String prefix;
+        private final String label;
+        private final Pattern pattern;
+
+        private LabelledFamily(final String prefix, final String label, final Pattern pattern) {
+            this.prefix = prefix;
+            this.label = label;
+            this.pattern = pattern;
+        }
+
+    }
+
+}
@@ -0,0 +1,124 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Christophe Bismuth
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.github.cbismuth.fdupes.metrics;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+import static com.github.cbismuth.fdupes.metrics.MetricRegistrySingleton.getMetricRegistry;
+
+public enum Stage {
+
+    WALK("walk"),
+    SIZE("size"),
+    FINGERPRINT("fingerprint"),
+    HASH("hash"),
+    COMPARE("compare"),
+    ORGANIZE("organize"),
+    REPORT("report");
+
+    private final String name;
+
+    Stage(final String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getMetricName(final String... names) {
+        return MetricRegistry.name(MetricRegistry.name("stage", name), names);
+    }
+
+    // times one item of the stage (e.g. a listed directory, a hashed file) and counts it in flight meanwhile
+    public Context start() {
+        return new Context(counter("inflight"), timer("latency"));
+    }
+
+    public Timer.Context timePass() {
+        return timer("duration").time();
+    }
+
+    public void markFiles(final long count) {
+        meter("files").mark(count);
+    }
+
+    public void markBytes(final long count) {
+        meter("bytes").mark(count);
+    }
+
+    public void markErrors(final long count) {
+        meter("errors").mark(count);
+    }
+
+    public Meter meter(final String... names) {
+        return getMetricRegistry().meter(getMetricName(names));
+    }
+
+    public Counter counter(final String... names) {
+        return getMetricRegistry().counter(getMetricName(names));
+    }
+
+    public Timer timer(final String... names) {
+        return getMetricRegistry().timer(getMetricName(names));
+    }
+
+    // the daemon mode runs the passes again each time files change
+    public void register(final Gauge<?> gauge, final String... names) {
+        final String metricName = getMetricName(names);
+
+        getMetricRegistry().remove(metricName);
+        getMetricRegistry().register(metricName, gauge);
+    }
+
+    public void remove(final String... names) {
+        getMetricRegistry().remove(getMetricName(names));
+    }
+
+    public static final class Context implements AutoCloseable {
+
+        private final Counter inFlight;
+        private final Timer.Context latency;
+
+        private Context(final Counter inFlight, final Timer timer) {
+            this.inFlight = inFlight;
+
+            inFlight.inc();
+            latency = timer.time();
+        }
+
+        @Override
+        public void close() {
+            latency.stop();
+            inFlight.dec();
+        }
+
+    }
+
+}
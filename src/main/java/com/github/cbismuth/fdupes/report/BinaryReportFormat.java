@@ -0,0 +1,56 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Christophe Bismuth
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.github.cbismuth.fdupes.report;
+
+import com.google.common.io.BaseEncoding;
+
+// layout shared by DuplicatesBinaryReporter and BinaryReportReader, all numbers are big-endian
+//
+//   header      magic (long), version (int)
+//   groups      record length (int), size (long), digest length (byte), digest, member count (int),
+//               then per member: directory id (int), file name (modified UTF-8)
+//   directories directory count (int), then per directory in sorted order: shared prefix length with
+//               the previous directory (int), remaining suffix (modified UTF-8), then per directory id
+//               in record order: its sorted index (int)
+//   postings    per sorted directory: group count (int), group offsets (long)
+//   posting table   per sorted directory: postings offset (long)
+//   size index  group count (int), then per group sorted by size: size (long), group offset (long)
+//   trailer     directories offset, posting table offset, size index offset (long), magic (long)
+final class BinaryReportFormat {
+
+    static final long MAGIC = 0x4644555045534249L; // FDUPESBI
+    static final int VERSION = 2;
+
+    static final int HEADER_LENGTH = Long.BYTES + Integer.BYTES;
+    static final int TRAILER_LENGTH = 4 * Long.BYTES;
+    static final int SIZE_INDEX_ENTRY_LENGTH = 2 * Long.BYTES;
+
+    static final BaseEncoding DIGEST_ENCODING = BaseEncoding.base16().lowerCase();
+
+    private BinaryReportFormat() {
+        // constants
+    }
+
+}
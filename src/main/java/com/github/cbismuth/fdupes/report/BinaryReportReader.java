@@ -0,0 +1,264 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Christophe Bismuth
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.github.cbismuth.fdupes.report;
+
+import com.google.common.base.Preconditions;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static com.github.cbismuth.fdupes.report.BinaryReportFormat.DIGEST_ENCODING;
+import static com.github.cbismuth.fdupes.report.BinaryReportFormat.HEADER_LENGTH;
+import static com.github.cbismuth.fdupes.report.BinaryReportFormat.MAGIC;
+import static com.github.cbismuth.fdupes.report.BinaryReportFormat.SIZE_INDEX_ENTRY_LENGTH;
+import static com.github.cbismuth.fdupes.report.BinaryReportFormat.TRAILER_LENGTH;
+import static com.github.cbismuth.fdupes.report.BinaryReportFormat.VERSION;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.util.Collections.binarySearch;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.unmodifiableList;
+
+public class BinaryReportReader implements Closeable {
+
+    private final FileChannel channel;
+
+    private final List<String> directories = new ArrayList<>();
+    private final int[] sortedIndices;
+    private final long[] postingTable;
+
+    private final long sizeIndexOffset;
+    private final int groupCount;
+
+    public BinaryReportReader(final Path input) throws IOException {
+        Preconditions.checkNotNull(input, "null binary report path");
+
+        channel = FileChannel.open(input, READ);
+
+        try {
+            final ByteBuffer header = read(0L, HEADER_LENGTH);
+            if (header.getLong() != MAGIC) {
+                throw new IOException(String.format("[%s] isn't a binary report", input));
+            }
+            final int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException(String.format("Unsupported binary report version [%d] (expected [%d])", version, VERSION));
+            }
+
+            final ByteBuffer trailer = read(channel.size() - TRAILER_LENGTH, TRAILER_LENGTH);
+            final long directoriesOffset = trailer.getLong();
+            final long postingTableOffset = trailer.getLong();
+            sizeIndexOffset = trailer.getLong();
+            if (trailer.getLong() != MAGIC) {
+                throw new IOException(String.format("Binary report [%s] is truncated", input));
+            }
+
+            // the dictionary is the only part loaded upfront, groups are read on demand
+            channel.position(directoriesOffset);
+            final DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+
+            final int directoryCount = in.readInt();
+            String previous = "";
+            for (int i = 0; i < directoryCount; i++) {
+                final int prefixLength = in.readInt();
+                final String directory = previous.substring(0, prefixLength) + in.readUTF();
+
+                directories.add(directory);
+
+                previous = directory;
+            }
+
+            sortedIndices = new int[directoryCount];
+            for (int i = 0; i < directoryCount; i++) {
+                sortedIndices[i] = in.readInt();
+            }
+
+            postingTable = new long[directoryCount];
+            final ByteBuffer postings = read(postingTableOffset, directoryCount * Long.BYTES);
+            for (int i = 0; i < directoryCount; i++) {
+                postingTable[i] = postings.getLong();
+            }
+
+            groupCount = read(sizeIndexOffset, Integer.BYTES).getInt();
+        } catch (final IOException | RuntimeException e) {
+            channel.close();
+
+            throw e;
+        }
+    }
+
+    public int getGroupCount() {
+        return groupCount;
+    }
+
+    public List<String> getDirectories() {
+        return unmodifiableList(directories);
+    }
+
+    public List<Group> findByDirectory(final Path directory) throws IOException {
+        Preconditions.checkNotNull(directory, "null directory");
+
+        final int sortedIndex = binarySearch(directories, directory.toString());
+        if (sortedIndex < 0) {
+            return emptyList();
+        }
+
+        final long postingsOffset = postingTable[sortedIndex];
+        final int count = read(postingsOffset, Integer.BYTES).getInt();
+        final ByteBuffer offsets = read(postingsOffset + Integer.BYTES, count * Long.BYTES);
+
+        final List<Group> groups = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            groups.add(readGroup(offsets.getLong()));
+        }
+
+        return groups;
+    }
+
+    public List<Group> findBySize(final long minSize, final long maxSize) throws IOException {
+        Preconditions.checkArgument(minSize <= maxSize, "min size is greater than max size");
+
+        // lower bound binary search over the fixed-width size index entries
+        int low = 0;
+        int high = groupCount;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+
+            if (readSizeIndexEntry(middle).getLong() < minSize) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        final List<Group> groups = new ArrayList<>();
+        for (int i = low; i < groupCount; i++) {
+            final ByteBuffer entry = readSizeIndexEntry(i);
+
+            if (entry.getLong() > maxSize) {
+                break;
+            }
+
+            groups.add(readGroup(entry.getLong()));
+        }
+
+        return groups;
+    }
+
+    public Group readGroup(final long offset) throws IOException {
+        final int length = read(offset, Integer.BYTES).getInt();
+        final ByteBuffer record = read(offset + Integer.BYTES, length);
+
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(record.array()));
+
+        final long size = in.readLong();
+        final byte[] digest = new byte[in.readUnsignedByte()];
+        in.readFully(digest);
+
+        final int memberCount = in.readInt();
+        final List<Path> paths = new ArrayList<>(memberCount);
+        for (int i = 0; i < memberCount; i++) {
+            final String directory = directories.get(sortedIndices[in.readInt()]);
+
+            paths.add(Paths.get(directory, in.readUTF()));
+        }
+
+        return new Group(offset, size, DIGEST_ENCODING.encode(digest), paths);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private ByteBuffer readSizeIndexEntry(final int index) throws IOException {
+        return read(sizeIndexOffset + Integer.BYTES + (long) index * SIZE_INDEX_ENTRY_LENGTH, SIZE_INDEX_ENTRY_LENGTH);
+    }
+
+    private ByteBuffer read(final long position, final int length) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(length);
+
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException(String.format("Unexpected end of binary report at [%d]", position + buffer.position()));
+            }
+        }
+
+        buffer.flip();
+
+        return buffer;
+    }
+
+    public static final class Group {
+
+        private final long offset;
+        private final long size;
+        private final String digest;
+        private final List<Path> paths;
+
+        private Group(final long offset,
+                      final long size,
+                      final String digest,
+                      final List<Path> paths) {
+            this.offset = offset;
+            this.size = size;
+            this.digest = digest;
+            this.paths = unmodifiableList(paths);
+        }
+
+        public long getOffset() {
+            return offset;
+        }
+
+        public long getFileSize() {
+            return size;
+        }
+
+        public Optional<String> getDigest() {
+            return digest.isEmpty() ? Optional.empty() : Optional.of(digest);
+        }
+
+        public Path getOriginal() {
+            return paths.get(0);
+        }
+
+        public List<Path> getPaths() {
+            return paths;
+        }
+
+    }
+
+}
@@ -0,0 +1,267 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Christophe Bismuth
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.github.cbismuth.fdupes.report;
+
+import com.github.cbismuth.fdupes.cli.SystemPropertyGetter;
+import com.github.cbismuth.fdupes.container.immutable.DuplicateGroup;
+import com.github.cbismuth.fdupes.container.immutable.PathElement;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static com.github.cbismuth.fdupes.report.BinaryReportFormat.DIGEST_ENCODING;
+import static com.github.cbismuth.fdupes.report.BinaryReportFormat.MAGIC;
+import static com.github.cbismuth.fdupes.report.BinaryReportFormat.VERSION;
+
+@Component
+public class DuplicatesBinaryReporter {
+
+    private final SystemPropertyGetter systemPropertyGetter;
+
+    public DuplicatesBinaryReporter(final SystemPropertyGetter systemPropertyGetter) {
+        this.systemPropertyGetter = systemPropertyGetter;
+    }
+
+    public ReportWriter<DuplicateGroup> open() throws IOException {
+        final Path output = Paths.get(System.getProperty("user.dir"), "report.bin");
+
+        return new BinaryReportWriter(output, systemPropertyGetter.getReportFlushInterval());
+    }
+
+    private static final class BinaryReportWriter extends ReportWriter<DuplicateGroup> {
+
+        private static final int INITIAL_CAPACITY = 1024;
+
+        private final DataOutputStream out;
+
+        private final ByteArrayOutputStream recordBuffer = new ByteArrayOutputStream();
+        private final DataOutputStream record = new DataOutputStream(recordBuffer);
+
+        private final Map<String, Integer> directoryIds = new HashMap<>();
+        private final List<String> directories = new ArrayList<>();
+        private int[] lastGroupOfDirectory = new int[INITIAL_CAPACITY];
+
+        private int[] postingDirectories = new int[INITIAL_CAPACITY];
+        private long[] postingOffsets = new long[INITIAL_CAPACITY];
+        private int postingCount = 0;
+
+        private long[] groupSizes = new long[INITIAL_CAPACITY];
+        private long[] groupOffsets = new long[INITIAL_CAPACITY];
+        private int groupCount = 0;
+
+        private BinaryReportWriter(final Path output, final long flushIntervalMillis) throws IOException {
+            super(output, flushIntervalMillis);
+
+            out = new DataOutputStream(getOutputStream());
+            out.writeLong(MAGIC);
+            out.writeInt(VERSION);
+        }
+
+        @Override
+        protected void write(final DuplicateGroup group) throws IOException {
+            final long offset = getPosition();
+            final byte[] digest = decodeDigest(group.getDigest());
+
+            recordBuffer.reset();
+            record.writeLong(group.getFileSize());
+            record.writeByte(digest.length);
+            record.write(digest);
+            record.writeInt(group.getMembers().size());
+
+            for (final PathElement member : group.getMembers()) {
+                final Path path = member.getPath();
+                final Path parent = path.getParent();
+                final int directoryId = getDirectoryId(parent == null ? "" : parent.toString());
+
+                record.writeInt(directoryId);
+                record.writeUTF(path.getFileName().toString());
+
+                addPosting(directoryId, offset);
+            }
+
+            out.writeInt(recordBuffer.size());
+            recordBuffer.writeTo(out);
+
+            addGroup(group.getFileSize(), offset);
+        }
+
+        @Override
+        protected void finish() throws IOException {
+            final long directoriesOffset = getPosition();
+
+            // sorted neighbours share longer prefixes, records keep their ids through the remap table
+            final int[] sortedDirectories = IntStream.range(0, directories.size())
+                                                     .boxed()
+                                                     .sorted(Comparator.comparing(directories::get))
+                                                     .mapToInt(Integer::intValue)
+                                                     .toArray();
+            final int[] sortedIndices = new int[directories.size()];
+            for (int i = 0; i < sortedDirectories.length; i++) {
+                sortedIndices[sortedDirectories[i]] = i;
+            }
+
+            out.writeInt(directories.size());
+            String previous = "";
+            for (final int directoryId : sortedDirectories) {
+                final String directory = directories.get(directoryId);
+                final int prefixLength = getCommonPrefixLength(previous, directory);
+
+                out.writeInt(prefixLength);
+                out.writeUTF(directory.substring(prefixLength));
+
+                previous = directory;
+            }
+            for (final int sortedIndex : sortedIndices) {
+                out.writeInt(sortedIndex);
+            }
+
+            // postings are appended group after group, bucket them by sorted directory
+            final int[] postingStarts = new int[directories.size() + 1];
+            for (int i = 0; i < postingCount; i++) {
+                postingStarts[sortedIndices[postingDirectories[i]] + 1]++;
+            }
+            for (int i = 0; i < directories.size(); i++) {
+                postingStarts[i + 1] += postingStarts[i];
+            }
+
+            final long[] sortedPostings = new long[postingCount];
+            final int[] cursors = Arrays.copyOf(postingStarts, directories.size());
+            for (int i = 0; i < postingCount; i++) {
+                sortedPostings[cursors[sortedIndices[postingDirectories[i]]]++] = postingOffsets[i];
+            }
+
+            final long[] postingTable = new long[directories.size()];
+            for (int sortedIndex = 0; sortedIndex < directories.size(); sortedIndex++) {
+                postingTable[sortedIndex] = getPosition();
+
+                out.writeInt(postingStarts[sortedIndex + 1] - postingStarts[sortedIndex]);
+                for (int i = postingStarts[sortedIndex]; i < postingStarts[sortedIndex + 1]; i++) {
+                    out.writeLong(sortedPostings[i]);
+                }
+            }
+
+            final long postingTableOffset = getPosition();
+            for (final long postingOffset : postingTable) {
+                out.writeLong(postingOffset);
+            }
+
+            final long sizeIndexOffset = getPosition();
+            out.writeInt(groupCount);
+            final int[] bySize = IntStream.range(0, groupCount)
+                                          .boxed()
+                                          .sorted(Comparator.comparingLong(i -> groupSizes[i]))
+                                          .mapToInt(Integer::intValue)
+                                          .toArray();
+            for (final int i : bySize) {
+                out.writeLong(groupSizes[i]);
+                out.writeLong(groupOffsets[i]);
+            }
+
+            out.writeLong(directoriesOffset);
+            out.writeLong(postingTableOffset);
+            out.writeLong(sizeIndexOffset);
+            out.writeLong(MAGIC);
+        }
+
+        private int getDirectoryId(final String directory) {
+            return directoryIds.computeIfAbsent(directory, d -> {
+                if (directories.size() == lastGroupOfDirectory.length) {
+                    lastGroupOfDirectory = Arrays.copyOf(lastGroupOfDirectory, directories.size() * 2);
+                }
+
+                lastGroupOfDirectory[directories.size()] = -1;
+                directories.add(d);
+
+                return directories.size() - 1;
+            });
+        }
+
+        private void addPosting(final int directoryId, final long offset) {
+            // a group lists each of its directories once
+            if (lastGroupOfDirectory[directoryId] == groupCount) {
+                return;
+            }
+            lastGroupOfDirectory[directoryId] = groupCount;
+
+            if (postingCount == postingDirectories.length) {
+                postingDirectories = Arrays.copyOf(postingDirectories, postingCount * 2);
+                postingOffsets = Arrays.copyOf(postingOffsets, postingCount * 2);
+            }
+
+            postingDirectories[postingCount] = directoryId;
+            postingOffsets[postingCount] = offset;
+            postingCount++;
+        }
+
+        private void addGroup(final long size, final long offset) {
+            if (groupCount == groupSizes.length) {
+                groupSizes = Arrays.copyOf(groupSizes, groupCount * 2);
+                groupOffsets = Arrays.copyOf(groupOffsets, groupCount * 2);
+            }
+
+            groupSizes[groupCount] = size;
+            groupOffsets[groupCount] = offset;
+            groupCount++;
+        }
+
+        private static byte[] decodeDigest(final String digest) {
+            try {
+                return DIGEST_ENCODING.decode(digest);
+            } catch (final IllegalArgumentException ignored) {
+                // random keys given to unreadable files aren't hexadecimal
+                return new byte[0];
+            }
+        }
+
+        private static int getCommonPrefixLength(final String a, final String b) {
+            final int length = Math.min(a.length(), b.length());
+
+            int i = 0;
+            while (i < length && a.charAt(i) == b.charAt(i)) {
+                i++;
+            }
+
+            // never split a surrogate pair
+            if (i > 0 && Character.isHighSurrogate(a.charAt(i - 1))) {
+                i--;
+            }
+
+            return i;
+        }
+
+    }
+
+}
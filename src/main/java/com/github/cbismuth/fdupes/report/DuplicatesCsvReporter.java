@@ -24,62 +24,60 @@
 
 package com.github.cbismuth.fdupes.report;
 
+import com.github.cbismuth.fdupes.cli.SystemPropertyGetter;
+import com.github.cbismuth.fdupes.container.immutable.DuplicateGroup;
 import com.github.cbismuth.fdupes.container.immutable.PathElement;
-import com.google.common.collect.Multimap;
 import com.opencsv.CSVWriter;
 import org.springframework.stereotype.Component;
 
-import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.Collection;
-import java.util.Iterator;
-import java.util.Map;
-import java.util.function.Consumer;
-import java.util.stream.StreamSupport;
-
-import static java.util.Spliterator.ORDERED;
-import static java.util.Spliterators.spliteratorUnknownSize;
+import java.util.HashSet;
+import java.util.Set;
 
 @Component
 public class DuplicatesCsvReporter {
 
-    public Path report(final Multimap<PathElement, PathElement> duplicates) throws IOException {
+    private final SystemPropertyGetter systemPropertyGetter;
+
+    public DuplicatesCsvReporter(final SystemPropertyGetter systemPropertyGetter) {
+        this.systemPropertyGetter = systemPropertyGetter;
+    }
+
+    public ReportWriter<DuplicateGroup> open() throws IOException {
         final Path output = Paths.get(System.getProperty("user.dir"), "report.csv");
 
-        try (CSVWriter writer = new CSVWriter(new FileWriter(output.toFile(), false))) {
-            duplicates.asMap()
-                      .entrySet()
-                      .forEach(reportEntry(writer));
-        }
+        return new ReportWriter<DuplicateGroup>(output, systemPropertyGetter.getReportFlushInterval()) {
 
-        return output;
-    }
+            private final CSVWriter csvWriter = new CSVWriter(getWriter());
 
-    private Consumer<Map.Entry<PathElement, Collection<PathElement>>> reportEntry(final CSVWriter writer) {
-        return e -> {
-            final PathElement original = e.getKey();
-            final Iterator<PathElement> iterator = e.getValue().iterator();
+            @Override
+            protected void write(final DuplicateGroup group) {
+                final PathElement original = group.getOriginal();
+                final Set<Object> fileKeys = new HashSet<>();
+
+                fileKeys.add(original.fileKey());
+
+                boolean first = true;
+                for (final PathElement duplicate : group.getDuplicates()) {
+                    csvWriter.writeNext(new String[] {
+                        first ? original.getPath().toString() : "",
+                        duplicate.getPath().toString(),
+                        getLinkType(duplicate, fileKeys)
+                    });
+
+                    first = false;
+                }
+            }
 
-            reportOriginal(writer, iterator, original);
-            reportDuplicates(writer, iterator);
         };
     }
 
-    private void reportOriginal(final CSVWriter writer, final Iterator<PathElement> iterator, final PathElement original) {
-        writer.writeNext(new String[] {
-            original.getPath().toString(),
-            iterator.next().getPath().toString()
-        });
-    }
+    private String getLinkType(final PathElement pathElement, final Set<Object> fileKeys) {
+        final Object fileKey = pathElement.fileKey();
 
-    private void reportDuplicates(final CSVWriter writer, final Iterator<PathElement> iterator) {
-        StreamSupport.stream(spliteratorUnknownSize(iterator, ORDERED), false)
-                     .forEach(pathElement -> writer.writeNext(new String[] {
-                         "",
-                         pathElement.getPath().toString()
-                     }));
+        return fileKey != null && !fileKeys.add(fileKey) ? "hardlink" : "";
     }
 
 }
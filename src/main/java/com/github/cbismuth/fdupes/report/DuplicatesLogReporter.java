@@ -24,46 +24,40 @@
 
 package com.github.cbismuth.fdupes.report;
 
+import com.github.cbismuth.fdupes.cli.SystemPropertyGetter;
+import com.github.cbismuth.fdupes.container.immutable.DuplicateGroup;
 import com.github.cbismuth.fdupes.container.immutable.PathElement;
 import com.github.cbismuth.fdupes.io.PathEscapeFunction;
-import com.google.common.collect.Multimap;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.Collection;
-import java.util.Map;
-
-import static java.nio.charset.StandardCharsets.UTF_8;
-import static java.util.stream.Collectors.joining;
 
 @Component
 public class DuplicatesLogReporter {
 
     private final PathEscapeFunction pathEscapeFunction;
+    private final SystemPropertyGetter systemPropertyGetter;
 
-    public DuplicatesLogReporter(final PathEscapeFunction pathEscapeFunction) {
+    public DuplicatesLogReporter(final PathEscapeFunction pathEscapeFunction,
+                                 final SystemPropertyGetter systemPropertyGetter) {
         this.pathEscapeFunction = pathEscapeFunction;
+        this.systemPropertyGetter = systemPropertyGetter;
     }
 
-    public Path report(final Multimap<PathElement, PathElement> duplicates) throws IOException {
+    public ReportWriter<DuplicateGroup> open() throws IOException {
         final Path output = Paths.get(System.getProperty("user.dir"), "duplicates.log");
 
-        final String content = duplicates.asMap()
-                                         .entrySet()
-                                         .stream()
-                                         .map(Map.Entry::getValue)
-                                         .flatMap(Collection::stream)
-                                         .map(PathElement::getPath)
-                                         .map(Path::toString)
-                                         .map(pathEscapeFunction)
-                                         .collect(joining(System.getProperty("line.separator")));
-
-        Files.write(output, content.getBytes(UTF_8));
-
-        return output;
+        return new ReportWriter<DuplicateGroup>(output, systemPropertyGetter.getReportFlushInterval()) {
+            @Override
+            protected void write(final DuplicateGroup group) throws IOException {
+                // originals aren't reported, only their duplicates
+                for (final PathElement duplicate : group.getDuplicates()) {
+                    writeLine(pathEscapeFunction.apply(duplicate.getPath().toString()));
+                }
+            }
+        };
     }
 
 }
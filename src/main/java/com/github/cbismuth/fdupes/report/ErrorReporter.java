@@ -24,38 +24,35 @@
 
 package com.github.cbismuth.fdupes.report;
 
+import com.github.cbismuth.fdupes.cli.SystemPropertyGetter;
 import com.github.cbismuth.fdupes.io.PathEscapeFunction;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.Collection;
-
-import static java.nio.charset.StandardCharsets.UTF_8;
-import static java.util.stream.Collectors.joining;
 
 @Component
 public class ErrorReporter {
 
     private final PathEscapeFunction pathEscapeFunction;
+    private final SystemPropertyGetter systemPropertyGetter;
 
-    public ErrorReporter(final PathEscapeFunction pathEscapeFunction) {
+    public ErrorReporter(final PathEscapeFunction pathEscapeFunction,
+                         final SystemPropertyGetter systemPropertyGetter) {
         this.pathEscapeFunction = pathEscapeFunction;
+        this.systemPropertyGetter = systemPropertyGetter;
     }
 
-    public Path report(final Collection<Path> pathsInError) throws IOException {
+    public ReportWriter<Path> open() throws IOException {
         final Path output = Paths.get(System.getProperty("user.dir"), "errors.log");
 
-        final String content = pathsInError.stream()
-                                           .map(Path::toString)
-                                           .map(pathEscapeFunction)
-                                           .collect(joining(System.getProperty("line.separator")));
-
-        Files.write(output, content.getBytes(UTF_8));
-
-        return output;
+        return new ReportWriter<Path>(output, systemPropertyGetter.getReportFlushInterval()) {
+            @Override
+            protected void write(final Path pathInError) throws IOException {
+                writeLine(pathEscapeFunction.apply(pathInError.toString()));
+            }
+        };
     }
 
 }
@@ -0,0 +1,169 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Christophe Bismuth
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.github.cbismuth.fdupes.report;
+
+import com.github.cbismuth.fdupes.metrics.Stage;
+import com.google.common.base.Throwables;
+import com.google.common.io.CountingOutputStream;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.slf4j.LoggerFactory.getLogger;
+
+public abstract class ReportWriter<T> implements Consumer<T>, Closeable {
+
+    private static final Logger LOGGER = getLogger(ReportWriter.class);
+
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder().setNameFormat("fdupes-report-flush")
+                                  .setDaemon(true)
+                                  .build()
+    );
+
+    private final Path output;
+    private final CountingOutputStream stream;
+    private final Writer writer;
+    private final long flushIntervalNanos;
+    private final ScheduledFuture<?> flushTask;
+
+    private long lastFlushNanos = System.nanoTime();
+    private boolean dirty = false;
+    private boolean empty = true;
+
+    protected ReportWriter(final Path output, final long flushIntervalMillis) throws IOException {
+        this.output = output;
+        this.stream = new CountingOutputStream(new BufferedOutputStream(Files.newOutputStream(output)));
+        this.writer = new OutputStreamWriter(stream, UTF_8);
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+
+        // records found just before a long quiet stretch (e.g. hashing huge files) are flushed too
+        if (flushIntervalMillis > 0L && flushIntervalMillis < Long.MAX_VALUE) {
+            flushTask = SCHEDULER.scheduleWithFixedDelay(this::flushIfIdle, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            flushTask = null;
+        }
+    }
+
+    public Path getPath() {
+        return output;
+    }
+
+    @Override
+    public synchronized void accept(final T item) {
+        try (final Stage.Context ignored = Stage.REPORT.start()) {
+            write(item);
+            dirty = true;
+            Stage.REPORT.meter("records").mark();
+
+            // a killed run still leaves everything written up to the last flush
+            if (System.nanoTime() - lastFlushNanos >= flushIntervalNanos) {
+                flush();
+            }
+        } catch (final IOException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (flushTask != null) {
+            flushTask.cancel(false);
+        }
+
+        try {
+            finish();
+        } finally {
+            writer.close();
+            dirty = false;
+
+            Stage.REPORT.markBytes(stream.getCount());
+        }
+    }
+
+    protected abstract void write(T item) throws IOException;
+
+    protected void finish() throws IOException {
+        // nothing to append by default
+    }
+
+    // text and binary output must not be mixed, the writer buffers its encoded characters
+    protected Writer getWriter() {
+        return writer;
+    }
+
+    protected OutputStream getOutputStream() {
+        return stream;
+    }
+
+    protected long getPosition() {
+        return stream.getCount();
+    }
+
+    protected void writeLine(final String line) throws IOException {
+        if (!empty) {
+            writer.write(LINE_SEPARATOR);
+        }
+
+        writer.write(line);
+        empty = false;
+    }
+
+    private synchronized void flushIfIdle() {
+        if (!dirty || System.nanoTime() - lastFlushNanos < flushIntervalNanos) {
+            return;
+        }
+
+        try {
+            flush();
+        } catch (final IOException e) {
+            LOGGER.warn("Can't flush report [{}] ([{}]: [{}])", output, e.getClass().getSimpleName(), e.getMessage());
+        }
+    }
+
+    private void flush() throws IOException {
+        writer.flush();
+
+        lastFlushNanos = System.nanoTime();
+        dirty = false;
+    }
+
+}
@@ -0,0 +1,300 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Christophe Bismuth
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.github.cbismuth.fdupes.shard;
+
+import com.codahale.metrics.Timer;
+import com.github.cbismuth.fdupes.cli.SystemPropertyGetter;
+import com.github.cbismuth.fdupes.container.immutable.DuplicateGroup;
+import com.github.cbismuth.fdupes.container.immutable.PathElement;
+import com.github.cbismuth.fdupes.metrics.Stage;
+import com.github.cbismuth.fdupes.stream.DuplicateFinderByKey;
+import com.github.cbismuth.fdupes.stream.DuplicatesFinder;
+import com.google.common.base.Preconditions;
+import org.slf4j.Logger;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.jar.JarFile;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.util.Collections.emptyMap;
+import static org.slf4j.LoggerFactory.getLogger;
+
+@Component
+public class ShardCoordinator {
+
+    private static final Logger LOGGER = getLogger(ShardCoordinator.class);
+
+    private static final String BOOT_LAUNCHER = "org.springframework.boot.loader.PropertiesLauncher";
+
+    private static final long OUTPUT_DRAIN_MILLIS = 1000L;
+
+    private final DuplicateFinderByKey duplicateFinderByKey;
+    private final DuplicatesFinder duplicatesFinder;
+    private final SystemPropertyGetter systemPropertyGetter;
+
+    public ShardCoordinator(final DuplicateFinderByKey duplicateFinderByKey,
+                            final DuplicatesFinder duplicatesFinder,
+                            final SystemPropertyGetter systemPropertyGetter) {
+        this.duplicateFinderByKey = duplicateFinderByKey;
+        this.duplicatesFinder = duplicatesFinder;
+        this.systemPropertyGetter = systemPropertyGetter;
+    }
+
+    public void extractDuplicates(final Collection<PathElement> input,
+                                  final Set<PathElement> uniqueElements,
+                                  final Consumer<DuplicateGroup> groupListener) throws IOException {
+        Preconditions.checkNotNull(input, "null file metadata collection");
+        Preconditions.checkNotNull(groupListener, "null duplicate group listener");
+
+        final Collection<PathElement> candidates;
+        try (final Timer.Context ignored = Stage.SIZE.timePass()) {
+            candidates = duplicateFinderByKey.getDuplicatesBySize(input, uniqueElements);
+            Stage.SIZE.markFiles(input.size());
+        }
+
+        final List<List<PathElement>> shards = partition(candidates, systemPropertyGetter.getWorkers());
+        LOGGER.info("{} candidate(s) of the same size split into {} shard(s)", candidates.size(), shards.size());
+
+        final Path directory = Files.createTempDirectory(Paths.get(systemPropertyGetter.getGroupingDirectory()), "fdupes-shards-");
+        try {
+            final List<Worker> workers = new ArrayList<>(shards.size());
+
+            for (int i = 0; i < shards.size(); i++) {
+                workers.add(new Worker("shard-" + i, shards.get(i), directory.resolve("shard-" + i + ".bin"), directory.resolve("result-" + i + ".bin")));
+            }
+
+            // every worker is started before any is waited for
+            workers.forEach(Worker::start);
+
+            for (final Worker worker : workers) {
+                worker.collect(uniqueElements, groupListener);
+            }
+        } finally {
+            try (final Stream<Path> files = Files.list(directory)) {
+                for (final Path file : files.collect(Collectors.toList())) {
+                    Files.deleteIfExists(file);
+                }
+            }
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    // size groups are never split, the heaviest group goes to the lightest shard first
+    static List<List<PathElement>> partition(final Collection<PathElement> candidates, final int count) {
+        Preconditions.checkArgument(count > 0, "shard count must be positive");
+
+        final Map<Long, List<PathElement>> bySize = candidates.stream()
+                                                              .collect(Collectors.groupingBy(PathElement::size));
+
+        final List<List<PathElement>> groups = new ArrayList<>(bySize.values());
+        groups.sort(Comparator.comparingLong(ShardCoordinator::getBytes).reversed());
+
+        final PriorityQueue<Shard> shards = new PriorityQueue<>(count, Comparator.comparingLong(shard -> shard.bytes));
+        for (int i = 0; i < Math.min(count, groups.size()); i++) {
+            shards.add(new Shard());
+        }
+
+        for (final List<PathElement> group : groups) {
+            final Shard shard = shards.poll();
+
+            shard.elements.addAll(group);
+            shard.bytes += getBytes(group);
+
+            shards.add(shard);
+        }
+
+        return shards.stream()
+                     .map(shard -> shard.elements)
+                     .collect(Collectors.toList());
+    }
+
+    private static long getBytes(final List<PathElement> group) {
+        return group.stream()
+                    .mapToLong(PathElement::size)
+                    .sum();
+    }
+
+    private List<String> getCommand(final Path shardFile, final Path resultFile) {
+        final List<String> command = new ArrayList<>();
+
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+
+        // heap, GC and agent options apply to workers too, a debugger port can't be shared though
+        ManagementFactory.getRuntimeMXBean().getInputArguments().stream()
+                         .filter(argument -> !argument.startsWith("-agentlib:jdwp") && !argument.startsWith("-Xrunjdwp") && !argument.startsWith("-Dfdupes.workers="))
+                         .forEach(command::add);
+
+        System.getProperties().stringPropertyNames().stream()
+              .filter(name -> name.startsWith("fdupes.") && !"fdupes.workers".equals(name))
+              .sorted()
+              .forEach(name -> command.add("-D" + name + "=" + System.getProperty(name)));
+
+        final String classPath = System.getProperty("java.class.path");
+
+        // a repackaged jar nests its dependencies, only the boot loader can open them
+        if (isBootJar(classPath)) {
+            command.add("-Dloader.main=" + ShardWorker.class.getName());
+            command.add("-cp");
+            command.add(classPath);
+            command.add(BOOT_LAUNCHER);
+        } else {
+            command.add("-cp");
+            command.add(classPath);
+            command.add(ShardWorker.class.getName());
+        }
+
+        command.add(shardFile.toString());
+        command.add(resultFile.toString());
+
+        return command;
+    }
+
+    private static boolean isBootJar(final String classPath) {
+        if (!classPath.endsWith(".jar") || classPath.contains(System.getProperty("path.separator"))) {
+            return false;
+        }
+
+        try (final JarFile jar = new JarFile(classPath)) {
+            return jar.getEntry("BOOT-INF/") != null;
+        } catch (final IOException ignored) {
+            return false;
+        }
+    }
+
+    private static final class Shard {
+
+        private final List<PathElement> elements = new ArrayList<>();
+
+        private long bytes;
+
+    }
+
+    private final class Worker {
+
+        private final String name;
+        private final List<PathElement> elements;
+        private final Path shardFile;
+        private final Path resultFile;
+
+        private Process process;
+        private Thread output;
+
+        private Worker(final String name,
+                       final List<PathElement> elements,
+                       final Path shardFile,
+                       final Path resultFile) {
+            this.name = name;
+            this.elements = elements;
+            this.shardFile = shardFile;
+            this.resultFile = resultFile;
+        }
+
+        private void start() {
+            try {
+                ShardFormat.writeElements(shardFile, elements);
+
+                process = new ProcessBuilder(getCommand(shardFile, resultFile)).redirectErrorStream(true).start();
+
+                output = new Thread(this::forwardOutput, "fdupes-" + name);
+                output.setDaemon(true);
+                output.start();
+            } catch (final IOException e) {
+                LOGGER.error("Can't start worker for [{}] ([{}]: [{}])", shardFile.getFileName(), e.getClass().getSimpleName(), e.getMessage());
+            }
+        }
+
+        private void collect(final Set<PathElement> uniqueElements,
+                             final Consumer<DuplicateGroup> groupListener) throws IOException {
+            if (process != null && waitFor() == 0) {
+                readResult(uniqueElements, groupListener);
+            } else {
+                LOGGER.error("Worker for [{}] failed, its {} candidate(s) are compared in process", shardFile.getFileName(), elements.size());
+
+                duplicatesFinder.extractDuplicates(elements, uniqueElements, groupListener, emptyMap());
+            }
+        }
+
+        // interleaved worker logs stay readable, each line tells which shard it comes from
+        private void forwardOutput() {
+            try (final BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), Charset.defaultCharset()))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    LOGGER.info("[{}] {}", name, line);
+                }
+            } catch (final IOException e) {
+                LOGGER.warn("Can't forward output of worker for [{}] ([{}]: [{}])", shardFile.getFileName(), e.getClass().getSimpleName(), e.getMessage());
+            }
+        }
+
+        private int waitFor() {
+            try {
+                final int exitValue = process.waitFor();
+                output.join(OUTPUT_DRAIN_MILLIS);
+
+                return exitValue;
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                process.destroyForcibly();
+
+                return -1;
+            }
+        }
+
+        private void readResult(final Set<PathElement> uniqueElements,
+                                final Consumer<DuplicateGroup> groupListener) throws IOException {
+            final Set<PathElement> duplicates = new HashSet<>();
+
+            ShardFormat.readGroups(resultFile, elements, (digest, members) -> {
+                duplicates.addAll(members.subList(1, members.size()));
+                groupListener.accept(new DuplicateGroup(members, digest));
+            });
+
+            // originals and files left alone by every pass, as an in-process run would report them
+            elements.stream()
+                    .filter(element -> !duplicates.contains(element))
+                    .forEach(uniqueElements::add);
+        }
+
+    }
+
+}
@@ -0,0 +1,195 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Christophe Bismuth
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.github.cbismuth.fdupes.shard;
+
+import com.github.cbismuth.fdupes.container.immutable.DuplicateGroup;
+import com.github.cbismuth.fdupes.container.immutable.PathElement;
+import com.github.cbismuth.fdupes.container.mutable.FileCatalog;
+import com.github.cbismuth.fdupes.io.WalkSnapshot;
+import com.github.cbismuth.fdupes.report.ReportWriter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+// shard inputs list paths with their walked attributes, shard results list groups with their digest and the
+// indexes of their members in the shard input, original first
+final class ShardFormat {
+
+    private static final int MAGIC = 0x46445348;
+    private static final int VERSION = 3;
+
+    private static final char REPLACEMENT_CHARACTER = '\uFFFD';
+
+    private ShardFormat() {
+        // PRIVATE
+    }
+
+    static void writeElements(final Path file, final Collection<PathElement> elements) throws IOException {
+        try (final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(elements.size());
+
+            for (final PathElement element : elements) {
+                writePath(output, element.getPath());
+                output.writeLong(element.size());
+                output.writeLong(element.lastModifiedTime());
+                output.writeLong(element.creationTime());
+                output.writeLong(element.lastAccessTime());
+                output.writeUTF(Objects.toString(element.fileKey(), ""));
+            }
+        }
+    }
+
+    // attributes read by the walk are trusted, workers never stat again
+    static List<PathElement> readElements(final Path file, final FileCatalog catalog) throws IOException {
+        try (final DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            checkHeader(input, file);
+
+            final int count = input.readInt();
+            final List<PathElement> elements = new ArrayList<>(count);
+
+            for (int i = 0; i < count; i++) {
+                final Path path = readPath(input);
+                final WalkSnapshot.FileRecord attributes = new WalkSnapshot.FileRecord(String.valueOf(path.getFileName()),
+                                                                                       input.readLong(),
+                                                                                       input.readLong(),
+                                                                                       input.readLong(),
+                                                                                       input.readLong(),
+                                                                                       input.readUTF());
+
+                elements.add(catalog.add(path, attributes));
+            }
+
+            return elements;
+        }
+    }
+
+    static void readGroups(final Path file,
+                           final List<PathElement> elements,
+                           final BiConsumer<String, List<PathElement>> groupConsumer) throws IOException {
+        try (final DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            checkHeader(input, file);
+
+            while (input.readBoolean()) {
+                final String digest = input.readUTF();
+                final int count = input.readInt();
+                final List<PathElement> members = new ArrayList<>(count);
+
+                for (int i = 0; i < count; i++) {
+                    final int index = input.readInt();
+                    if (index < 0 || index >= elements.size()) {
+                        throw new IOException("Shard file [" + file + "] refers to a path outside of its shard");
+                    }
+
+                    members.add(elements.get(index));
+                }
+
+                groupConsumer.accept(digest, members);
+            }
+        }
+    }
+
+    // names the platform charset can't decode are sent as URIs, their string form would open another file
+    private static void writePath(final DataOutputStream output, final Path path) throws IOException {
+        final String value = path.toString();
+        final boolean undecodable = value.indexOf(REPLACEMENT_CHARACTER) >= 0;
+        final byte[] bytes = (undecodable ? path.toUri().toASCIIString() : value).getBytes(UTF_8);
+
+        output.writeBoolean(undecodable);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static Path readPath(final DataInputStream input) throws IOException {
+        final boolean undecodable = input.readBoolean();
+        final byte[] bytes = new byte[input.readInt()];
+        input.readFully(bytes);
+
+        final String value = new String(bytes, UTF_8);
+
+        return undecodable ? Paths.get(URI.create(value)) : Paths.get(value);
+    }
+
+    private static void checkHeader(final DataInputStream input, final Path file) throws IOException {
+        if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+            throw new IOException("Unrecognized shard file [" + file + "]");
+        }
+    }
+
+    static final class GroupWriter extends ReportWriter<DuplicateGroup> {
+
+        private final DataOutputStream output;
+        private final Map<PathElement, Integer> indexes;
+
+        GroupWriter(final Path file, final List<PathElement> elements) throws IOException {
+            // read once the worker exits, never flushed meanwhile
+            super(file, Long.MAX_VALUE);
+
+            indexes = new HashMap<>(elements.size() * 4 / 3 + 1);
+            for (int i = 0; i < elements.size(); i++) {
+                indexes.put(elements.get(i), i);
+            }
+
+            output = new DataOutputStream(getOutputStream());
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+        }
+
+        @Override
+        protected void write(final DuplicateGroup group) throws IOException {
+            output.writeBoolean(true);
+            output.writeUTF(group.getDigest());
+            output.writeInt(group.getMembers().size());
+
+            for (final PathElement member : group.getMembers()) {
+                output.writeInt(indexes.get(member));
+            }
+        }
+
+        @Override
+        protected void finish() throws IOException {
+            output.writeBoolean(false);
+        }
+
+    }
+
+}
@@ -0,0 +1,88 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Christophe Bismuth
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.github.cbismuth.fdupes.shard;
+
+import com.github.cbismuth.fdupes.cli.SystemPropertyGetter;
+import com.github.cbismuth.fdupes.collect.PathComparator;
+import com.github.cbismuth.fdupes.container.immutable.DuplicateGroup;
+import com.github.cbismuth.fdupes.container.immutable.PathElement;
+import com.github.cbismuth.fdupes.container.mutable.FileCatalog;
+import com.github.cbismuth.fdupes.io.FingerprintComputer;
+import com.github.cbismuth.fdupes.io.HashCache;
+import com.github.cbismuth.fdupes.io.IoExecutorFactory;
+import com.github.cbismuth.fdupes.io.IoScheduler;
+import com.github.cbismuth.fdupes.io.Md5Computer;
+import com.github.cbismuth.fdupes.report.ReportWriter;
+import com.github.cbismuth.fdupes.stream.DuplicateFinderByKey;
+import com.github.cbismuth.fdupes.stream.DuplicatesFinder;
+import com.google.common.base.Preconditions;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static com.google.common.collect.Sets.newConcurrentHashSet;
+import static java.util.Collections.emptyMap;
+
+// runs the content passes of one shard in its own JVM, without a Spring context
+public final class ShardWorker {
+
+    private ShardWorker() {
+        // PRIVATE
+    }
+
+    public static void main(final String... args) throws IOException {
+        Preconditions.checkArgument(args.length == 2, "expected a shard file and a result file");
+
+        final Path shardFile = Paths.get(args[0]);
+        final Path resultFile = Paths.get(args[1]);
+
+        final SystemPropertyGetter systemPropertyGetter = new SystemPropertyGetter(new StandardEnvironment());
+        final IoScheduler ioScheduler = new IoScheduler(new IoExecutorFactory(systemPropertyGetter), systemPropertyGetter);
+
+        try {
+            // the hash cache is never opened, workers would append to the same file
+            final DuplicatesFinder duplicatesFinder = new DuplicatesFinder(
+                new Md5Computer(new HashCache(systemPropertyGetter), systemPropertyGetter),
+                new FingerprintComputer(systemPropertyGetter),
+                new DuplicateFinderByKey(systemPropertyGetter),
+                new PathComparator(),
+                ioScheduler,
+                systemPropertyGetter
+            );
+
+            final List<PathElement> elements = ShardFormat.readElements(shardFile, new FileCatalog());
+
+            try (final ReportWriter<DuplicateGroup> groups = new ShardFormat.GroupWriter(resultFile, elements)) {
+                duplicatesFinder.extractDuplicates(elements, newConcurrentHashSet(), groups, emptyMap());
+            }
+        } finally {
+            ioScheduler.close();
+        }
+    }
+
+}
@@ -24,27 +24,85 @@
 
 package com.github.cbismuth.fdupes.stream;
 
+import com.github.cbismuth.fdupes.cli.SystemPropertyGetter;
 import com.github.cbismuth.fdupes.container.immutable.PathElement;
+import com.github.cbismuth.fdupes.container.mutable.ExternalGrouper;
+import com.github.cbismuth.fdupes.container.mutable.SizeIndex;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
 import com.google.common.collect.Multimap;
+import org.slf4j.Logger;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
 
 import static com.github.cbismuth.fdupes.container.mutable.MultimapCollector.toMultimap;
 import static java.util.stream.Collectors.toList;
+import static org.slf4j.LoggerFactory.getLogger;
 
 @Component
 public class DuplicateFinderByKey {
 
+    private static final Logger LOGGER = getLogger(DuplicateFinderByKey.class);
+
+    // rough heap footprints per file of a size index and of a multimap entry with its key
+    private static final long SIZE_INDEX_BYTES_PER_FILE = 24L;
+    private static final long MULTIMAP_BYTES_PER_FILE = 160L;
+
+    private final SystemPropertyGetter systemPropertyGetter;
+
+    public DuplicateFinderByKey(final SystemPropertyGetter systemPropertyGetter) {
+        this.systemPropertyGetter = systemPropertyGetter;
+    }
+
+    public Collection<PathElement> getDuplicatesBySize(final Collection<PathElement> input,
+                                                       final Collection<PathElement> uniqueElements) {
+        Preconditions.checkNotNull(input, "null pass stream");
+
+        final List<PathElement> elements = input instanceof List ? (List<PathElement>) input : new ArrayList<>(input);
+
+        if (isOverBudget(elements.size(), SIZE_INDEX_BYTES_PER_FILE)) {
+            return getDuplicatesExternally(elements, PathElement::size, uniqueElements);
+        }
+
+        final SizeIndex index = new SizeIndex(elements.stream().mapToLong(PathElement::size).toArray());
+
+        final List<PathElement> singletons = new ArrayList<>();
+        final List<PathElement> duplicates = new ArrayList<>();
+
+        for (int group = 0; group < index.getGroupCount(); group++) {
+            final int groupSize = index.getGroupSize(group);
+
+            if (groupSize == 1) {
+                singletons.add(elements.get(index.getMember(group, 0)));
+            } else {
+                for (int i = 0; i < groupSize; i++) {
+                    duplicates.add(elements.get(index.getMember(group, i)));
+                }
+            }
+        }
+
+        uniqueElements.addAll(singletons);
+
+        return duplicates;
+    }
+
     public <K> Collection<PathElement> getDuplicates(final Collection<PathElement> input,
                                                      final Function<PathElement, K> keyMapper,
                                                      final Collection<PathElement> uniqueElements) {
         Preconditions.checkNotNull(input, "null pass stream");
         Preconditions.checkNotNull(keyMapper, "null pass key mapper");
 
+        if (isOverBudget(input.size(), MULTIMAP_BYTES_PER_FILE)) {
+            return getDuplicatesExternally(new ArrayList<>(input), keyMapper, uniqueElements);
+        }
+
         final Multimap<K, PathElement> multimap = input.parallelStream()
                                                        .collect(toMultimap(keyMapper));
 
@@ -67,4 +125,40 @@ public class DuplicateFinderByKey {
                        .collect(toList());
     }
 
+    private boolean isOverBudget(final long fileCount, final long bytesPerFile) {
+        final long memoryBudget = systemPropertyGetter.getGroupingMemory();
+
+        return memoryBudget > 0L && fileCount * bytesPerFile > memoryBudget;
+    }
+
+    // (key, position) records are sorted in runs fitting the memory budget, then merged from disk
+    private <K> Collection<PathElement> getDuplicatesExternally(final List<PathElement> elements,
+                                                                final Function<PathElement, K> keyMapper,
+                                                                final Collection<PathElement> uniqueElements) {
+        final List<PathElement> duplicates = new ArrayList<>();
+
+        try (final ExternalGrouper grouper = new ExternalGrouper(Paths.get(systemPropertyGetter.getGroupingDirectory()),
+                                                                 systemPropertyGetter.getGroupingMemory())) {
+            for (int i = 0; i < elements.size(); i++) {
+                grouper.add(String.valueOf(keyMapper.apply(elements.get(i))), i);
+            }
+
+            grouper.forEachGroup(group -> {
+                if (group.length == 1) {
+                    uniqueElements.add(elements.get(group[0]));
+                } else {
+                    for (final int position : group) {
+                        duplicates.add(elements.get(position));
+                    }
+                }
+            });
+
+            LOGGER.info("{} file(s) grouped through {} sorted run(s) on disk", elements.size(), grouper.getRunCount());
+        } catch (final IOException e) {
+            throw Throwables.propagate(e);
+        }
+
+        return duplicates;
+    }
+
 }
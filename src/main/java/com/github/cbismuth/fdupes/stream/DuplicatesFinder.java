@@ -25,21 +25,37 @@
 package com.github.cbismuth.fdupes.stream;
 
 import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Timer;
 import com.github.cbismuth.fdupes.cli.SystemPropertyGetter;
 import com.github.cbismuth.fdupes.collect.PathComparator;
+import com.github.cbismuth.fdupes.container.immutable.DuplicateGroup;
 import com.github.cbismuth.fdupes.container.immutable.PathElement;
 import com.github.cbismuth.fdupes.io.BufferedAnalyzer;
+import com.github.cbismuth.fdupes.io.FingerprintComputer;
+import com.github.cbismuth.fdupes.io.IoScheduler;
 import com.github.cbismuth.fdupes.io.Md5Computer;
+import com.github.cbismuth.fdupes.metrics.Progress;
+import com.github.cbismuth.fdupes.metrics.Stage;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Multimap;
 import org.slf4j.Logger;
 import org.springframework.stereotype.Component;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+import java.util.function.ToLongFunction;
 
-import static com.codahale.metrics.MetricRegistry.name;
-import static com.github.cbismuth.fdupes.metrics.MetricRegistrySingleton.getMetricRegistry;
+import static com.google.common.collect.Sets.newHashSet;
+import static java.util.Collections.emptyMap;
 import static org.slf4j.LoggerFactory.getLogger;
 
 @Component
@@ -48,40 +64,210 @@ public class DuplicatesFinder {
     private static final Logger LOGGER = getLogger(DuplicatesFinder.class);
 
     private final Md5Computer md5Computer;
+    private final FingerprintComputer fingerprintComputer;
     private final DuplicateFinderByKey duplicateFinderByKey;
     private final PathComparator pathComparator;
+    private final IoScheduler ioScheduler;
     private final SystemPropertyGetter systemPropertyGetter;
 
     public DuplicatesFinder(final Md5Computer md5Computer,
+                            final FingerprintComputer fingerprintComputer,
                             final DuplicateFinderByKey duplicateFinderByKey,
                             final PathComparator pathComparator,
+                            final IoScheduler ioScheduler,
                             final SystemPropertyGetter systemPropertyGetter) {
         this.duplicateFinderByKey = duplicateFinderByKey;
         this.md5Computer = md5Computer;
+        this.fingerprintComputer = fingerprintComputer;
         this.pathComparator = pathComparator;
+        this.ioScheduler = ioScheduler;
         this.systemPropertyGetter = systemPropertyGetter;
     }
 
+    public HashPipeline newHashPipeline() {
+        final BiFunction<PathElement, LongConsumer, String> firstContentKeyMapper = getFirstContentKeyMapper();
+
+        return new HashPipeline(pathElement -> firstContentKeyMapper.apply(pathElement, readBytes -> {}),
+                                systemPropertyGetter.getParallelism(),
+                                systemPropertyGetter.getPipelineQueueSize());
+    }
+
     public void extractDuplicates(final Collection<PathElement> input,
                                   final Set<PathElement> uniqueElements,
                                   final Multimap<PathElement, PathElement> duplicates) {
+        extractDuplicates(input, uniqueElements, duplicates, emptyMap());
+    }
+
+    public void extractDuplicates(final Collection<PathElement> input,
+                                  final Set<PathElement> uniqueElements,
+                                  final Multimap<PathElement, PathElement> duplicates,
+                                  final Map<PathElement, String> precomputedKeys) {
+        extractDuplicates(input, uniqueElements, group -> duplicates.putAll(group.getOriginal(), group.getDuplicates()), precomputedKeys);
+    }
+
+    public void extractDuplicates(final Collection<PathElement> input,
+                                  final Set<PathElement> uniqueElements,
+                                  final Consumer<DuplicateGroup> groupListener,
+                                  final Map<PathElement, String> precomputedKeys) {
+        extractDuplicates(input, uniqueElements, groupListener, precomputedKeys, emptyMap());
+    }
+
+    // precomputed keys replace the first content pass, known digests (e.g. of files unchanged since they were
+    // grouped) the hash pass, neither is read again until compared byte-by-byte
+    public void extractDuplicates(final Collection<PathElement> input,
+                                  final Set<PathElement> uniqueElements,
+                                  final Consumer<DuplicateGroup> groupListener,
+                                  final Map<PathElement, String> precomputedKeys,
+                                  final Map<PathElement, String> knownDigests) {
         Preconditions.checkNotNull(input, "null file metadata collection");
+        Preconditions.checkNotNull(groupListener, "null duplicate group listener");
+        Preconditions.checkNotNull(precomputedKeys, "null precomputed keys");
+        Preconditions.checkNotNull(knownDigests, "null known digests");
+
+        final boolean doFingerprint = systemPropertyGetter.doFingerprint();
+
+        final BiFunction<PathElement, LongConsumer, String> firstContentKeyMapper = getFirstContentKeyMapper();
+        final BiFunction<PathElement, LongConsumer, String> precomputedKeyMapper = (pathElement, readBytes) -> {
+            final String key = precomputedKeys.get(pathElement);
+            if (key != null) {
+                return key;
+            }
+
+            // without fingerprints the first content key is the digest
+            final String digest = doFingerprint ? null : knownDigests.get(pathElement);
+
+            return digest != null ? digest : firstContentKeyMapper.apply(pathElement, readBytes);
+        };
+
+        final int passCount = doFingerprint ? 4 : 3;
+        int pass = 1;
+
+        LOGGER.info("Pass {}/{} - compare file by size ...", pass, passCount);
+        final Timer.Context sizePass = Stage.SIZE.timePass();
+        final Collection<PathElement> duplicatesBySize = duplicateFinderByKey.getDuplicatesBySize(input, uniqueElements);
+        Stage.SIZE.markFiles(input.size());
+        Stage.SIZE.register((Gauge<Integer>) duplicatesBySize::size, "candidates");
+        sizePass.stop();
+        LOGGER.info("Pass {}/{} - compare file by size completed! - {} duplicate(s) found", pass++, passCount, duplicatesBySize.size());
+
+        // hard links always share their size, collapsing them after pass 1 only indexes candidates
+        final HardLinks hardLinks = HardLinks.collapse(duplicatesBySize, pathElement -> precomputedKeys.containsKey(pathElement) || knownDigests.containsKey(pathElement));
+        Stage.SIZE.register((Gauge<Integer>) hardLinks::getLinkCount, "hardlinks");
+        LOGGER.info("{} hard link(s) collapsed before content comparison", hardLinks.getLinkCount());
+
+        final Collection<PathElement> candidates = hardLinks.getRepresentatives();
+
+        final Collection<PathElement> candidatesForMd5;
+        if (doFingerprint) {
+            LOGGER.info("Pass {}/{} - compare file by fingerprint ...", pass, passCount);
+            final Timer.Context fingerprintPass = Stage.FINGERPRINT.timePass();
+            final Map<PathElement, String> fingerprints;
+            final ToLongFunction<PathElement> fingerprintBytes = pathElement -> fingerprintComputer.getFingerprintLength(pathElement.size());
+            try (final Progress progress = startProgress(Stage.FINGERPRINT, candidates, fingerprintBytes)) {
+                fingerprints = ioScheduler.computeAll(candidates, track(precomputedKeyMapper, fingerprintBytes, progress));
+            }
+            final Collection<PathElement> duplicatesByFingerprint = duplicateFinderByKey.getDuplicates(candidates, fingerprints::get, uniqueElements);
+            Stage.FINGERPRINT.register((Gauge<Integer>) duplicatesByFingerprint::size, "candidates");
+            reportFingerprintSavings(candidates, duplicatesByFingerprint);
+            fingerprintPass.stop();
+            LOGGER.info("Pass {}/{} - compare file by fingerprint completed! - {} duplicate(s) found", pass++, passCount, duplicatesByFingerprint.size());
+
+            candidatesForMd5 = duplicatesByFingerprint;
+        } else {
+            candidatesForMd5 = candidates;
+        }
+
+        final String algorithm = systemPropertyGetter.getHashAlgorithm().getName();
+
+        LOGGER.info("Pass {}/{} - compare file by {} ...", pass, passCount, algorithm);
+        final Timer.Context hashPass = Stage.HASH.timePass();
+        final BiFunction<PathElement, LongConsumer, String> md5KeyMapper = !doFingerprint ? precomputedKeyMapper : (pathElement, readBytes) -> {
+            final String digest = knownDigests.get(pathElement);
+
+            return digest != null ? digest : md5Computer.compute(pathElement, readBytes);
+        };
+        final Map<PathElement, String> digests;
+        try (final Progress progress = startProgress(Stage.HASH, candidatesForMd5, PathElement::size)) {
+            digests = ioScheduler.computeAll(candidatesForMd5, track(md5KeyMapper, PathElement::size, progress));
+        }
+        final Collection<PathElement> duplicatesByMd5 = duplicateFinderByKey.getDuplicates(candidatesForMd5, digests::get, uniqueElements);
+        Stage.HASH.register((Gauge<Integer>) duplicatesByMd5::size, "candidates");
+        hashPass.stop();
+        LOGGER.info("Pass {}/{} - compare file by {} completed! - {} duplicate(s) found", pass++, passCount, algorithm, duplicatesByMd5.size());
+
+        LOGGER.info("Pass {}/{} - compare file byte-by-byte ...", pass, passCount);
+        final AtomicInteger duplicatesByBytesCount = new AtomicInteger();
+        Stage.COMPARE.register((Gauge<Integer>) duplicatesByBytesCount::get, "duplicates");
+
+        // groups are handed over as soon as confirmed, hard links joining their representative's group
+        final Consumer<List<PathElement>> listener = group -> {
+            final List<PathElement> expanded = hardLinks.expand(group, pathComparator);
+
+            uniqueElements.add(expanded.get(0));
+            duplicatesByBytesCount.addAndGet(group.size() - 1);
+            groupListener.accept(new DuplicateGroup(expanded, digests.get(group.get(0))));
+        };
+
+        final BufferedAnalyzer analyzer = new BufferedAnalyzer(pathComparator, ioScheduler, systemPropertyGetter);
+        analyzer.analyze(duplicatesByMd5, uniqueElements, listener);
+        LOGGER.info("Pass {}/{} - compare file byte-by-byte completed! - {} duplicate(s) found", pass, passCount, duplicatesByBytesCount.get());
+
+        hardLinks.expandRemaining(uniqueElements, group -> groupListener.accept(new DuplicateGroup(group, getDigest(group, digests))), pathComparator);
+    }
+
+    private Progress startProgress(final Stage stage,
+                                   final Collection<PathElement> candidates,
+                                   final ToLongFunction<PathElement> expectedBytes) {
+        final long totalBytes = candidates.stream()
+                                          .mapToLong(expectedBytes)
+                                          .sum();
+
+        return Progress.start(stage, candidates.size(), totalBytes, systemPropertyGetter.getProgressInterval());
+    }
+
+    // only bytes actually read are done, files keyed without reading (precomputed keys, hash cache hits) leave the pass
+    private static Function<PathElement, String> track(final BiFunction<PathElement, LongConsumer, String> keyMapper,
+                                                       final ToLongFunction<PathElement> expectedBytes,
+                                                       final Progress progress) {
+        return pathElement -> {
+            final AtomicLong readBytes = new AtomicLong();
+            final String key = keyMapper.apply(pathElement, readBytes::addAndGet);
+
+            progress.add(1L, readBytes.get());
+            progress.skip(Math.max(0L, expectedBytes.applyAsLong(pathElement) - readBytes.get()));
+
+            return key;
+        };
+    }
+
+    private BiFunction<PathElement, LongConsumer, String> getFirstContentKeyMapper() {
+        if (systemPropertyGetter.doFingerprint()) {
+            return fingerprintComputer::compute;
+        } else {
+            return md5Computer::compute;
+        }
+    }
+
+    private String getDigest(final List<PathElement> group,
+                             final Map<PathElement, String> digests) {
+        // hard links of a file found unique before the last hashing pass
+        return group.stream()
+                    .map(digests::get)
+                    .filter(Objects::nonNull)
+                    .findFirst()
+                    .orElseGet(() -> md5Computer.compute(group.get(0)));
+    }
+
+    private void reportFingerprintSavings(final Collection<PathElement> candidates,
+                                          final Collection<PathElement> duplicatesByFingerprint) {
+        final Set<PathElement> remaining = newHashSet(duplicatesByFingerprint);
+
+        final long savedBytes = candidates.parallelStream()
+                                          .filter(pathElement -> !remaining.contains(pathElement))
+                                          .mapToLong(pathElement -> pathElement.size() - fingerprintComputer.getFingerprintLength(pathElement.size()))
+                                          .sum();
 
-        LOGGER.info("Pass 1/3 - compare file by size ...");
-        final Collection<PathElement> duplicatesBySize = duplicateFinderByKey.getDuplicates(input, PathElement::size, uniqueElements);
-        getMetricRegistry().register(name("duplicates", "by-size", "count"), (Gauge<Integer>) duplicatesBySize::size);
-        LOGGER.info("Pass 1/3 - compare file by size completed! - {} duplicate(s) found", duplicatesBySize.size());
-
-        LOGGER.info("Pass 2/3 - compare file by MD5 ...");
-        final Collection<PathElement> duplicatesByMd5 = duplicateFinderByKey.getDuplicates(duplicatesBySize, md5Computer::compute, uniqueElements);
-        getMetricRegistry().register(name("duplicates", "by-md5", "count"), (Gauge<Integer>) duplicatesByMd5::size);
-        LOGGER.info("Pass 2/3 - compare file by MD5 completed! - {} duplicate(s) found", duplicatesByMd5.size());
-
-        LOGGER.info("Pass 3/3 - compare file byte-by-byte ...");
-        final BufferedAnalyzer analyzer = new BufferedAnalyzer(pathComparator, systemPropertyGetter);
-        analyzer.analyze(duplicatesByMd5, uniqueElements, duplicates);
-        getMetricRegistry().register(name("duplicates", "by-bytes", "count"), (Gauge<Integer>) duplicates::size);
-        LOGGER.info("Pass 3/3 - compare file byte-by-byte completed! - {} duplicate(s) found", duplicates.size());
+        Stage.FINGERPRINT.meter("bytes", "saved").mark(savedBytes);
     }
 
 }
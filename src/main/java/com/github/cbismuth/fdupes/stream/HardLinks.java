@@ -0,0 +1,141 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Christophe Bismuth
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.github.cbismuth.fdupes.stream;
+
+import com.github.cbismuth.fdupes.container.immutable.PathElement;
+import com.google.common.base.Preconditions;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import static com.google.common.collect.Sets.newConcurrentHashSet;
+import static java.util.Collections.singletonList;
+
+public class HardLinks {
+
+    private final Collection<PathElement> representatives = new ArrayList<>();
+    private final Map<PathElement, List<PathElement>> linksByRepresentative = new HashMap<>();
+    private final Set<PathElement> expandedRepresentatives = newConcurrentHashSet();
+
+    private HardLinks() {
+        // static factory
+    }
+
+    public static HardLinks collapse(final Collection<PathElement> input,
+                                     final Predicate<PathElement> preferredRepresentative) {
+        Preconditions.checkNotNull(input, "null file metadata collection");
+        Preconditions.checkNotNull(preferredRepresentative, "null preferred representative predicate");
+
+        final HardLinks hardLinks = new HardLinks();
+        final Map<Object, List<PathElement>> elementsByFileKey = new LinkedHashMap<>();
+
+        for (final PathElement pathElement : input) {
+            final Object fileKey = pathElement.fileKey();
+
+            if (fileKey == null) {
+                hardLinks.representatives.add(pathElement);
+            } else {
+                elementsByFileKey.computeIfAbsent(fileKey, k -> new ArrayList<>(1)).add(pathElement);
+            }
+        }
+
+        for (final List<PathElement> elements : elementsByFileKey.values()) {
+            final PathElement representative = elements.stream()
+                                                       .filter(preferredRepresentative)
+                                                       .findFirst()
+                                                       .orElse(elements.get(0));
+
+            hardLinks.representatives.add(representative);
+
+            if (elements.size() > 1) {
+                final List<PathElement> links = new ArrayList<>(elements);
+                links.remove(representative);
+
+                hardLinks.linksByRepresentative.put(representative, links);
+            }
+        }
+
+        return hardLinks;
+    }
+
+    public Collection<PathElement> getRepresentatives() {
+        return representatives;
+    }
+
+    public int getLinkCount() {
+        return linksByRepresentative.values()
+                                    .stream()
+                                    .mapToInt(List::size)
+                                    .sum();
+    }
+
+    public List<PathElement> expand(final List<PathElement> group,
+                                    final Comparator<PathElement> pathComparator) {
+        if (linksByRepresentative.isEmpty()) {
+            return group;
+        }
+
+        final List<PathElement> expanded = new ArrayList<>(group);
+        group.forEach(member -> {
+            final List<PathElement> links = linksByRepresentative.get(member);
+
+            if (links != null) {
+                expandedRepresentatives.add(member);
+                expanded.addAll(links);
+            }
+        });
+
+        if (expanded.size() > group.size()) {
+            expanded.sort(pathComparator);
+        }
+
+        return expanded;
+    }
+
+    public void expandRemaining(final Set<PathElement> uniqueElements,
+                                final Consumer<List<PathElement>> groupListener,
+                                final Comparator<PathElement> pathComparator) {
+        // a representative left unique after every pass still duplicates its own links
+        linksByRepresentative.keySet()
+                             .stream()
+                             .filter(representative -> !expandedRepresentatives.contains(representative))
+                             .forEach(representative -> {
+                                 final List<PathElement> group = expand(singletonList(representative), pathComparator);
+
+                                 uniqueElements.remove(representative);
+                                 uniqueElements.add(group.get(0));
+                                 groupListener.accept(group);
+                             });
+    }
+
+}
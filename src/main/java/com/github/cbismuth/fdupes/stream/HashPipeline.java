@@ -0,0 +1,232 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Christophe Bismuth
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.github.cbismuth.fdupes.stream;
+
+import com.codahale.metrics.Gauge;
+import com.github.cbismuth.fdupes.container.immutable.PathElement;
+import com.github.cbismuth.fdupes.container.mutable.FileCatalog;
+import com.github.cbismuth.fdupes.metrics.Stage;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+public class HashPipeline implements Consumer<PathElement> {
+
+    private static final Logger LOGGER = getLogger(HashPipeline.class);
+
+    private static final PathElement END_OF_WALK = new PathElement(new FileCatalog(), -1);
+
+    private static final long PUT_TIMEOUT_MILLIS = 100L;
+
+    private final Function<PathElement, String> keyMapper;
+
+    private final BlockingQueue<PathElement> walkQueue;
+    private final ThreadPoolExecutor hashExecutor;
+    private final Thread sizeThread;
+
+    private final Map<PathElement, String> keys = new ConcurrentHashMap<>();
+
+    private volatile Throwable failure;
+
+    public HashPipeline(final Function<PathElement, String> keyMapper,
+                        final int parallelism,
+                        final int queueSize) {
+        Preconditions.checkNotNull(keyMapper, "null pipeline key mapper");
+        Preconditions.checkArgument(parallelism > 0, "pipeline parallelism must be positive");
+        Preconditions.checkArgument(queueSize > 0, "pipeline queue size must be positive");
+
+        this.keyMapper = keyMapper;
+
+        walkQueue = new ArrayBlockingQueue<>(queueSize);
+        hashExecutor = new ThreadPoolExecutor(parallelism, parallelism,
+                                              0L, TimeUnit.MILLISECONDS,
+                                              new ArrayBlockingQueue<>(queueSize),
+                                              new ThreadFactoryBuilder().setNameFormat("fdupes-pipeline-hash-%d")
+                                                                        .setDaemon(true)
+                                                                        .build(),
+                                              blockWhenFull());
+        sizeThread = new ThreadFactoryBuilder().setNameFormat("fdupes-pipeline-size")
+                                               .setDaemon(true)
+                                               .build()
+                                               .newThread(this::groupBySize);
+
+        Stage.SIZE.register((Gauge<Integer>) walkQueue::size, "queue", "depth");
+        Stage.HASH.register((Gauge<Integer>) () -> hashExecutor.getQueue().size(), "queue", "depth");
+
+        sizeThread.start();
+    }
+
+    @Override
+    public void accept(final PathElement pathElement) {
+        Preconditions.checkNotNull(pathElement, "null file metadata");
+
+        put(pathElement);
+    }
+
+    public Map<PathElement, String> finish() {
+        try {
+            put(END_OF_WALK);
+
+            sizeThread.join();
+
+            hashExecutor.shutdown();
+            hashExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw Throwables.propagate(e);
+        } finally {
+            hashExecutor.shutdownNow();
+
+            Stage.SIZE.remove("queue", "depth");
+            Stage.HASH.remove("queue", "depth");
+        }
+
+        checkFailure();
+
+        return keys;
+    }
+
+    // a dead consumer must fail walkers, not leave them blocked on a full queue
+    private void put(final PathElement pathElement) {
+        try {
+            while (!walkQueue.offer(pathElement, PUT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                checkFailure();
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw Throwables.propagate(e);
+        }
+    }
+
+    private void checkFailure() {
+        final Throwable cause = failure;
+
+        if (cause != null) {
+            throw new IllegalStateException("Pipeline failed (" + cause.getClass().getSimpleName() + ": " + cause.getMessage() + ")", cause);
+        }
+    }
+
+    private void fail(final Throwable cause) {
+        if (failure == null) {
+            failure = cause;
+        }
+    }
+
+    // hard links share their size, file keys are only kept for sizes seen more than once
+    private void groupBySize() {
+        final Map<Long, PathElement> firstBySize = new HashMap<>();
+        final Map<Long, Set<Object>> fileKeysByDuplicatedSize = new HashMap<>();
+
+        try {
+            PathElement pathElement;
+            while ((pathElement = walkQueue.take()) != END_OF_WALK) {
+                final Long size = pathElement.size();
+                final Object fileKey = pathElement.fileKey();
+
+                final Set<Object> fileKeys = fileKeysByDuplicatedSize.get(size);
+                if (fileKeys != null) {
+                    if (fileKey == null || fileKeys.add(fileKey)) {
+                        submit(pathElement);
+                    }
+                } else {
+                    final PathElement first = firstBySize.get(size);
+
+                    if (first == null) {
+                        firstBySize.put(size, pathElement);
+                    } else if (fileKey == null || !fileKey.equals(first.fileKey())) {
+                        firstBySize.remove(size);
+
+                        final Set<Object> keys = new HashSet<>();
+                        if (first.fileKey() != null) {
+                            keys.add(first.fileKey());
+                        }
+                        if (fileKey != null) {
+                            keys.add(fileKey);
+                        }
+                        fileKeysByDuplicatedSize.put(size, keys);
+
+                        submit(first);
+                        submit(pathElement);
+                    }
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            LOGGER.error("Pipeline interrupted while grouping files by size");
+
+            fail(e);
+        } catch (final RuntimeException | Error e) {
+            LOGGER.error("Pipeline failed while grouping files by size ([{}]: [{}])", e.getClass().getSimpleName(), e.getMessage());
+
+            fail(e);
+        }
+    }
+
+    private void submit(final PathElement pathElement) {
+        Stage.HASH.meter("pipelined").mark();
+
+        hashExecutor.execute(() -> {
+            try {
+                keys.put(pathElement, keyMapper.apply(pathElement));
+            } catch (final RuntimeException | Error e) {
+                fail(e);
+
+                throw e;
+            }
+        });
+    }
+
+    private static RejectedExecutionHandler blockWhenFull() {
+        return (task, executor) -> {
+            try {
+                executor.getQueue().put(task);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+
+                throw Throwables.propagate(e);
+            }
+        };
+    }
+
+}
@@ -0,0 +1,121 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Christophe Bismuth
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.github.cbismuth.fdupes.collect;
+
+import com.github.cbismuth.fdupes.cli.SystemPropertyGetter;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FilenamePredicateRulesTest {
+
+    private Path directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory(getClass().getSimpleName());
+        directory.toFile().deleteOnExit();
+    }
+
+    @Test
+    public void testAccept_include() throws IOException {
+        // GIVEN
+        final FilenamePredicate systemUnderTest = newFilenamePredicate("fdupes.include", "*.{jpg,JPG}, regex:IMG_[0-9]+\\.png");
+
+        // WHEN / THEN
+        assertTrue(systemUnderTest.accept(createFile("photo.jpg")));
+        assertTrue(systemUnderTest.accept(createFile("PHOTO.JPG")));
+        assertTrue(systemUnderTest.accept(createFile("IMG_42.png")));
+        assertFalse(systemUnderTest.accept(createFile("IMG_A.png")));
+        assertFalse(systemUnderTest.accept(createFile("notes.txt")));
+        assertTrue(systemUnderTest.accept(createDirectory("album.txt")));
+    }
+
+    @Test
+    public void testAccept_exclude() throws IOException {
+        // GIVEN
+        final FilenamePredicate systemUnderTest = newFilenamePredicate("fdupes.exclude", "*.tmp,node_modules");
+
+        // WHEN / THEN
+        assertFalse(systemUnderTest.accept(createFile("download.tmp")));
+        assertFalse(systemUnderTest.accept(createDirectory("node_modules")));
+        assertTrue(systemUnderTest.accept(createFile("download.zip")));
+    }
+
+    @Test
+    public void testAccept_filenameOnly() throws IOException {
+        // GIVEN a stop word in a parent directory name only
+        final FilenamePredicate systemUnderTest = newFilenamePredicate("fdupes.exclude", "");
+        final Path parent = createDirectory("thumbs.db-like");
+
+        // WHEN / THEN
+        assertFalse(systemUnderTest.accept(parent));
+        assertTrue(systemUnderTest.accept(createFile(Paths.get(parent.toString(), "photo.jpg"))));
+        assertFalse(systemUnderTest.accept(createFile(".hidden")));
+    }
+
+    @Test
+    public void testAccept_symbolicLink() throws IOException {
+        // GIVEN
+        final FilenamePredicate systemUnderTest = newFilenamePredicate("fdupes.exclude", "");
+        final Path target = createFile("target");
+        final Path link = Files.createSymbolicLink(Paths.get(directory.toString(), "link"), target);
+        link.toFile().deleteOnExit();
+
+        // WHEN / THEN
+        assertTrue(systemUnderTest.accept(target));
+        assertFalse(systemUnderTest.accept(link));
+    }
+
+    private static FilenamePredicate newFilenamePredicate(final String key, final String value) {
+        return new FilenamePredicate(new SystemPropertyGetter(new MockEnvironment().withProperty(key, value)));
+    }
+
+    private Path createFile(final String name) throws IOException {
+        return createFile(Paths.get(directory.toString(), name));
+    }
+
+    private static Path createFile(final Path path) throws IOException {
+        Files.createFile(path).toFile().deleteOnExit();
+
+        return path;
+    }
+
+    private Path createDirectory(final String name) throws IOException {
+        final Path path = Files.createDirectory(Paths.get(directory.toString(), name));
+        path.toFile().deleteOnExit();
+
+        return path;
+    }
+
+}
@@ -24,11 +24,13 @@
 
 package com.github.cbismuth.fdupes.collect;
 
+import com.github.cbismuth.fdupes.cli.SystemPropertyGetter;
 import com.google.common.base.Throwables;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
 import org.slf4j.Logger;
+import org.springframework.mock.env.MockEnvironment;
 
 import java.io.IOException;
 import java.nio.file.Files;
@@ -55,7 +57,7 @@ public class FilenamePredicateTest {
     private static final Logger LOGGER = getLogger(FilenamePredicateTest.class);
 
     private final String forbiddenSubstring;
-    private final FilenamePredicate systemUnderTest = new FilenamePredicate();
+    private final FilenamePredicate systemUnderTest = new FilenamePredicate(new SystemPropertyGetter(new MockEnvironment()));
 
     public FilenamePredicateTest(final String forbiddenSubstring) {
         this.forbiddenSubstring = forbiddenSubstring;
@@ -30,12 +30,27 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
-
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+import static java.util.Locale.getDefault;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 public class PathAnalyserTest {
 
+    // the patterns matched before the hand-written parser
+    private static final Pattern PATTERN_1 = Pattern.compile("^([0-9]{4})([0-9]{2})([0-9]{2})([0-9]{2})([0-9]{2})([0-9]{2}).*\\.([^\\.]+)$");
+    private static final Pattern PATTERN_2 = Pattern.compile("^.*\\D([0-9]{4})([0-9]{2})([0-9]{2})([0-9]{2})([0-9]{2})([0-9]{2}).*\\.([^\\.]+)$");
+
     private final PathAnalyser systemUnderTest = new PathAnalyser();
 
     @Test
@@ -113,4 +128,91 @@ public class PathAnalyserTest {
         assertEquals(Optional.empty(), actual);
     }
 
+    @Test
+    public void testParse_matchesPatterns() {
+        final List<String> names = new ArrayList<>();
+        names.add("20110724123316-16226-4486.JPG");
+        names.add("20110724123316-20120101000000.JPG");
+        names.add("IMG_20160102121314_BURST001.jpg");
+        names.add("IMG_20160102121314_20170102121314.jpg");
+        names.add("IMG_2016010212131.jpg");
+        names.add("20160102121314.");
+        names.add("20160102121314");
+        names.add("2016010212131.4.MOV");
+        names.add(".20160102121314.MOV");
+        names.add("a.b.20160102121314.c.d");
+        names.add("x123456789012345678.tar.gz");
+
+        final Random random = new Random(42L);
+        final char[] alphabet = { '0', '1', '2', '9', '.', '-', '_', 'A', 'z' };
+        for (int i = 0; i < 100_000; i++) {
+            final char[] name = new char[14 + random.nextInt(16)];
+            for (int j = 0; j < name.length; j++) {
+                name[j] = random.nextInt(3) == 0 ? alphabet[random.nextInt(alphabet.length)] : (char) ('0' + random.nextInt(10));
+            }
+            names.add(new String(name));
+        }
+
+        for (final String name : names) {
+            final String expected = getReferenceName(name);
+            final PathAnalyser.Timestamp actual = PathAnalyser.parse(name);
+
+            if (expected == null) {
+                assertNull(name, actual);
+            } else {
+                assertEquals(name, expected, actual.getName(0));
+            }
+        }
+    }
+
+    @Test
+    public void testPlanner_burst() throws IOException {
+        final Path destination = Files.createTempDirectory(getClass().getSimpleName());
+        final PathAnalyser.Planner planner = systemUnderTest.newPlanner(destination);
+
+        final Set<Path> actual = ConcurrentHashMap.newKeySet();
+        IntStream.range(0, 1_000)
+                 .parallel()
+                 .forEach(i -> actual.add(planner.getTimestampPath(Paths.get("burst", "IMG_20160102121314_" + i + ".jpg")).get()));
+
+        assertEquals(1_000, actual.size());
+
+        for (int i = 0; i < 1_000; i++) {
+            final String name = i == 0 ? "20160102121314.JPG" : "20160102121314-" + i + ".JPG";
+
+            assertTrue(actual.contains(Paths.get(destination.toString(), "2016", "01", name)));
+        }
+    }
+
+    @Test
+    public void testPlanner_onNotMatch() throws IOException {
+        final Path destination = Files.createTempDirectory(getClass().getSimpleName());
+        final Path path = Paths.get("somewhere", "on", "disk", "MOV2016-01-02-12-13-14.MOV");
+
+        final Optional<Path> actual = systemUnderTest.newPlanner(destination).getTimestampPath(path);
+
+        assertEquals(Optional.empty(), actual);
+    }
+
+    private static String getReferenceName(final String name) {
+        final Matcher matcher_1 = PATTERN_1.matcher(name);
+        final Matcher matcher_2 = PATTERN_2.matcher(name);
+
+        final Matcher matcher;
+        if (matcher_1.matches()) {
+            matcher = matcher_1;
+        } else if (matcher_2.matches()) {
+            matcher = matcher_2;
+        } else {
+            return null;
+        }
+
+        final StringBuilder builder = new StringBuilder();
+        for (int group = 1; group <= 6; group++) {
+            builder.append(matcher.group(group));
+        }
+
+        return builder.append('.').append(matcher.group(7)).toString().toUpperCase(getDefault());
+    }
+
 }
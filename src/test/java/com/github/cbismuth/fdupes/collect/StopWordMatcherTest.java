@@ -0,0 +1,103 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Christophe Bismuth
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.github.cbismuth.fdupes.collect;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static com.github.cbismuth.fdupes.collect.FilenamePredicate.FILENAME_STOP_WORDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class StopWordMatcherTest {
+
+    @Test
+    public void testMatches() {
+        // GIVEN
+        final StopWordMatcher systemUnderTest = new StopWordMatcher(FILENAME_STOP_WORDS);
+
+        // WHEN / THEN
+        assertTrue(systemUnderTest.matches("Thumbs.DB"));
+        assertTrue(systemUnderTest.matches("prefix@EaDir"));
+        assertTrue(systemUnderTest.matches("Icon\r"));
+        assertTrue(systemUnderTest.matches("#RECYCLE.bin"));
+        assertFalse(systemUnderTest.matches("thumbs.d"));
+        assertFalse(systemUnderTest.matches("Icon"));
+        assertFalse(systemUnderTest.matches(""));
+    }
+
+    @Test
+    public void testMatches_overlappingWords() {
+        // GIVEN words sharing prefixes and suffixes, with a failure link to follow
+        final StopWordMatcher systemUnderTest = new StopWordMatcher(Arrays.asList("he", "she", "hers", "été"));
+
+        // WHEN / THEN
+        assertTrue(systemUnderTest.matches("ushers"));
+        assertTrue(systemUnderTest.matches("xshx-she"));
+        assertTrue(systemUnderTest.matches("ÉTÉ"));
+        assertFalse(systemUnderTest.matches("shx"));
+        assertFalse(systemUnderTest.matches("ét"));
+    }
+
+    @Test
+    public void testMatches_sameAsContains() {
+        // GIVEN
+        final List<String> words = Arrays.asList("ab", "bab", "bc", "caa", "a#", "#b");
+        final StopWordMatcher systemUnderTest = new StopWordMatcher(words);
+
+        final Random random = new Random(42L);
+        final char[] alphabet = { 'a', 'A', 'b', 'c', 'C', '#', 'x' };
+
+        for (int i = 0; i < 10_000; i++) {
+            final char[] text = new char[random.nextInt(12)];
+            for (int j = 0; j < text.length; j++) {
+                text[j] = alphabet[random.nextInt(alphabet.length)];
+            }
+            final String actual = new String(text);
+
+            // WHEN
+            final boolean expected = words.stream().anyMatch(word -> actual.toLowerCase(Locale.ROOT).contains(word));
+
+            // THEN
+            assertEquals(actual, expected, systemUnderTest.matches(actual));
+        }
+    }
+
+    @Test
+    public void testMatches_noWords() {
+        // GIVEN
+        final StopWordMatcher systemUnderTest = new StopWordMatcher(Collections.emptyList());
+
+        // WHEN / THEN
+        assertFalse(systemUnderTest.matches("anything"));
+    }
+
+}
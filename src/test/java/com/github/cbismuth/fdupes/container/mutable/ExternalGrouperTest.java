@@ -0,0 +1,115 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Christophe Bismuth
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.github.cbismuth.fdupes.container.mutable;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ExternalGrouperTest {
+
+    private Path directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory(getClass().getSimpleName());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (final Stream<Path> files = Files.list(directory)) {
+            assertEquals("sorted runs left behind", 0L, files.count());
+        }
+
+        Files.delete(directory);
+    }
+
+    @Test
+    public void testForEachGroup_inMemory() throws IOException {
+        // GIVEN
+        final List<int[]> actual = new ArrayList<>();
+
+        try (final ExternalGrouper systemUnderTest = new ExternalGrouper(directory, Long.MAX_VALUE)) {
+            systemUnderTest.add("b", 0);
+            systemUnderTest.add("a", 1);
+            systemUnderTest.add("b", 2);
+
+            // WHEN
+            systemUnderTest.forEachGroup(actual::add);
+
+            // THEN
+            assertEquals(0, systemUnderTest.getRunCount());
+        }
+
+        assertEquals(2, actual.size());
+        assertArrayEquals(new int[] { 1 }, actual.get(0));
+        assertArrayEquals(new int[] { 0, 2 }, actual.get(1));
+    }
+
+    @Test
+    public void testForEachGroup_mergesSpilledRuns() throws IOException {
+        // GIVEN more runs than merged at once
+        final Random random = new Random(42L);
+        final Map<String, List<Integer>> expected = new HashMap<>();
+        final Map<String, int[]> actual = new HashMap<>();
+        final String[] keys = new String[10_000];
+
+        try (final ExternalGrouper systemUnderTest = new ExternalGrouper(directory, 1024L)) {
+            for (int id = 0; id < keys.length; id++) {
+                final String key = Integer.toHexString(random.nextInt(3_000));
+                keys[id] = key;
+
+                systemUnderTest.add(key, id);
+                expected.computeIfAbsent(key, k -> new ArrayList<>()).add(id);
+            }
+
+            // WHEN
+            systemUnderTest.forEachGroup(group -> {
+                assertTrue("group returned twice", actual.put(keys[group[0]], group) == null);
+            });
+
+            // THEN
+            assertTrue(systemUnderTest.getRunCount() > 64);
+        }
+
+        assertEquals(expected.size(), actual.size());
+        expected.forEach((key, ids) -> assertArrayEquals(ids.stream().mapToInt(Integer::intValue).toArray(), actual.get(key)));
+    }
+
+}
@@ -0,0 +1,145 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Christophe Bismuth
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.github.cbismuth.fdupes.container.mutable;
+
+import com.github.cbismuth.fdupes.container.immutable.PathElement;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class FileCatalogTest {
+
+    @Test
+    public void testAdd() throws IOException {
+        // GIVEN
+        final Path directory = Files.createTempDirectory(getClass().getSimpleName());
+        directory.toFile().deleteOnExit();
+
+        final List<Path> paths = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            final Path subDirectory = Files.createDirectories(Paths.get(directory.toString(), String.valueOf(i % 7)));
+            final Path path = Files.write(Paths.get(subDirectory.toString(), "file-" + i), new byte[i]);
+
+            path.toFile().deleteOnExit();
+            subDirectory.toFile().deleteOnExit();
+
+            paths.add(path);
+        }
+
+        final FileCatalog systemUnderTest = new FileCatalog();
+
+        // WHEN
+        for (final Path path : paths) {
+            systemUnderTest.add(path, Files.readAttributes(path, BasicFileAttributes.class));
+        }
+
+        // THEN
+        assertEquals(paths.size(), systemUnderTest.size());
+
+        for (int i = 0; i < paths.size(); i++) {
+            final Path path = paths.get(i);
+            final BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            final PathElement actual = systemUnderTest.elements().get(i);
+
+            assertEquals(path, actual.getPath());
+            assertEquals(attributes.size(), actual.size());
+            assertEquals(attributes.lastModifiedTime().toMillis(), actual.lastModifiedTime());
+            assertEquals(attributes.creationTime().toMillis(), actual.creationTime());
+            assertEquals(String.valueOf(attributes.fileKey()), String.valueOf(actual.fileKey()));
+            assertEquals(systemUnderTest.get(0).device(), actual.device());
+        }
+    }
+
+    @Test
+    public void testAdd_relativePath() throws IOException {
+        // GIVEN
+        final Path path = Files.createTempFile(Paths.get(""), getClass().getSimpleName(), ".tmp");
+        path.toFile().deleteOnExit();
+
+        Files.write(path, "content".getBytes(UTF_8));
+
+        // WHEN
+        final PathElement actual = new FileCatalog().add(path, Files.readAttributes(path, BasicFileAttributes.class));
+
+        // THEN
+        assertEquals(path, actual.getPath());
+        assertEquals(7L, actual.size());
+    }
+
+    @Test
+    public void testElements_equality() throws IOException {
+        // GIVEN
+        final Path path = Files.createTempFile(getClass().getSimpleName(), ".tmp");
+        path.toFile().deleteOnExit();
+
+        final BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        final FileCatalog systemUnderTest = new FileCatalog();
+
+        // WHEN
+        final PathElement first = systemUnderTest.add(path, attributes);
+        final PathElement second = systemUnderTest.add(path, attributes);
+
+        // THEN
+        assertEquals(first, systemUnderTest.get(0));
+        assertEquals(first.hashCode(), systemUnderTest.get(0).hashCode());
+        assertNotEquals(first, second);
+        assertNotEquals(first, new FileCatalog().add(path, attributes));
+        assertEquals(first.fileKey(), second.fileKey());
+    }
+
+    @Test
+    public void testAdd_copiesRowsOfAnotherCatalog() throws IOException {
+        // GIVEN
+        final Path path = Files.createTempFile(getClass().getSimpleName(), ".tmp");
+        path.toFile().deleteOnExit();
+
+        Files.write(path, "content".getBytes(UTF_8));
+
+        final PathElement original = new FileCatalog().add(path, Files.readAttributes(path, BasicFileAttributes.class));
+
+        // WHEN
+        final PathElement actual = new FileCatalog().add(original);
+
+        // THEN
+        assertNotEquals(original, actual);
+        assertEquals(original.getPath(), actual.getPath());
+        assertEquals(original.size(), actual.size());
+        assertEquals(original.lastModifiedTime(), actual.lastModifiedTime());
+        assertEquals(original.creationTime(), actual.creationTime());
+        assertEquals(original.lastAccessTime(), actual.lastAccessTime());
+        assertEquals(original.fileKey(), actual.fileKey());
+    }
+
+}
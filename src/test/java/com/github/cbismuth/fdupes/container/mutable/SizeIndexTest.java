@@ -0,0 +1,97 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Christophe Bismuth
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.github.cbismuth.fdupes.container.mutable;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SizeIndexTest {
+
+    @Test
+    public void testGroups() {
+        // GIVEN
+        final long[] sizes = { 42L, 0L, 42L, Long.MAX_VALUE, 7L, 42L, 0L };
+
+        // WHEN
+        final SizeIndex systemUnderTest = new SizeIndex(sizes);
+
+        // THEN
+        assertEquals(4, systemUnderTest.getGroupCount());
+
+        final int group = systemUnderTest.getGroupOf(0);
+        assertEquals(42L, systemUnderTest.getGroupKey(group));
+        assertEquals(3, systemUnderTest.getGroupSize(group));
+        assertEquals(0, systemUnderTest.getMember(group, 0));
+        assertEquals(2, systemUnderTest.getMember(group, 1));
+        assertEquals(5, systemUnderTest.getMember(group, 2));
+
+        assertEquals(1, systemUnderTest.getGroupSize(systemUnderTest.getGroupOf(3)));
+        assertEquals(2, systemUnderTest.getGroupSize(systemUnderTest.getGroupOf(6)));
+    }
+
+    @Test
+    public void testGroups_manyDistinctSizes() {
+        // GIVEN
+        final Random random = new Random(42L);
+        final long[] sizes = new long[100_000];
+        final Map<Long, Integer> expected = new HashMap<>();
+
+        for (int i = 0; i < sizes.length; i++) {
+            sizes[i] = random.nextInt(20_000) * 4096L;
+            expected.merge(sizes[i], 1, Integer::sum);
+        }
+
+        // WHEN
+        final SizeIndex systemUnderTest = new SizeIndex(sizes);
+
+        // THEN
+        assertEquals(expected.size(), systemUnderTest.getGroupCount());
+
+        final Set<Integer> seenElements = new HashSet<>();
+        for (int group = 0; group < systemUnderTest.getGroupCount(); group++) {
+            final long key = systemUnderTest.getGroupKey(group);
+
+            assertEquals(expected.get(key).intValue(), systemUnderTest.getGroupSize(group));
+
+            for (int i = 0; i < systemUnderTest.getGroupSize(group); i++) {
+                final int element = systemUnderTest.getMember(group, i);
+
+                assertEquals(key, sizes[element]);
+                assertTrue(seenElements.add(element));
+            }
+        }
+
+        assertEquals(sizes.length, seenElements.size());
+    }
+
+}
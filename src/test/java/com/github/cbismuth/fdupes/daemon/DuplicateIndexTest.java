@@ -0,0 +1,139 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Christophe Bismuth
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.github.cbismuth.fdupes.daemon;
+
+import com.github.cbismuth.fdupes.cli.SystemPropertyGetter;
+import com.github.cbismuth.fdupes.collect.PathComparator;
+import com.github.cbismuth.fdupes.container.immutable.DuplicateGroup;
+import com.github.cbismuth.fdupes.container.immutable.PathElement;
+import com.github.cbismuth.fdupes.container.mutable.FileCatalog;
+import com.github.cbismuth.fdupes.io.FingerprintComputer;
+import com.github.cbismuth.fdupes.io.HashCache;
+import com.github.cbismuth.fdupes.io.IoExecutorFactory;
+import com.github.cbismuth.fdupes.io.IoScheduler;
+import com.github.cbismuth.fdupes.io.Md5Computer;
+import com.github.cbismuth.fdupes.stream.DuplicateFinderByKey;
+import com.github.cbismuth.fdupes.stream.DuplicatesFinder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+
+public class DuplicateIndexTest {
+
+    private final FileCatalog catalog = new FileCatalog();
+
+    private Path directory;
+    private IoScheduler ioScheduler;
+    private DuplicateIndex systemUnderTest;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory(getClass().getSimpleName());
+
+        final SystemPropertyGetter systemPropertyGetter = new SystemPropertyGetter(new MockEnvironment());
+        ioScheduler = new IoScheduler(new IoExecutorFactory(systemPropertyGetter), systemPropertyGetter);
+
+        systemUnderTest = new DuplicateIndex(new DuplicatesFinder(
+            new Md5Computer(new HashCache(systemPropertyGetter), systemPropertyGetter),
+            new FingerprintComputer(systemPropertyGetter),
+            new DuplicateFinderByKey(systemPropertyGetter),
+            new PathComparator(),
+            ioScheduler,
+            systemPropertyGetter
+        ));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        ioScheduler.close();
+
+        try (final Stream<Path> paths = Files.walk(directory)) {
+            for (final Path path : paths.sorted((a, b) -> b.compareTo(a)).collect(toList())) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Test
+    public void testRefresh_reusesDigestsOfUnchangedFiles() throws IOException {
+        // GIVEN a group found by the first scan, whose digest can't be computed again
+        final PathElement original = add("a", "duplicate");
+        final PathElement copy = add("b", "duplicate");
+        systemUnderTest.add(new DuplicateGroup(newArrayList(original, copy), "known"));
+
+        // WHEN a file of the same size shows up
+        final Path other = write("c", "different");
+        systemUnderTest.put(other, Files.readAttributes(other, BasicFileAttributes.class));
+        systemUnderTest.refresh();
+
+        // THEN only the new file was hashed, the group kept its digest
+        final List<DuplicateGroup> actual = systemUnderTest.getGroups();
+        assertEquals(1, actual.size());
+        assertEquals("known", actual.get(0).getDigest());
+        assertEquals(newArrayList(original, copy), actual.get(0).getMembers());
+    }
+
+    @Test
+    public void testRefresh_compactsRowsOfRewrittenFiles() throws IOException {
+        // GIVEN a file rewritten over and over
+        final Path path = write("a", "rewritten");
+        final BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+
+        for (int i = 0; i < 10000; i++) {
+            systemUnderTest.put(path, attributes);
+        }
+
+        // WHEN
+        systemUnderTest.refresh();
+
+        // THEN
+        assertEquals(1, systemUnderTest.getCatalogSize());
+        assertEquals(1L, (long) systemUnderTest.getSummary().get("files"));
+    }
+
+    private PathElement add(final String name, final String content) throws IOException {
+        final Path path = write(name, content);
+
+        return catalog.add(path, Files.readAttributes(path, BasicFileAttributes.class));
+    }
+
+    private Path write(final String name, final String content) throws IOException {
+        return Files.write(directory.resolve(name), content.getBytes(UTF_8));
+    }
+
+}
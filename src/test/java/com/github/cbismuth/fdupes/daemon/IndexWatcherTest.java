@@ -0,0 +1,136 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Christophe Bismuth
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.github.cbismuth.fdupes.daemon;
+
+import com.github.cbismuth.fdupes.Main;
+import com.github.cbismuth.fdupes.container.immutable.DuplicateGroup;
+import com.github.cbismuth.fdupes.io.PathHelper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.singleton;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = Main.class, webEnvironment = RANDOM_PORT, properties = "fdupes.daemon.debounce=100ms")
+public class IndexWatcherTest {
+
+    @Autowired
+    private PathHelper pathHelper;
+    @Autowired
+    private DuplicateIndex duplicateIndex;
+    @Autowired
+    private IndexWatcher systemUnderTest;
+
+    private Path directory;
+    private Thread watcherThread;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory(pathHelper.uniqueString());
+        Files.write(directory.resolve("a"), "duplicate".getBytes(UTF_8));
+
+        watcherThread = new Thread(() -> {
+            try {
+                systemUnderTest.watch(singleton(directory.toString()));
+            } catch (final IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        watcherThread.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        systemUnderTest.close();
+        watcherThread.join(TimeUnit.SECONDS.toMillis(10));
+
+        duplicateIndex.removeAll(directory);
+        duplicateIndex.refresh();
+
+        try (final Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted((a, b) -> b.compareTo(a)).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    public void testWatch_createdAndDeletedFilesUpdateTheIndex() throws Exception {
+        // GIVEN a file indexed by the first scan
+        final Path original = directory.resolve("a");
+        duplicateIndex.put(original, Files.readAttributes(original, BasicFileAttributes.class));
+        duplicateIndex.refresh();
+
+        // WHEN a copy shows up
+        final Path copy = directory.resolve("b");
+        awaitUntil(() -> {
+            try {
+                // keep rewriting until the watch key is registered
+                Files.write(copy, "duplicate".getBytes(UTF_8));
+            } catch (final IOException e) {
+                throw new IllegalStateException(e);
+            }
+            return duplicateIndex.getGroups(directory).size() == 1;
+        });
+
+        // THEN
+        final List<DuplicateGroup> groups = duplicateIndex.getGroups(directory);
+        assertEquals(1, groups.size());
+        assertEquals(2, groups.get(0).getMembers().size());
+
+        // WHEN the copy is deleted
+        Files.delete(copy);
+
+        // THEN
+        awaitUntil(() -> duplicateIndex.getGroups(directory).isEmpty());
+    }
+
+    private static void awaitUntil(final Supplier<Boolean> condition) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+
+        while (!condition.get()) {
+            assertTrue("timed out waiting for the duplicate index", System.currentTimeMillis() < deadline);
+
+            Thread.sleep(200L);
+        }
+    }
+
+}
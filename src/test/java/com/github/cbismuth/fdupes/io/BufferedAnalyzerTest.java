@@ -0,0 +1,118 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Christophe Bismuth
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.github.cbismuth.fdupes.io;
+
+import com.github.cbismuth.fdupes.cli.SystemPropertyGetter;
+import com.github.cbismuth.fdupes.collect.PathComparator;
+import com.github.cbismuth.fdupes.container.immutable.PathElement;
+import com.github.cbismuth.fdupes.container.mutable.FileCatalog;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Multimap;
+import org.junit.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Set;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Multimaps.synchronizedListMultimap;
+import static com.google.common.collect.Sets.newConcurrentHashSet;
+import static java.util.UUID.randomUUID;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BufferedAnalyzerTest {
+
+    private static final int BUFFER_SIZE = 16;
+
+    private final SystemPropertyGetter systemPropertyGetter = new SystemPropertyGetter(
+        new MockEnvironment().withProperty("fdupes.buffer.size", BUFFER_SIZE + "b")
+    );
+    private final BufferedAnalyzer systemUnderTest = new BufferedAnalyzer(new PathComparator(), new IoScheduler(new IoExecutorFactory(systemPropertyGetter), systemPropertyGetter), systemPropertyGetter);
+
+    private final FileCatalog catalog = new FileCatalog();
+
+    @Test
+    public void testAnalyze_differenceAfterFirstChunk() throws IOException {
+        // GIVEN
+        final byte[] content = new byte[3 * BUFFER_SIZE + 1];
+        final byte[] otherContent = Arrays.copyOf(content, content.length);
+        otherContent[content.length - 1] = 42;
+
+        final Path directory = Files.createTempDirectory(getClass().getSimpleName());
+        final PathElement duplicate1 = createPathElement(directory, content);
+        final PathElement duplicate2 = createPathElement(directory, content);
+        final PathElement unique = createPathElement(directory, otherContent);
+
+        final Set<PathElement> uniqueElements = newConcurrentHashSet();
+        final Multimap<PathElement, PathElement> duplicates = synchronizedListMultimap(ArrayListMultimap.create());
+
+        // WHEN
+        systemUnderTest.analyze(newArrayList(duplicate1, unique, duplicate2), uniqueElements, duplicates);
+
+        // THEN
+        assertEquals(1, duplicates.size());
+        assertEquals(2, uniqueElements.size());
+        assertTrue(uniqueElements.contains(unique));
+        assertTrue(duplicates.containsValue(duplicate1) || duplicates.containsValue(duplicate2));
+    }
+
+    @Test
+    public void testAnalyze_allIdentical() throws IOException {
+        // GIVEN
+        final byte[] content = new byte[2 * BUFFER_SIZE];
+        Arrays.fill(content, (byte) 7);
+
+        final Path directory = Files.createTempDirectory(getClass().getSimpleName());
+
+        final Set<PathElement> uniqueElements = newConcurrentHashSet();
+        final Multimap<PathElement, PathElement> duplicates = synchronizedListMultimap(ArrayListMultimap.create());
+
+        // WHEN
+        systemUnderTest.analyze(newArrayList(createPathElement(directory, content),
+                                             createPathElement(directory, content),
+                                             createPathElement(directory, content)),
+                                uniqueElements,
+                                duplicates);
+
+        // THEN
+        assertEquals(2, duplicates.size());
+        assertEquals(1, uniqueElements.size());
+    }
+
+    private PathElement createPathElement(final Path directory, final byte[] content) throws IOException {
+        final Path path = Files.write(Paths.get(directory.toString(), randomUUID().toString()), content);
+
+        path.toFile().deleteOnExit();
+
+        return catalog.add(path, Files.readAttributes(path, BasicFileAttributes.class));
+    }
+
+}
@@ -0,0 +1,121 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Christophe Bismuth
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.github.cbismuth.fdupes.io;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class ContentHasherTest {
+
+    @Test
+    public void testDigest_sha256() {
+        assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad", digest(HashAlgorithm.SHA256, "abc"));
+    }
+
+    @Test
+    public void testDigest_crc32c() {
+        final ContentHasher hasher = HashAlgorithm.CRC32C.newHasher();
+
+        // CRC32 fallback on Java 8 runtimes
+        final String expected = "CRC32C".equals(hasher.getAlgorithm()) ? "e3069283" : "cbf43926";
+
+        assertEquals(expected, digest(HashAlgorithm.CRC32C, "123456789"));
+    }
+
+    @Test
+    public void testDigest_xxhash64() {
+        assertEquals("ef46db3751d8e999", digest(HashAlgorithm.XXHASH64, ""));
+        assertEquals("44bc2cf5ad770999", digest(HashAlgorithm.XXHASH64, "abc"));
+        assertEquals("fbcea83c8a378bf1", digest(HashAlgorithm.XXHASH64, "Nobody inspects the spammish repetition"));
+    }
+
+    @Test
+    public void testDigest_chunkedUpdates() {
+        final byte[] content = new byte[10_000];
+        new Random(42L).nextBytes(content);
+
+        for (final HashAlgorithm algorithm : HashAlgorithm.values()) {
+            // GIVEN
+            final ContentHasher hasher = algorithm.newHasher();
+            final Random random = new Random(42L);
+            final ByteBuffer buffer = ByteBuffer.allocateDirect(content.length);
+
+            // WHEN
+            hasher.reset();
+            int position = 0;
+            while (position < content.length) {
+                final int length = Math.min(content.length - position, random.nextInt(100));
+
+                buffer.clear();
+                buffer.put(content, position, length);
+                buffer.flip();
+                hasher.update(buffer);
+
+                position += length;
+            }
+
+            // THEN
+            assertEquals(algorithm.getName(), digest(algorithm, content), toHexString(hasher));
+        }
+    }
+
+    @Test
+    public void testFromName() {
+        assertEquals(HashAlgorithm.XXHASH64, HashAlgorithm.fromName("XXHash64").get());
+        assertFalse(HashAlgorithm.fromName("sha1").isPresent());
+    }
+
+    private static String digest(final HashAlgorithm algorithm, final String content) {
+        return digest(algorithm, content.getBytes(UTF_8));
+    }
+
+    private static String digest(final HashAlgorithm algorithm, final byte[] content) {
+        final ContentHasher hasher = algorithm.newHasher();
+
+        hasher.reset();
+        hasher.update(ByteBuffer.wrap(content));
+
+        return toHexString(hasher);
+    }
+
+    private static String toHexString(final ContentHasher hasher) {
+        final byte[] output = new byte[hasher.getDigestLength()];
+        final int length = hasher.digest(output);
+
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            sb.append(String.format("%02x", output[i] & 0xFF));
+        }
+
+        return sb.toString();
+    }
+
+}
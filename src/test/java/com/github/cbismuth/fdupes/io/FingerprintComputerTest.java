@@ -0,0 +1,115 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Christophe Bismuth
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.github.cbismuth.fdupes.io;
+
+import com.github.cbismuth.fdupes.cli.SystemPropertyGetter;
+import com.github.cbismuth.fdupes.container.immutable.PathElement;
+import com.github.cbismuth.fdupes.container.mutable.FileCatalog;
+import org.junit.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+
+import static java.util.UUID.randomUUID;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class FingerprintComputerTest {
+
+    private static final int WINDOW_SIZE = 16;
+    private static final int FILE_SIZE = 1024;
+
+    private final FingerprintComputer systemUnderTest = new FingerprintComputer(new SystemPropertyGetter(
+        new MockEnvironment().withProperty("fdupes.fingerprint.window.size", WINDOW_SIZE + "b")
+                             .withProperty("fdupes.fingerprint.samples", "1")
+    ));
+
+    private final FileCatalog catalog = new FileCatalog();
+
+    @Test
+    public void testCompute_sameWindows() throws IOException {
+        // GIVEN
+        final byte[] content1 = new byte[FILE_SIZE];
+        final byte[] content2 = Arrays.copyOf(content1, FILE_SIZE);
+        content2[100] = 42;
+
+        // WHEN
+        final String actual1 = systemUnderTest.compute(createPathElement(content1));
+        final String actual2 = systemUnderTest.compute(createPathElement(content2));
+
+        // THEN
+        assertEquals(actual1, actual2);
+    }
+
+    @Test
+    public void testCompute_differentHead() throws IOException {
+        assertDifferentFingerprintWhenByteChangesAt(0);
+    }
+
+    @Test
+    public void testCompute_differentMiddle() throws IOException {
+        assertDifferentFingerprintWhenByteChangesAt(FILE_SIZE / 2);
+    }
+
+    @Test
+    public void testCompute_differentTail() throws IOException {
+        assertDifferentFingerprintWhenByteChangesAt(FILE_SIZE - 1);
+    }
+
+    @Test
+    public void testGetFingerprintLength() {
+        assertEquals(10L, systemUnderTest.getFingerprintLength(10L));
+        assertEquals(3L * WINDOW_SIZE, systemUnderTest.getFingerprintLength(FILE_SIZE));
+    }
+
+    private void assertDifferentFingerprintWhenByteChangesAt(final int index) throws IOException {
+        // GIVEN
+        final byte[] content1 = new byte[FILE_SIZE];
+        final byte[] content2 = Arrays.copyOf(content1, FILE_SIZE);
+        content2[index] = 42;
+
+        // WHEN
+        final String actual1 = systemUnderTest.compute(createPathElement(content1));
+        final String actual2 = systemUnderTest.compute(createPathElement(content2));
+
+        // THEN
+        assertNotEquals(actual1, actual2);
+    }
+
+    private PathElement createPathElement(final byte[] content) throws IOException {
+        final Path directory = Files.createTempDirectory(getClass().getSimpleName());
+        final Path path = Files.write(Paths.get(directory.toString(), randomUUID().toString()), content);
+
+        path.toFile().deleteOnExit();
+
+        return catalog.add(path, Files.readAttributes(path, BasicFileAttributes.class));
+    }
+
+}
@@ -0,0 +1,173 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Christophe Bismuth
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.github.cbismuth.fdupes.io;
+
+import com.github.cbismuth.fdupes.cli.SystemPropertyGetter;
+import com.github.cbismuth.fdupes.container.immutable.PathElement;
+import com.github.cbismuth.fdupes.container.mutable.FileCatalog;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Optional;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.UUID.randomUUID;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HashCacheTest {
+
+    private final FileCatalog catalog = new FileCatalog();
+
+    private Path directory;
+    private SystemPropertyGetter systemPropertyGetter;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory(getClass().getSimpleName());
+
+        final Path cacheFile = Paths.get(directory.toString(), "hashes.cache");
+        systemPropertyGetter = new SystemPropertyGetter(new MockEnvironment().withProperty("fdupes.cache.file", cacheFile.toString()));
+    }
+
+    @Test
+    public void testGet_afterReopen() throws IOException {
+        // GIVEN
+        final Path path = createFile("content");
+
+        final HashCache writer = newOpenedCache();
+        writer.put(readPathElement(path), "digest");
+        writer.close();
+
+        // WHEN
+        final HashCache reader = newOpenedCache();
+        final Optional<String> actual = reader.get(readPathElement(path));
+        reader.close();
+
+        // THEN
+        assertEquals(Optional.of("digest"), actual);
+    }
+
+    @Test
+    public void testGet_afterModification() throws IOException {
+        // GIVEN
+        final Path path = createFile("content");
+
+        final HashCache writer = newOpenedCache();
+        writer.put(readPathElement(path), "digest");
+        writer.close();
+
+        Files.setLastModifiedTime(path, FileTime.fromMillis(Files.getLastModifiedTime(path).toMillis() + 10_000L));
+
+        // WHEN
+        final HashCache reader = newOpenedCache();
+        final Optional<String> actual = reader.get(readPathElement(path));
+        reader.close();
+
+        // THEN
+        assertFalse(actual.isPresent());
+    }
+
+    @Test
+    public void testClose_evictsDeletedFiles() throws IOException {
+        // GIVEN
+        final Path deleted = createFile("deleted");
+        final Path kept = createFile("kept");
+
+        final HashCache writer = newOpenedCache();
+        writer.put(readPathElement(deleted), "digest-1");
+        writer.put(readPathElement(kept), "digest-2");
+        writer.close();
+
+        Files.delete(deleted);
+
+        // WHEN
+        final HashCache evicting = newOpenedCache();
+        evicting.close();
+
+        final HashCache reader = newOpenedCache();
+        final Optional<String> actual = reader.get(readPathElement(kept));
+        reader.close();
+
+        // THEN
+        final String content = new String(Files.readAllBytes(Paths.get(systemPropertyGetter.getCacheFile())), UTF_8);
+
+        assertEquals(Optional.of("digest-2"), actual);
+        assertFalse(content.contains(deleted.toString()));
+        assertTrue(content.contains(kept.toString()));
+    }
+
+    @Test
+    public void testOpen_truncatedFile() throws IOException {
+        // GIVEN
+        final Path path = createFile("content");
+
+        final HashCache writer = newOpenedCache();
+        writer.put(readPathElement(path), "digest");
+        writer.close();
+
+        final Path cacheFile = Paths.get(systemPropertyGetter.getCacheFile());
+        final byte[] bytes = Files.readAllBytes(cacheFile);
+        Files.write(cacheFile, Arrays.copyOf(bytes, bytes.length - 3));
+
+        // WHEN
+        final HashCache reader = newOpenedCache();
+        final Optional<String> actual = reader.get(readPathElement(path));
+        reader.close();
+
+        // THEN
+        assertFalse(actual.isPresent());
+        assertTrue(Files.exists(cacheFile));
+    }
+
+    private HashCache newOpenedCache() throws IOException {
+        final HashCache hashCache = new HashCache(systemPropertyGetter);
+        hashCache.open();
+
+        return hashCache;
+    }
+
+    private Path createFile(final String content) throws IOException {
+        return Files.write(Paths.get(directory.toString(), randomUUID().toString()), content.getBytes(UTF_8));
+    }
+
+    private PathElement readPathElement(final Path path) {
+        try {
+            return catalog.add(path, Files.readAttributes(path, BasicFileAttributes.class));
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
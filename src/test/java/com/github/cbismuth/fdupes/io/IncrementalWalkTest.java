@@ -0,0 +1,207 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Christophe Bismuth
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.github.cbismuth.fdupes.io;
+
+import com.github.cbismuth.fdupes.container.immutable.DuplicateGroup;
+import com.github.cbismuth.fdupes.container.immutable.PathElement;
+import com.github.cbismuth.fdupes.container.mutable.FileCatalog;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Sets.newConcurrentHashSet;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.emptyList;
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class IncrementalWalkTest {
+
+    private static final long FILTER_HASH = 42L;
+
+    private Path directory;
+    private Path snapshotFile;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory(getClass().getSimpleName());
+        snapshotFile = directory.resolveSibling(directory.getFileName() + ".snapshot");
+
+        Files.write(directory.resolve("a"), "duplicate".getBytes(UTF_8));
+        Files.write(directory.resolve("b"), "duplicate".getBytes(UTF_8));
+        Files.write(directory.resolve("c"), "unique".getBytes(UTF_8));
+
+        // far from racily clean, a directory modified while walked is never reused
+        Files.setLastModifiedTime(directory, FileTime.fromMillis(System.currentTimeMillis() - 60000L));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (final Stream<Path> paths = Files.walk(directory)) {
+            for (final Path path : paths.sorted((a, b) -> b.compareTo(a)).collect(toList())) {
+                Files.delete(path);
+            }
+        }
+
+        Files.deleteIfExists(snapshotFile);
+    }
+
+    @Test
+    public void testSelect_reusesUnchangedDirectories() throws IOException {
+        // GIVEN a first walk
+        final IncrementalWalk first = IncrementalWalk.open(snapshotFile, FILTER_HASH);
+        final long lastModifiedTime = Files.getLastModifiedTime(directory).toMillis();
+        assertNull(first.getUnchanged(directory, lastModifiedTime));
+
+        final List<PathElement> firstFiles = list(new FileCatalog());
+        first.onListed(directory, new WalkSnapshot.Listing(lastModifiedTime, emptyList(), firstFiles));
+
+        final List<DuplicateGroup> firstGroups = new ArrayList<>();
+        assertEquals(3, first.select(firstFiles, newConcurrentHashSet(), firstGroups::add).size());
+        first.record(firstGroups::add).accept(new DuplicateGroup(newArrayList(firstFiles.get(0), firstFiles.get(1)), "digest"));
+        first.save();
+
+        // WHEN the directory is walked again unchanged
+        final IncrementalWalk second = IncrementalWalk.open(snapshotFile, FILTER_HASH);
+        final WalkSnapshot.Directory unchanged = second.getUnchanged(directory, lastModifiedTime);
+        assertNotNull(unchanged);
+
+        final FileCatalog catalog = new FileCatalog();
+        final List<PathElement> secondFiles = new ArrayList<>();
+        for (final WalkSnapshot.FileRecord file : unchanged.getFiles()) {
+            secondFiles.add(catalog.add(directory.resolve(file.getName()), file));
+        }
+        second.onReused(directory, new WalkSnapshot.Listing(lastModifiedTime, emptyList(), secondFiles));
+
+        final Set<PathElement> uniqueElements = newConcurrentHashSet();
+        final List<DuplicateGroup> secondGroups = new ArrayList<>();
+        final Collection<PathElement> candidates = second.select(secondFiles, uniqueElements, second.record(secondGroups::add));
+
+        // THEN
+        assertTrue(candidates.isEmpty());
+        assertEquals(1, secondGroups.size());
+        assertEquals("digest", secondGroups.get(0).getDigest());
+        assertEquals(directory.resolve("a"), secondGroups.get(0).getOriginal().getPath());
+        assertEquals(firstFiles.get(0).fileKey(), secondGroups.get(0).getOriginal().fileKey());
+        assertEquals(2, uniqueElements.size());
+    }
+
+    @Test
+    public void testSelect_comparesTouchedSizesOnly() throws IOException {
+        // GIVEN a first walk
+        final IncrementalWalk first = IncrementalWalk.open(snapshotFile, FILTER_HASH);
+        final long lastModifiedTime = Files.getLastModifiedTime(directory).toMillis();
+
+        final List<PathElement> firstFiles = list(new FileCatalog());
+        first.onListed(directory, new WalkSnapshot.Listing(lastModifiedTime, emptyList(), firstFiles));
+        first.select(firstFiles, newConcurrentHashSet(), group -> {});
+        first.record(group -> {}).accept(new DuplicateGroup(newArrayList(firstFiles.get(0), firstFiles.get(1)), "digest"));
+        first.save();
+
+        // WHEN a file with the size of the unique one is added
+        Files.write(directory.resolve("d"), "UNIQUE".getBytes(UTF_8));
+        Files.setLastModifiedTime(directory, FileTime.fromMillis(lastModifiedTime + 1000L));
+
+        final IncrementalWalk second = IncrementalWalk.open(snapshotFile, FILTER_HASH);
+        assertNull(second.getUnchanged(directory, lastModifiedTime + 1000L));
+
+        final List<PathElement> secondFiles = list(new FileCatalog());
+        second.onListed(directory, new WalkSnapshot.Listing(lastModifiedTime + 1000L, emptyList(), secondFiles));
+
+        final List<DuplicateGroup> secondGroups = new ArrayList<>();
+        final Collection<PathElement> candidates = second.select(secondFiles, newConcurrentHashSet(), secondGroups::add);
+
+        // THEN
+        assertEquals(1, secondGroups.size());
+        assertEquals(2, candidates.size());
+        candidates.forEach(candidate -> assertEquals("unique".length(), candidate.size()));
+    }
+
+    @Test
+    public void testGetUnchanged_listsRacilyCleanDirectories() throws IOException {
+        // GIVEN a first walk started right after the directory was modified
+        final long lastModifiedTime = System.currentTimeMillis();
+        Files.setLastModifiedTime(directory, FileTime.fromMillis(lastModifiedTime));
+
+        final IncrementalWalk first = IncrementalWalk.open(snapshotFile, FILTER_HASH);
+        final List<PathElement> firstFiles = list(new FileCatalog());
+        first.onListed(directory, new WalkSnapshot.Listing(lastModifiedTime, emptyList(), firstFiles));
+        first.select(firstFiles, newConcurrentHashSet(), group -> {});
+        first.save();
+
+        // WHEN the directory is walked again with the same mtime
+        final IncrementalWalk second = IncrementalWalk.open(snapshotFile, FILTER_HASH);
+
+        // THEN an entry added in the same timestamp tick would go unnoticed, the directory is listed again
+        assertNull(second.getUnchanged(directory, lastModifiedTime));
+    }
+
+    @Test
+    public void testOpen_discardsSnapshotsOfOtherFilters() throws IOException {
+        // GIVEN a first walk
+        final IncrementalWalk first = IncrementalWalk.open(snapshotFile, FILTER_HASH);
+        final long lastModifiedTime = Files.getLastModifiedTime(directory).toMillis();
+
+        final List<PathElement> firstFiles = list(new FileCatalog());
+        first.onListed(directory, new WalkSnapshot.Listing(lastModifiedTime, emptyList(), firstFiles));
+        first.select(firstFiles, newConcurrentHashSet(), group -> {});
+        first.save();
+
+        // WHEN the directory is walked again unchanged with other include, exclude or stop word rules
+        assertNotNull(IncrementalWalk.open(snapshotFile, FILTER_HASH).getUnchanged(directory, lastModifiedTime));
+        final IncrementalWalk second = IncrementalWalk.open(snapshotFile, FILTER_HASH + 1L);
+
+        // THEN
+        assertNull(second.getUnchanged(directory, lastModifiedTime));
+    }
+
+    private List<PathElement> list(final FileCatalog catalog) throws IOException {
+        final List<PathElement> files = new ArrayList<>();
+
+        try (final Stream<Path> paths = Files.list(directory)) {
+            for (final Path path : paths.sorted().collect(toList())) {
+                files.add(catalog.add(path, Files.readAttributes(path, BasicFileAttributes.class)));
+            }
+        }
+
+        return files;
+    }
+
+}
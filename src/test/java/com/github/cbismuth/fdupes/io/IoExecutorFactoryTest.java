@@ -0,0 +1,137 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Christophe Bismuth
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.github.cbismuth.fdupes.io;
+
+import com.github.cbismuth.fdupes.cli.SystemPropertyGetter;
+import org.junit.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class IoExecutorFactoryTest {
+
+    private static final int TASK_COUNT = 32;
+
+    @Test
+    public void testNewExecutor_platform() throws Exception {
+        assertEquals(2, getMaxConcurrency(ExecutionMode.PLATFORM, 2));
+    }
+
+    @Test
+    public void testNewExecutor_virtual() throws Exception {
+        // falls back to platform threads before Java 21, the in-flight limit holds either way
+        assertTrue(getMaxConcurrency(ExecutionMode.VIRTUAL, 2) <= 2);
+    }
+
+    @Test
+    public void testNewExecutor_virtual_nestedSubmissions() throws Exception {
+        // GIVEN a single permit, held by a task submitting more tasks like the walker does
+        final IoExecutorFactory systemUnderTest = new IoExecutorFactory(new SystemPropertyGetter(
+            new MockEnvironment().withProperty("fdupes.execution.mode", ExecutionMode.VIRTUAL.getName())
+        ));
+
+        final ExecutorService executor = systemUnderTest.newExecutor(IoExecutorFactoryTest.class.getSimpleName(), 1);
+        final CountDownLatch completion = new CountDownLatch(TASK_COUNT);
+
+        // WHEN
+        executor.execute(() -> {
+            for (int i = 0; i < TASK_COUNT; i++) {
+                executor.execute(completion::countDown);
+            }
+        });
+
+        // THEN
+        assertTrue(completion.await(10L, TimeUnit.SECONDS));
+        executor.shutdown();
+    }
+
+    @Test
+    public void testGetExecutionMode_fallback() {
+        final SystemPropertyGetter systemPropertyGetter = new SystemPropertyGetter(
+            new MockEnvironment().withProperty("fdupes.execution.mode", "unknown")
+        );
+
+        assertEquals(ExecutionMode.PLATFORM, systemPropertyGetter.getExecutionMode());
+    }
+
+    @Test
+    public void testGetDefaultIoConcurrency_virtual() {
+        final SystemPropertyGetter systemPropertyGetter = new SystemPropertyGetter(
+            new MockEnvironment().withProperty("fdupes.execution.mode", ExecutionMode.VIRTUAL.getName())
+                                 .withProperty("fdupes.execution.max.inflight", "64")
+        );
+
+        assertEquals(64, systemPropertyGetter.getDefaultIoConcurrency());
+        assertEquals(64, systemPropertyGetter.getIoConcurrency("store"));
+    }
+
+    private static int getMaxConcurrency(final ExecutionMode mode, final int concurrency) throws InterruptedException, ExecutionException {
+        // GIVEN
+        final IoExecutorFactory systemUnderTest = new IoExecutorFactory(new SystemPropertyGetter(
+            new MockEnvironment().withProperty("fdupes.execution.mode", mode.getName())
+        ));
+
+        final ExecutorService executor = systemUnderTest.newExecutor(IoExecutorFactoryTest.class.getSimpleName(), concurrency);
+
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+
+        // WHEN
+        final List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < TASK_COUNT; i++) {
+            futures.add(executor.submit(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+
+                try {
+                    Thread.sleep(10L);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+
+                running.decrementAndGet();
+            }));
+        }
+        for (final Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        // THEN
+        assertTrue(maxRunning.get() > 0);
+
+        return maxRunning.get();
+    }
+
+}
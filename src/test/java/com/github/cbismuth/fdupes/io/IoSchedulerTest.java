@@ -0,0 +1,306 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Christophe Bismuth
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.github.cbismuth.fdupes.io;
+
+import com.github.cbismuth.fdupes.cli.SystemPropertyGetter;
+import com.github.cbismuth.fdupes.container.immutable.PathElement;
+import com.github.cbismuth.fdupes.container.mutable.FileCatalog;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.shuffle;
+import static java.util.Collections.synchronizedList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class IoSchedulerTest {
+
+    private static final int FILE_COUNT = 16;
+
+    private final FileCatalog catalog = new FileCatalog();
+
+    private Path directory;
+    private final List<PathElement> elements = new ArrayList<>();
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory(getClass().getSimpleName());
+
+        for (int i = 0; i < FILE_COUNT; i++) {
+            final Path path = Files.write(Paths.get(directory.toString(), String.valueOf(i)), String.valueOf(i).getBytes(UTF_8));
+
+            elements.add(catalog.add(path, Files.readAttributes(path, BasicFileAttributes.class)));
+        }
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        for (final PathElement element : elements) {
+            Files.deleteIfExists(element.getPath());
+        }
+
+        Files.deleteIfExists(directory);
+    }
+
+    @Test
+    public void testForEach_concurrencyLimit() {
+        assertEquals(3, getMaxConcurrency(new MockEnvironment().withProperty("fdupes.io.concurrency", "3")));
+    }
+
+    @Test
+    public void testForEach_fileStoreConcurrencyLimit() throws IOException {
+        final String fileStoreName = Files.getFileStore(directory).name();
+
+        assertEquals(1, getMaxConcurrency(new MockEnvironment().withProperty("fdupes.io.concurrency", "3")
+                                                               .withProperty("fdupes.io.concurrency." + fileStoreName, "1")));
+    }
+
+    @Test
+    public void testForEach_storesKeyedByDevice() throws IOException {
+        // GIVEN two devices whose file stores share a name, e.g. two tmpfs mounts
+        final IoScheduler systemUnderTest = newIoScheduler(new MockEnvironment().withProperty("fdupes.io.concurrency", "1"));
+
+        final List<PathElement> input = newArrayList(onDevice(elements.get(0), 1L), onDevice(elements.get(1), 2L));
+        final CountDownLatch running = new CountDownLatch(input.size());
+        final List<Boolean> actual = synchronizedList(new ArrayList<>());
+
+        // WHEN
+        systemUnderTest.forEach(input, element -> element, element -> {
+            running.countDown();
+
+            actual.add(await(running));
+        });
+        systemUnderTest.close();
+
+        // THEN both devices were read at once despite a single reader per store
+        assertEquals(newArrayList(true, true), actual);
+    }
+
+    @Test
+    public void testForEach_stalledStoreDoesNotHoldOthersBack() throws IOException {
+        // GIVEN a single reader per store in virtual mode, falling back to platform threads before Java 21
+        final IoScheduler systemUnderTest = newIoScheduler(new MockEnvironment().withProperty("fdupes.io.concurrency", "1")
+                                                                                .withProperty("fdupes.execution.mode", ExecutionMode.VIRTUAL.getName()));
+
+        final PathElement other = onDevice(elements.get(2), 2L);
+        final List<PathElement> input = newArrayList(onDevice(elements.get(0), 1L), onDevice(elements.get(1), 1L), other);
+        final CountDownLatch otherRead = new CountDownLatch(1);
+        final List<Boolean> actual = synchronizedList(new ArrayList<>());
+
+        // WHEN the first store stalls until the other store, submitted last, was read
+        systemUnderTest.forEach(input, element -> element, element -> {
+            if (element == other) {
+                otherRead.countDown();
+            } else {
+                actual.add(await(otherRead));
+            }
+        });
+        systemUnderTest.close();
+
+        // THEN
+        assertEquals(newArrayList(true, true), actual);
+    }
+
+    @Test
+    public void testComputeAll() {
+        // GIVEN
+        final IoScheduler systemUnderTest = newIoScheduler(new MockEnvironment().withProperty("fdupes.io.concurrency", "4"));
+
+        // WHEN
+        final Map<PathElement, Long> actual = systemUnderTest.computeAll(elements, PathElement::size);
+        systemUnderTest.close();
+
+        // THEN
+        assertEquals(FILE_COUNT, actual.size());
+        elements.forEach(element -> assertEquals(Long.valueOf(element.size()), actual.get(element)));
+    }
+
+    @Test
+    public void testForEach_directoryOrdering() {
+        final List<PathElement> actual = getExecutionOrder(ReadOrdering.DIRECTORY);
+
+        for (int i = 1; i < actual.size(); i++) {
+            assertTrue(actual.get(i - 1).getPath().toString().compareTo(actual.get(i).getPath().toString()) < 0);
+        }
+    }
+
+    @Test
+    public void testForEach_inodeOrdering() {
+        final List<PathElement> actual = getExecutionOrder(ReadOrdering.INODE);
+
+        for (int i = 1; i < actual.size(); i++) {
+            assertTrue(ReadOrdering.compareSortKeys(actual.get(i - 1).fileKey(), actual.get(i).fileKey()) <= 0);
+        }
+    }
+
+    private List<PathElement> getExecutionOrder(final ReadOrdering ordering) {
+        // GIVEN
+        final IoScheduler systemUnderTest = newIoScheduler(new MockEnvironment().withProperty("fdupes.io.concurrency", "1")
+                                                                                .withProperty("fdupes.io.ordering", ordering.getName()));
+
+        final List<PathElement> input = new ArrayList<>(elements);
+        shuffle(input, new Random(42L));
+
+        final List<PathElement> actual = synchronizedList(new ArrayList<>());
+
+        // WHEN
+        systemUnderTest.forEach(input, element -> element, actual::add);
+        systemUnderTest.close();
+
+        // THEN
+        assertEquals(FILE_COUNT, actual.size());
+
+        return actual;
+    }
+
+    private int getMaxConcurrency(final MockEnvironment environment) {
+        // GIVEN
+        final IoScheduler systemUnderTest = newIoScheduler(environment);
+
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final AtomicInteger done = new AtomicInteger();
+
+        // WHEN
+        systemUnderTest.forEach(elements, element -> element, element -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+
+            try {
+                Thread.sleep(20L);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            running.decrementAndGet();
+            done.incrementAndGet();
+        });
+        systemUnderTest.close();
+
+        // THEN
+        assertEquals(FILE_COUNT, done.get());
+        assertTrue(maxRunning.get() > 0);
+
+        return maxRunning.get();
+    }
+
+    private PathElement onDevice(final PathElement element, final long device) throws IOException {
+        final Path path = element.getPath();
+
+        return catalog.add(path, new DeviceAttributes(Files.readAttributes(path, BasicFileAttributes.class), device));
+    }
+
+    private static boolean await(final CountDownLatch latch) {
+        try {
+            return latch.await(10L, TimeUnit.SECONDS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            return false;
+        }
+    }
+
+    private static IoScheduler newIoScheduler(final MockEnvironment environment) {
+        final SystemPropertyGetter systemPropertyGetter = new SystemPropertyGetter(environment);
+
+        return new IoScheduler(new IoExecutorFactory(systemPropertyGetter), systemPropertyGetter);
+    }
+
+    // real attributes with a file key telling another device, as FileCatalog parses it
+    private static final class DeviceAttributes implements BasicFileAttributes {
+
+        private final BasicFileAttributes delegate;
+        private final long device;
+
+        private DeviceAttributes(final BasicFileAttributes delegate, final long device) {
+            this.delegate = delegate;
+            this.device = device;
+        }
+
+        @Override
+        public FileTime lastModifiedTime() {
+            return delegate.lastModifiedTime();
+        }
+
+        @Override
+        public FileTime lastAccessTime() {
+            return delegate.lastAccessTime();
+        }
+
+        @Override
+        public FileTime creationTime() {
+            return delegate.creationTime();
+        }
+
+        @Override
+        public boolean isRegularFile() {
+            return delegate.isRegularFile();
+        }
+
+        @Override
+        public boolean isDirectory() {
+            return delegate.isDirectory();
+        }
+
+        @Override
+        public boolean isSymbolicLink() {
+            return delegate.isSymbolicLink();
+        }
+
+        @Override
+        public boolean isOther() {
+            return delegate.isOther();
+        }
+
+        @Override
+        public long size() {
+            return delegate.size();
+        }
+
+        @Override
+        public Object fileKey() {
+            return String.valueOf(delegate.fileKey()).replaceFirst("dev=[0-9a-f]+", "dev=" + Long.toHexString(device));
+        }
+
+    }
+
+}
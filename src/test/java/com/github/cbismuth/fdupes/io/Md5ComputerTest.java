@@ -0,0 +1,103 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Christophe Bismuth
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.github.cbismuth.fdupes.io;
+
+import com.github.cbismuth.fdupes.cli.SystemPropertyGetter;
+import com.github.cbismuth.fdupes.container.immutable.PathElement;
+import com.github.cbismuth.fdupes.container.mutable.FileCatalog;
+import org.junit.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.Random;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.UUID.randomUUID;
+import static org.junit.Assert.assertEquals;
+
+public class Md5ComputerTest {
+
+    private final SystemPropertyGetter systemPropertyGetter = new SystemPropertyGetter(new MockEnvironment());
+    private final Md5Computer systemUnderTest = new Md5Computer(new HashCache(systemPropertyGetter), systemPropertyGetter);
+
+    private final FileCatalog catalog = new FileCatalog();
+
+    @Test
+    public void testCompute_emptyFile() throws IOException {
+        // GIVEN
+        final PathElement pathElement = createPathElement(new byte[0]);
+
+        // WHEN
+        final String actual = systemUnderTest.compute(pathElement);
+
+        // THEN
+        assertEquals("d41d8cd98f00b204e9800998ecf8427e", actual);
+    }
+
+    @Test
+    public void testCompute_smallFile() throws IOException {
+        // GIVEN
+        final PathElement pathElement = createPathElement("hello".getBytes(UTF_8));
+
+        // WHEN
+        final String actual = systemUnderTest.compute(pathElement);
+
+        // THEN
+        assertEquals("5d41402abc4b2a76b9719d911017c592", actual);
+    }
+
+    @Test
+    public void testCompute_largerThanReadBuffer() throws Exception {
+        // GIVEN
+        final byte[] content = new byte[3 * 64 * 1024 + 42];
+        new Random(42L).nextBytes(content);
+        final PathElement pathElement = createPathElement(content);
+
+        // WHEN
+        final String actual = systemUnderTest.compute(pathElement);
+
+        // THEN
+        final StringBuilder expected = new StringBuilder();
+        for (final byte b : MessageDigest.getInstance("MD5").digest(content)) {
+            expected.append(String.format("%02x", b & 0xFF));
+        }
+        assertEquals(expected.toString(), actual);
+    }
+
+    private PathElement createPathElement(final byte[] content) throws IOException {
+        final Path directory = Files.createTempDirectory(getClass().getSimpleName());
+        final Path path = Files.write(Paths.get(directory.toString(), randomUUID().toString()), content);
+
+        path.toFile().deleteOnExit();
+
+        return catalog.add(path, Files.readAttributes(path, BasicFileAttributes.class));
+    }
+
+}
@@ -24,23 +24,43 @@
 
 package com.github.cbismuth.fdupes.io;
 
+import com.github.cbismuth.fdupes.cli.SystemPropertyGetter;
 import com.github.cbismuth.fdupes.collect.PathAnalyser;
 import com.github.cbismuth.fdupes.container.immutable.PathElement;
+import com.github.cbismuth.fdupes.container.mutable.FileCatalog;
+import org.junit.After;
 import org.junit.Test;
+import org.springframework.mock.env.MockEnvironment;
 
 import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
 import java.util.List;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class PathOrganizerTest {
 
-    private final PathOrganizer systemUnderTest = new PathOrganizer(new PathAnalyser());
+    private final SystemPropertyGetter systemPropertyGetter = new SystemPropertyGetter(new MockEnvironment().withProperty("fdupes.parallelism", "4"));
+    private final IoScheduler ioScheduler = new IoScheduler(new IoExecutorFactory(systemPropertyGetter), systemPropertyGetter);
+    private final PathOrganizer systemUnderTest = new PathOrganizer(new PathAnalyser(), ioScheduler);
+    private final FileCatalog catalog = new FileCatalog();
+
+    @After
+    public void tearDown() {
+        ioScheduler.close();
+    }
 
     @Test
     public void testOrganize_onTimestampPath_withoutPrefix() throws IOException {
@@ -51,7 +71,7 @@ public class PathOrganizerTest {
         Files.createFile(actual);
 
         final String workingDirectory = destination.toString();
-        final PathElement uniqueElement = new PathElement(actual, Files.readAttributes(actual, BasicFileAttributes.class));
+        final PathElement uniqueElement = catalog.add(actual, Files.readAttributes(actual, BasicFileAttributes.class));
         final List<PathElement> uniqueElements = singletonList(uniqueElement);
 
         // WHEN
@@ -71,7 +91,7 @@ public class PathOrganizerTest {
         Files.createFile(actual);
 
         final String workingDirectory = destination.toString();
-        final PathElement uniqueElement = new PathElement(actual, Files.readAttributes(actual, BasicFileAttributes.class));
+        final PathElement uniqueElement = catalog.add(actual, Files.readAttributes(actual, BasicFileAttributes.class));
         final List<PathElement> uniqueElements = singletonList(uniqueElement);
 
         // WHEN
@@ -91,7 +111,7 @@ public class PathOrganizerTest {
         Files.createFile(actual);
 
         final String workingDirectory = destination.toString();
-        final PathElement uniqueElement = new PathElement(actual, Files.readAttributes(actual, BasicFileAttributes.class));
+        final PathElement uniqueElement = catalog.add(actual, Files.readAttributes(actual, BasicFileAttributes.class));
         final List<PathElement> uniqueElements = singletonList(uniqueElement);
 
         // WHEN
@@ -102,4 +122,82 @@ public class PathOrganizerTest {
         assertTrue(Files.exists(expected));
     }
 
+    @Test
+    public void testOrganize_sameTimestamp() throws IOException {
+        // GIVEN
+        final Path destination = Files.createTempDirectory(getClass().getSimpleName());
+
+        final List<PathElement> uniqueElements = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            final Path actual = Files.write(Paths.get(destination.toString(), "IMG-20160102121314-" + i + ".JPG"), String.valueOf(i).getBytes(UTF_8));
+
+            uniqueElements.add(catalog.add(actual, Files.readAttributes(actual, BasicFileAttributes.class)));
+        }
+
+        // WHEN
+        systemUnderTest.organize(destination.toString(), "sub", uniqueElements);
+
+        // THEN every file is moved under its own name, none overwritten
+        assertTrue(Files.exists(Paths.get(destination.toString(), "sub", "2016", "01", "20160102121314.JPG")));
+
+        final List<String> contents = new ArrayList<>();
+        for (int i = 1; i < 20; i++) {
+            final Path expected = Paths.get(destination.toString(), "sub", "2016", "01", "20160102121314-" + i + ".JPG");
+            assertTrue(Files.exists(expected));
+
+            contents.add(new String(Files.readAllBytes(expected), UTF_8));
+        }
+        contents.add(new String(Files.readAllBytes(Paths.get(destination.toString(), "sub", "2016", "01", "20160102121314.JPG")), UTF_8));
+
+        assertEquals(20L, contents.stream().distinct().count());
+        for (final PathElement uniqueElement : uniqueElements) {
+            assertFalse(Files.exists(uniqueElement.getPath()));
+        }
+    }
+
+    @Test
+    public void testTransfer() throws IOException {
+        // GIVEN
+        final Path directory = Files.createTempDirectory(getClass().getSimpleName());
+
+        final byte[] content = new byte[100_000];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+
+        final Path source = Files.write(Paths.get(directory.toString(), "source"), content);
+        final FileTime lastModifiedTime = FileTime.fromMillis(1_000_000_000L);
+        Files.setLastModifiedTime(source, lastModifiedTime);
+
+        final Path target = Paths.get(directory.toString(), "target");
+
+        // WHEN
+        PathOrganizer.transfer(source, target);
+
+        // THEN
+        assertFalse(Files.exists(source));
+        assertArrayEquals(content, Files.readAllBytes(target));
+        assertEquals(lastModifiedTime, Files.getLastModifiedTime(target));
+    }
+
+    @Test
+    public void testRename_existingTarget() throws IOException {
+        // GIVEN
+        final Path directory = Files.createTempDirectory(getClass().getSimpleName());
+
+        final Path source = Files.write(Paths.get(directory.toString(), "source"), "source".getBytes(UTF_8));
+        final Path target = Files.write(Paths.get(directory.toString(), "target"), "target".getBytes(UTF_8));
+
+        // WHEN
+        try {
+            PathOrganizer.rename(source, target);
+
+            fail("an existing target must not be replaced");
+        } catch (final FileAlreadyExistsException ignored) {
+            // THEN
+            assertArrayEquals("source".getBytes(UTF_8), Files.readAllBytes(source));
+            assertArrayEquals("target".getBytes(UTF_8), Files.readAllBytes(target));
+        }
+    }
+
 }
@@ -0,0 +1,92 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Christophe Bismuth
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.github.cbismuth.fdupes.metrics;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ProgressTest {
+
+    private static final long MB = 1024L * 1024L;
+
+    @Test
+    public void testUpdate_throughputIsSmoothedAndEtaFollowsRemainingBytes() {
+        // GIVEN
+        final Progress systemUnderTest = new Progress(Stage.HASH, 100L, 100L * MB, 0L);
+
+        // unknown until a first interval elapsed
+        assertTrue(Double.isNaN(systemUnderTest.getEta()));
+
+        // WHEN 10 mb are read in the first second
+        systemUnderTest.add(10L, 10L * MB);
+        systemUnderTest.update(TimeUnit.SECONDS.toNanos(1L));
+
+        // THEN
+        assertEquals(10.0 * MB, systemUnderTest.getThroughput(), 1.0);
+        assertEquals(9.0, systemUnderTest.getEta(), 0.001);
+
+        // WHEN 20 mb are read in the next second
+        systemUnderTest.add(20L, 20L * MB);
+        systemUnderTest.update(TimeUnit.SECONDS.toNanos(2L));
+
+        // THEN a single burst only moves the throughput part of the way
+        assertEquals(13.0 * MB, systemUnderTest.getThroughput(), 1.0);
+        assertEquals(70.0 / 13.0, systemUnderTest.getEta(), 0.001);
+    }
+
+    @Test
+    public void testGetEta_zeroOnceEverythingIsRead() {
+        // GIVEN
+        final Progress systemUnderTest = new Progress(Stage.COMPARE, 2L, 2L * MB, 0L);
+
+        // WHEN
+        systemUnderTest.add(2L, 2L * MB);
+        systemUnderTest.update(TimeUnit.SECONDS.toNanos(1L));
+
+        // THEN
+        assertEquals(0.0, systemUnderTest.getEta(), 0.0);
+    }
+
+    @Test
+    public void testSkip_unreadBytesLeaveThePass() {
+        // GIVEN
+        final Progress systemUnderTest = new Progress(Stage.HASH, 2L, 10L * MB, 0L);
+
+        // WHEN a cache hit answers for 8 mb and 1 mb of the other file is read in a second
+        systemUnderTest.add(1L, 0L);
+        systemUnderTest.skip(8L * MB);
+        systemUnderTest.add(0L, MB);
+        systemUnderTest.update(TimeUnit.SECONDS.toNanos(1L));
+
+        // THEN
+        assertEquals(2L * MB, systemUnderTest.getTotalBytes());
+        assertEquals(1.0, systemUnderTest.getEta(), 0.001);
+    }
+
+}
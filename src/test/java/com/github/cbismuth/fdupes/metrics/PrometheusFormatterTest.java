@@ -0,0 +1,100 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Christophe Bismuth
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.github.cbismuth.fdupes.metrics;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PrometheusFormatterTest {
+
+    private final PrometheusFormatter systemUnderTest = new PrometheusFormatter();
+
+    @Test
+    public void testFormat_stageMetricsShareLabelledFamilies() {
+        // GIVEN
+        final MetricRegistry registry = new MetricRegistry();
+
+        registry.meter(Stage.HASH.getMetricName("bytes")).mark(1024L);
+        registry.meter(Stage.COMPARE.getMetricName("bytes")).mark(2048L);
+        registry.counter(Stage.HASH.getMetricName("inflight")).inc(3L);
+        registry.timer(Stage.WALK.getMetricName("latency")).update(250L, TimeUnit.MILLISECONDS);
+
+        // WHEN
+        final String actual = systemUnderTest.format(registry);
+
+        // THEN
+        assertEquals(1, occurrences(actual, "# TYPE fdupes_stage_bytes_total counter"));
+        assertTrue(actual.contains("fdupes_stage_bytes_total{stage=\"hash\"} 1024\n"));
+        assertTrue(actual.contains("fdupes_stage_bytes_total{stage=\"compare\"} 2048\n"));
+        assertTrue(actual.contains("# TYPE fdupes_stage_inflight gauge\nfdupes_stage_inflight{stage=\"hash\"} 3\n"));
+        assertTrue(actual.contains("# TYPE fdupes_stage_latency_seconds summary\n"));
+        assertTrue(actual.contains("fdupes_stage_latency_seconds{stage=\"walk\",quantile=\"0.5\"} 0.25\n"));
+        assertTrue(actual.contains("fdupes_stage_latency_seconds_sum{stage=\"walk\"} 0.25\n"));
+        assertTrue(actual.contains("fdupes_stage_latency_seconds_count{stage=\"walk\"} 1\n"));
+    }
+
+    @Test
+    public void testFormat_labelsInNamesJoinStageLabels() {
+        // GIVEN
+        final MetricRegistry registry = new MetricRegistry();
+
+        registry.meter(Stage.WALK.getMetricName(MetricNames.withLabel("thread.files", "thread", "fdupes-walker-1"))).mark(3L);
+        registry.meter(Stage.WALK.getMetricName(MetricNames.withLabel("thread.files", "thread", "fdupes-walker-2"))).mark(5L);
+
+        // WHEN
+        final String actual = systemUnderTest.format(registry);
+
+        // THEN
+        assertEquals(1, occurrences(actual, "# TYPE fdupes_stage_thread_files_total counter"));
+        assertTrue(actual.contains("fdupes_stage_thread_files_total{stage=\"walk\",thread=\"fdupes-walker-1\"} 3\n"));
+        assertTrue(actual.contains("fdupes_stage_thread_files_total{stage=\"walk\",thread=\"fdupes-walker-2\"} 5\n"));
+    }
+
+    @Test
+    public void testFormat_storeNamesAreEscapedLabels() {
+        // GIVEN
+        final MetricRegistry registry = new MetricRegistry();
+
+        registry.register(MetricNames.withLabel(MetricRegistry.name("io", "store", "queue", "depth"), "store", "10.0.0.1:/\"export\""), (Gauge<Integer>) () -> 7);
+        registry.register(MetricRegistry.name("duplicates", "ratio"), (Gauge<String>) () -> "not a number");
+
+        // WHEN
+        final String actual = systemUnderTest.format(registry);
+
+        // THEN
+        assertEquals("# TYPE fdupes_io_store_queue_depth gauge\nfdupes_io_store_queue_depth{store=\"10.0.0.1:/\\\"export\\\"\"} 7\n", actual);
+    }
+
+    private static int occurrences(final String text, final String pattern) {
+        return text.split(pattern, -1).length - 1;
+    }
+
+}
@@ -0,0 +1,147 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Christophe Bismuth
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.github.cbismuth.fdupes.report;
+
+import com.github.cbismuth.fdupes.cli.SystemPropertyGetter;
+import com.github.cbismuth.fdupes.container.immutable.DuplicateGroup;
+import com.github.cbismuth.fdupes.container.immutable.PathElement;
+import com.github.cbismuth.fdupes.container.mutable.FileCatalog;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BinaryReportReaderTest {
+
+    private static final String DIGEST = "0123456789abcdef0123456789abcdef";
+
+    private final FileCatalog catalog = new FileCatalog();
+
+    private Path directory;
+    private Path subDirectory1;
+    private Path subDirectory2;
+    private Path output;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory(getClass().getSimpleName());
+        subDirectory1 = Files.createDirectory(directory.resolve("sub1"));
+        subDirectory2 = Files.createDirectory(directory.resolve("sub2"));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (final Stream<Path> paths = Files.walk(directory)) {
+            for (final Path path : paths.sorted((a, b) -> b.compareTo(a)).collect(toList())) {
+                Files.delete(path);
+            }
+        }
+
+        if (output != null) {
+            Files.deleteIfExists(output);
+        }
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        // GIVEN
+        final DuplicateGroup small = new DuplicateGroup(newArrayList(createPathElement(subDirectory1, "a", 1),
+                                                                     createPathElement(subDirectory2, "b", 1)), DIGEST);
+        final DuplicateGroup large = new DuplicateGroup(newArrayList(createPathElement(subDirectory1, "c", 3),
+                                                                     createPathElement(subDirectory1, "d", 3),
+                                                                     createPathElement(directory, "e", 3)), "not-an-hexadecimal-digest");
+        final DuplicateGroup medium = new DuplicateGroup(newArrayList(createPathElement(subDirectory2, "f", 2),
+                                                                      createPathElement(subDirectory2, "g", 2)), DIGEST);
+
+        final DuplicatesBinaryReporter systemUnderTest = new DuplicatesBinaryReporter(new SystemPropertyGetter(new MockEnvironment()));
+
+        // WHEN
+        try (final ReportWriter<DuplicateGroup> writer = systemUnderTest.open()) {
+            output = writer.getPath();
+
+            writer.accept(small);
+            writer.accept(large);
+            writer.accept(medium);
+        }
+
+        // THEN
+        try (final BinaryReportReader reader = new BinaryReportReader(output)) {
+            assertEquals(3, reader.getGroupCount());
+            assertEquals(newArrayList(directory.toString(), subDirectory1.toString(), subDirectory2.toString()), reader.getDirectories());
+
+            final List<BinaryReportReader.Group> bySubDirectory1 = reader.findByDirectory(subDirectory1);
+            assertEquals(2, bySubDirectory1.size());
+            assertEquals(getPaths(small), bySubDirectory1.get(0).getPaths());
+            assertEquals(getPaths(large), bySubDirectory1.get(1).getPaths());
+            assertEquals(Optional.of(DIGEST), bySubDirectory1.get(0).getDigest());
+            assertEquals(Optional.empty(), bySubDirectory1.get(1).getDigest());
+
+            assertEquals(2, reader.findByDirectory(subDirectory2).size());
+            assertTrue(reader.findByDirectory(directory.resolve("unknown")).isEmpty());
+
+            final List<BinaryReportReader.Group> bySize = reader.findBySize(2L, 3L);
+            assertEquals(2, bySize.size());
+            assertEquals(getPaths(medium), bySize.get(0).getPaths());
+            assertEquals(3L, bySize.get(1).getFileSize());
+            assertEquals(1, reader.findBySize(0L, 1L).size());
+            assertTrue(reader.findBySize(4L, Long.MAX_VALUE).isEmpty());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testOpen_notABinaryReport() throws IOException {
+        final Path path = Files.write(directory.resolve("report.csv"), new byte[64]);
+
+        new BinaryReportReader(path).close();
+    }
+
+    private PathElement createPathElement(final Path parent, final String name, final int size) throws IOException {
+        final Path path = Files.write(Paths.get(parent.toString(), name), new byte[size]);
+
+        return catalog.add(path, Files.readAttributes(path, BasicFileAttributes.class));
+    }
+
+    private static List<Path> getPaths(final DuplicateGroup group) {
+        return group.getMembers()
+                    .stream()
+                    .map(PathElement::getPath)
+                    .collect(toList());
+    }
+
+}
@@ -0,0 +1,125 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Christophe Bismuth
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.github.cbismuth.fdupes.report;
+
+import com.github.cbismuth.fdupes.cli.SystemPropertyGetter;
+import com.github.cbismuth.fdupes.container.immutable.DuplicateGroup;
+import com.github.cbismuth.fdupes.container.immutable.PathElement;
+import com.github.cbismuth.fdupes.container.mutable.FileCatalog;
+import com.github.cbismuth.fdupes.io.PathEscapeFunction;
+import org.junit.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.UUID.randomUUID;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DuplicatesLogReporterTest {
+
+    private final FileCatalog catalog = new FileCatalog();
+
+    @Test
+    public void testOpen_flushesConfirmedGroups() throws IOException {
+        // GIVEN
+        final Path directory = Files.createTempDirectory(getClass().getSimpleName());
+        directory.toFile().deleteOnExit();
+
+        final DuplicatesLogReporter systemUnderTest = new DuplicatesLogReporter(
+            new PathEscapeFunction(),
+            new SystemPropertyGetter(new MockEnvironment().withProperty("fdupes.report.flush.interval", "0ms"))
+        );
+
+        final DuplicateGroup group1 = new DuplicateGroup(newArrayList(createPathElement(directory), createPathElement(directory), createPathElement(directory)), "");
+        final DuplicateGroup group2 = new DuplicateGroup(newArrayList(createPathElement(directory), createPathElement(directory)), "");
+
+        // WHEN
+        final Path output;
+        try (final ReportWriter<DuplicateGroup> writer = systemUnderTest.open()) {
+            output = writer.getPath();
+
+            writer.accept(group1);
+
+            // THEN
+            assertEquals(2, Files.readAllLines(output, UTF_8).size());
+
+            writer.accept(group2);
+        }
+
+        // THEN
+        assertEquals(3, Files.readAllLines(output, UTF_8).size());
+
+        Files.delete(output);
+    }
+
+    @Test
+    public void testOpen_flushesGroupsOnceIdle() throws Exception {
+        // GIVEN
+        final Path directory = Files.createTempDirectory(getClass().getSimpleName());
+        directory.toFile().deleteOnExit();
+
+        final DuplicatesLogReporter systemUnderTest = new DuplicatesLogReporter(
+            new PathEscapeFunction(),
+            new SystemPropertyGetter(new MockEnvironment().withProperty("fdupes.report.flush.interval", "100ms"))
+        );
+
+        final DuplicateGroup group = new DuplicateGroup(newArrayList(createPathElement(directory), createPathElement(directory)), "");
+
+        // WHEN
+        final Path output;
+        try (final ReportWriter<DuplicateGroup> writer = systemUnderTest.open()) {
+            output = writer.getPath();
+
+            writer.accept(group);
+
+            // THEN no later record is needed to flush it
+            final long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+            while (Files.readAllLines(output, UTF_8).isEmpty()) {
+                assertTrue("timed out waiting for the flush", System.currentTimeMillis() < deadline);
+
+                Thread.sleep(50L);
+            }
+        }
+
+        Files.delete(output);
+    }
+
+    private PathElement createPathElement(final Path directory) throws IOException {
+        final Path path = Files.write(Paths.get(directory.toString(), randomUUID().toString()), new byte[0]);
+
+        path.toFile().deleteOnExit();
+
+        return catalog.add(path, Files.readAttributes(path, BasicFileAttributes.class));
+    }
+
+}
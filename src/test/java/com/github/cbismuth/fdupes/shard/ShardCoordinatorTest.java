@@ -0,0 +1,190 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Christophe Bismuth
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.github.cbismuth.fdupes.shard;
+
+import com.github.cbismuth.fdupes.Main;
+import com.github.cbismuth.fdupes.container.immutable.DuplicateGroup;
+import com.github.cbismuth.fdupes.container.immutable.PathElement;
+import com.github.cbismuth.fdupes.container.mutable.FileCatalog;
+import com.google.common.base.Strings;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Sets.newConcurrentHashSet;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+import static org.junit.Assert.assertEquals;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = Main.class, webEnvironment = RANDOM_PORT, properties = "fdupes.workers=2")
+public class ShardCoordinatorTest {
+
+    @Autowired
+    private ShardCoordinator systemUnderTest;
+
+    private Path directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory(getClass().getSimpleName());
+        directory.toFile().deleteOnExit();
+    }
+
+    @Test
+    public void testPartition_balancesBytes() throws IOException {
+        // GIVEN two files of 8 bytes, three of 5, two of 4 and two of 2
+        final FileCatalog catalog = new FileCatalog();
+        final List<PathElement> candidates = new ArrayList<>();
+        final int[] sizes = { 8, 8, 5, 5, 5, 4, 4, 2, 2 };
+
+        for (int i = 0; i < sizes.length; i++) {
+            final Path path = write("file-" + i, new byte[sizes[i]]);
+
+            candidates.add(catalog.add(path, Files.readAttributes(path, BasicFileAttributes.class)));
+        }
+
+        // WHEN
+        final List<List<PathElement>> actual = ShardCoordinator.partition(candidates, 2);
+
+        // THEN size groups are kept whole, shards weigh 16 + 4 and 15 + 8 bytes
+        assertEquals(2, actual.size());
+
+        final List<Long> bytes = new ArrayList<>();
+        for (final List<PathElement> shard : actual) {
+            assertEquals(1, shard.stream().filter(element -> element.size() == 8L || element.size() == 5L).map(PathElement::size).distinct().count());
+
+            bytes.add(shard.stream().mapToLong(PathElement::size).sum());
+        }
+
+        Collections.sort(bytes);
+        assertEquals(20L, (long) bytes.get(0));
+        assertEquals(23L, (long) bytes.get(1));
+    }
+
+    @Test
+    public void testPartition_fewerGroupsThanShards() throws IOException {
+        // GIVEN
+        final FileCatalog catalog = new FileCatalog();
+        final List<PathElement> candidates = new ArrayList<>();
+
+        for (int i = 0; i < 2; i++) {
+            final Path path = write("file-" + i, new byte[3]);
+
+            candidates.add(catalog.add(path, Files.readAttributes(path, BasicFileAttributes.class)));
+        }
+
+        // WHEN
+        final List<List<PathElement>> actual = ShardCoordinator.partition(candidates, 4);
+
+        // THEN
+        assertEquals(1, actual.size());
+        assertEquals(2, actual.get(0).size());
+    }
+
+    @Test
+    public void testExtractDuplicates_mergesWorkerResults() throws IOException {
+        // GIVEN three copies of a content per size, and a same-sized unique file for each
+        final FileCatalog catalog = new FileCatalog();
+        final List<PathElement> input = new ArrayList<>();
+
+        for (int size = 1; size <= 4; size++) {
+            final byte[] content = new byte[size];
+            final byte[] other = new byte[size];
+            other[0] = 1;
+
+            for (int copy = 0; copy < 3; copy++) {
+                input.add(add(catalog, write("copy-" + size + "-" + copy, content)));
+            }
+            input.add(add(catalog, write("other-" + size, other)));
+        }
+        input.add(add(catalog, write("alone", new byte[10])));
+
+        final Set<PathElement> uniqueElements = newConcurrentHashSet();
+        final List<DuplicateGroup> actual = Collections.synchronizedList(new ArrayList<>());
+
+        // WHEN
+        systemUnderTest.extractDuplicates(input, uniqueElements, actual::add);
+
+        // THEN
+        assertEquals(4, actual.size());
+
+        for (final DuplicateGroup group : actual) {
+            assertEquals(3, group.getMembers().size());
+            assertEquals(1, group.getMembers().stream().map(PathElement::size).collect(toSet()).size());
+        }
+
+        // originals, same-sized unique files and the file alone of its size
+        assertEquals(4 + 4 + 1, uniqueElements.size());
+    }
+
+    @Test
+    public void testWriteElements_pathsRoundTrip() throws IOException {
+        // GIVEN a path longer than modified UTF-8 strings allow and a name the platform charset can't decode
+        final BasicFileAttributes attributes = Files.readAttributes(write("attributes", new byte[3]), BasicFileAttributes.class);
+
+        final FileCatalog catalog = new FileCatalog();
+        final List<PathElement> input = newArrayList(catalog.add(directory.resolve(Strings.repeat("directory/", 8000) + "file"), attributes),
+                                                     catalog.add(Paths.get(URI.create(directory.toUri() + "name-%FF")), attributes));
+
+        final Path shardFile = write("shard.bin", new byte[0]);
+
+        // WHEN
+        ShardFormat.writeElements(shardFile, input);
+        final List<PathElement> actual = ShardFormat.readElements(shardFile, new FileCatalog());
+
+        // THEN
+        assertEquals(input.stream().map(PathElement::getPath).collect(toList()), actual.stream().map(PathElement::getPath).collect(toList()));
+        assertEquals(3L, actual.get(0).size());
+    }
+
+    private Path write(final String name, final byte[] content) throws IOException {
+        final Path path = Files.write(Paths.get(directory.toString(), name), content);
+        path.toFile().deleteOnExit();
+
+        return path;
+    }
+
+    private static PathElement add(final FileCatalog catalog, final Path path) throws IOException {
+        return catalog.add(path, Files.readAttributes(path, BasicFileAttributes.class));
+    }
+
+}
@@ -41,6 +41,7 @@ import java.util.Collection;
 
 import static com.github.cbismuth.fdupes.metrics.MetricRegistrySingleton.getMetricRegistry;
 import static com.google.common.collect.Lists.newArrayList;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Collections.singleton;
 import static org.junit.Assert.assertEquals;
 import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
@@ -163,6 +164,63 @@ public class DirectoryWalkerTest {
         assertEquals(expectedDuplicatesByMd5Count, actualDuplicatesByMd5Count);
     }
 
+    @Test
+    public void testExtractDuplicates_nestedDirectories() throws Exception {
+        final Path parentDirectory = Files.createTempDirectory(pathHelper.uniqueString());
+        parentDirectory.toFile().deleteOnExit();
+
+        // GIVEN
+        final int depth = 200;
+
+        Path directory = parentDirectory;
+        for (int i = 0; i < depth; i++) {
+            directory = Files.createDirectory(Paths.get(directory.toString(), String.valueOf(i % 10)));
+            Files.write(Paths.get(directory.toString(), "file"), "content".getBytes(UTF_8));
+        }
+
+        // WHEN
+        final Collection<String> duplicates = Files.readAllLines(
+            systemUnderTest.launch(singleton(parentDirectory.toString()))
+        );
+
+        // THEN
+        final long expectedDuplicatesCount = depth - 1L;
+        final long actualDuplicatesCount = (long) duplicates.size();
+        assertEquals(expectedDuplicatesCount, actualDuplicatesCount);
+    }
+
+    @Test
+    public void testExtractDuplicates_hardLinks() throws Exception {
+        final Path parentDirectory = Files.createTempDirectory(pathHelper.uniqueString());
+        parentDirectory.toFile().deleteOnExit();
+
+        // GIVEN
+        final Path original = Files.write(Paths.get(parentDirectory.toString(), "original"), "content".getBytes(UTF_8));
+        Files.write(Paths.get(parentDirectory.toString(), "copy"), "content".getBytes(UTF_8));
+        Files.createLink(Paths.get(parentDirectory.toString(), "original-link-1"), original);
+        Files.createLink(Paths.get(parentDirectory.toString(), "original-link-2"), original);
+
+        final Path unique = Files.write(Paths.get(parentDirectory.toString(), "unique"), "unique content".getBytes(UTF_8));
+        Files.createLink(Paths.get(parentDirectory.toString(), "unique-link"), unique);
+
+        // WHEN
+        final Collection<String> duplicates = Files.readAllLines(
+            systemUnderTest.launch(singleton(parentDirectory.toString()))
+        );
+
+        // THEN
+        final long expectedDuplicatesCount = 4L;
+        final long actualDuplicatesCount = (long) duplicates.size();
+        assertEquals(expectedDuplicatesCount, actualDuplicatesCount);
+
+        final long expectedHardLinksCount = 3L;
+        final long actualHardLinksCount = Files.readAllLines(Paths.get(System.getProperty("user.dir"), "report.csv"))
+                                               .stream()
+                                               .filter(line -> line.endsWith("\"hardlink\""))
+                                               .count();
+        assertEquals(expectedHardLinksCount, actualHardLinksCount);
+    }
+
     @Test
     public void testExtractDuplicates_all() throws Exception {
         final Path parentDirectory = Files.createTempDirectory(pathHelper.uniqueString());
@@ -0,0 +1,99 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Christophe Bismuth
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.github.cbismuth.fdupes.stream;
+
+import com.github.cbismuth.fdupes.container.immutable.PathElement;
+import com.github.cbismuth.fdupes.container.mutable.FileCatalog;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+
+import static java.util.UUID.randomUUID;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HashPipelineTest {
+
+    private final FileCatalog catalog = new FileCatalog();
+
+    @Test
+    public void testFinish_onlySameSizeFilesAreHashed() throws IOException {
+        // GIVEN
+        final Path directory = Files.createTempDirectory(getClass().getSimpleName());
+
+        final PathElement unique = createPathElement(directory, new byte[1]);
+        final PathElement sameSize1 = createPathElement(directory, new byte[2]);
+        final PathElement sameSize2 = createPathElement(directory, new byte[2]);
+        final PathElement sameSize3 = createPathElement(directory, new byte[2]);
+
+        final HashPipeline systemUnderTest = new HashPipeline(pathElement -> pathElement.getPath().toString(), 2, 1);
+
+        // WHEN
+        systemUnderTest.accept(unique);
+        systemUnderTest.accept(sameSize1);
+        systemUnderTest.accept(sameSize2);
+        systemUnderTest.accept(sameSize3);
+
+        final Map<PathElement, String> actual = systemUnderTest.finish();
+
+        // THEN
+        assertEquals(3, actual.size());
+        assertTrue(actual.containsKey(sameSize1));
+        assertTrue(actual.containsKey(sameSize2));
+        assertTrue(actual.containsKey(sameSize3));
+        assertEquals(sameSize3.getPath().toString(), actual.get(sameSize3));
+    }
+
+    @Test(expected = IllegalStateException.class, timeout = 10000L)
+    public void testAccept_failsOnceGroupingBySizeDied() throws IOException {
+        // GIVEN a file whose size can't be read
+        final Path directory = Files.createTempDirectory(getClass().getSimpleName());
+
+        final HashPipeline systemUnderTest = new HashPipeline(pathElement -> pathElement.getPath().toString(), 1, 1);
+
+        // WHEN
+        systemUnderTest.accept(new PathElement(new FileCatalog(), 1));
+        for (int i = 0; i < 10; i++) {
+            systemUnderTest.accept(createPathElement(directory, new byte[i]));
+        }
+        systemUnderTest.finish();
+
+        // THEN walkers fail instead of blocking on a full queue
+    }
+
+    private PathElement createPathElement(final Path directory, final byte[] content) throws IOException {
+        final Path path = Files.write(Paths.get(directory.toString(), randomUUID().toString()), content);
+
+        path.toFile().deleteOnExit();
+
+        return catalog.add(path, Files.readAttributes(path, BasicFileAttributes.class));
+    }
+
+}